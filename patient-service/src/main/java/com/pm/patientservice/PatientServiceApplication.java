@@ -2,8 +2,10 @@ package com.pm.patientservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+// the R2DBC pool is built by ReactiveDatabaseConfig, a ConnectionFactory bean would turn JPA off
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class PatientServiceApplication {
 
 	public static void main(String[] args) {
@@ -1,11 +1,17 @@
 package com.pm.patientservice.api.controllers.contracts;
 
 import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.api.models.responses.BatchLookupResponse;
+import com.pm.patientservice.api.models.responses.BulkItemResponse;
+import com.pm.patientservice.api.models.responses.CacheStatsResponse;
+import com.pm.patientservice.api.models.responses.ChangeFeedResponse;
 import com.pm.patientservice.api.models.responses.PatientResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -23,27 +29,53 @@ public interface PatientController {
     @SecurityRequirement(name = "security token")
     public ResponseEntity<?> createPatient(@RequestBody PatientRequest request);
 
+    @PostMapping("/bulk")
+    @SecurityRequirement(name = "security token")
+    public ResponseEntity<List<BulkItemResponse>> createPatients(@RequestBody List<PatientRequest> requests);
+
     @GetMapping("/id/{id}")
     @SecurityRequirement(name = "security token")
-    public ResponseEntity<PatientResponse> getPatientById(@PathVariable UUID id);
+    public ResponseEntity<PatientResponse> getPatientById(@PathVariable UUID id, WebRequest request);
+
+    @PostMapping("/batch/ids")
+    @SecurityRequirement(name = "security token")
+    public ResponseEntity<BatchLookupResponse> getPatientsByIds(@RequestBody List<UUID> ids);
+
+    @PostMapping("/batch/dnis")
+    @SecurityRequirement(name = "security token")
+    public ResponseEntity<BatchLookupResponse> getPatientsByDnis(@RequestBody List<String> dnis);
 
     @GetMapping
     @SecurityRequirement(name = "security token")
-    public ResponseEntity<Page<PatientResponse>> getAllPatients(
+    public ResponseEntity<?> getAllPatients(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor);
+
+    @GetMapping("/changes")
+    @SecurityRequirement(name = "security token")
+    public ResponseEntity<ChangeFeedResponse> getChanges(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size);
+
+    @GetMapping("/export")
+    @SecurityRequirement(name = "security token")
+    public ResponseEntity<StreamingResponseBody> exportPatients(@RequestParam(defaultValue = "ndjson") String format);
 
     @GetMapping("/email/{email}")
     @SecurityRequirement(name = "security token")
-    public ResponseEntity<PatientResponse> getPatientByEmail(@PathVariable String email);
+    public ResponseEntity<PatientResponse> getPatientByEmail(@PathVariable String email, WebRequest request);
 
     @GetMapping("/dni/{dni}")
     @SecurityRequirement(name = "security token")
-    public ResponseEntity<PatientResponse> getPatientByDni(@PathVariable String dni);
+    public ResponseEntity<PatientResponse> getPatientByDni(@PathVariable String dni, WebRequest request);
 
     @GetMapping("/name/{name}")
     @SecurityRequirement(name = "security token")
-    public ResponseEntity<List<PatientResponse>> getPatientsByName(@PathVariable String name);
+    public ResponseEntity<Page<PatientResponse>> getPatientsByName(
+            @PathVariable String name,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size);
 
     @DeleteMapping("/delete/{id}")
     @SecurityRequirement(name = "security token")
@@ -52,4 +84,8 @@ public interface PatientController {
     @PutMapping("/update/{id}")
     @SecurityRequirement(name = "security token")
     public ResponseEntity<PatientResponse> updatePatient(@PathVariable UUID id, @RequestBody PatientRequest request);
+
+    @GetMapping("/cache/stats")
+    @SecurityRequirement(name = "security token")
+    public ResponseEntity<CacheStatsResponse> getCacheStats();
 }
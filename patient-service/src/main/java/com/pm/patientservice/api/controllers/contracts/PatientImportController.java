@@ -0,0 +1,33 @@
+package com.pm.patientservice.api.controllers.contracts;
+
+import com.pm.patientservice.api.models.responses.ImportStatusResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.UUID;
+
+/**
+ * Interface for the PatientImportController.
+ * This interface defines the contract for importing patients from CSV files.
+ *
+ * @author caito
+ *
+ */
+public interface PatientImportController {
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @SecurityRequirement(name = "security token")
+    public ResponseEntity<ImportStatusResponse> importPatients(@RequestParam("file") MultipartFile file);
+
+    @GetMapping("/{id}")
+    @SecurityRequirement(name = "security token")
+    public ResponseEntity<ImportStatusResponse> getImportStatus(@PathVariable UUID id);
+
+    @GetMapping("/{id}/rejected")
+    @SecurityRequirement(name = "security token")
+    public ResponseEntity<Resource> getRejectedRows(@PathVariable UUID id);
+}
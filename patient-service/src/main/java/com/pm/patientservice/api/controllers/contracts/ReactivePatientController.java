@@ -0,0 +1,48 @@
+package com.pm.patientservice.api.controllers.contracts;
+
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Interface for the ReactivePatientController.
+ * This interface defines the contract for the non-blocking patient reads; lists are streamed
+ * as newline-delimited JSON.
+ *
+ * @author caito
+ *
+ */
+public interface ReactivePatientController {
+
+    @GetMapping("/id/{id}")
+    @SecurityRequirement(name = "security token")
+    public Mono<PatientResponse> getPatientById(@PathVariable UUID id);
+
+    @GetMapping("/email/{email}")
+    @SecurityRequirement(name = "security token")
+    public Mono<PatientResponse> getPatientByEmail(@PathVariable String email);
+
+    @GetMapping("/dni/{dni}")
+    @SecurityRequirement(name = "security token")
+    public Mono<PatientResponse> getPatientByDni(@PathVariable String dni);
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @SecurityRequirement(name = "security token")
+    public Flux<PatientResponse> getPatients(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size);
+
+    @GetMapping(value = "/name/{name}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @SecurityRequirement(name = "security token")
+    public Flux<PatientResponse> getPatientsByName(
+            @PathVariable String name,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size);
+}
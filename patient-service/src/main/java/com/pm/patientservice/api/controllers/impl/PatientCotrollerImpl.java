@@ -1,24 +1,44 @@
 package com.pm.patientservice.api.controllers.impl;
 
 import com.pm.patientservice.api.controllers.contracts.PatientController;
+import com.pm.patientservice.api.models.requests.ExportFormat;
 import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.api.models.responses.BatchLookupResponse;
+import com.pm.patientservice.api.models.responses.BulkItemResponse;
+import com.pm.patientservice.api.models.responses.CacheStatsResponse;
+import com.pm.patientservice.api.models.responses.ChangeFeedResponse;
+import com.pm.patientservice.api.models.responses.CursorPageResponse;
 import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.api.models.responses.PatientVersionResponse;
+import com.pm.patientservice.services.contracts.PatientChangeFeedService;
+import com.pm.patientservice.services.contracts.PatientExportService;
 import com.pm.patientservice.services.contracts.PatientService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 /**
  * Implementation of the PatientController interface.
  * This class handles patient-related operations such as creating a patient and retrieving patient information.
+ * Single patient responses carry a strong ETag and a Last-Modified header derived from the last update date,
+ * and conditional requests are answered with 304 Not Modified after a version-only lookup; the other
+ * requests skip that lookup and read the patient directly.
  *
  * @author caito
  *
@@ -30,6 +50,8 @@ import java.util.UUID;
 @EnableSpringDataWebSupport(pageSerializationMode = EnableSpringDataWebSupport.PageSerializationMode.VIA_DTO)
 public class PatientCotrollerImpl implements PatientController {
     private final PatientService patientService;
+    private final PatientExportService patientExportService;
+    private final PatientChangeFeedService patientChangeFeedService;
 
     @Override
     public ResponseEntity<?> createPatient(PatientRequest request) {
@@ -38,12 +60,35 @@ public class PatientCotrollerImpl implements PatientController {
     }
 
     @Override
-    public ResponseEntity<PatientResponse> getPatientById(UUID id) {
-        return ResponseEntity.ok(patientService.getPatientById(id));
+    public ResponseEntity<List<BulkItemResponse>> createPatients(List<PatientRequest> requests) {
+        return ResponseEntity.ok(patientService.createPatients(requests));
     }
 
     @Override
-    public ResponseEntity<Page<PatientResponse>> getAllPatients(int page, int size) {
+    public ResponseEntity<PatientResponse> getPatientById(UUID id, WebRequest request) {
+        return conditionalGet(request, () -> patientService.getPatientVersionById(id),
+                () -> patientService.getPatientById(id));
+    }
+
+    @Override
+    public ResponseEntity<BatchLookupResponse> getPatientsByIds(List<UUID> ids) {
+        return ResponseEntity.ok(patientService.getPatientsByIds(ids));
+    }
+
+    @Override
+    public ResponseEntity<BatchLookupResponse> getPatientsByDnis(List<String> dnis) {
+        return ResponseEntity.ok(patientService.getPatientsByDnis(dnis));
+    }
+
+    @Override
+    public ResponseEntity<?> getAllPatients(int page, int size, String cursor) {
+        // any cursor parameter (empty for the first page) switches to keyset pagination
+        if (cursor != null) {
+            CursorPageResponse<PatientResponse> slice = patientService.getPatientsAfter(cursor, size);
+            if (slice.getContent().isEmpty())
+                return ResponseEntity.noContent().build();
+            return ResponseEntity.ok(slice);
+        }
         Page<PatientResponse> patients = patientService.getPatients(page, size);
         if (patients.isEmpty())
             return ResponseEntity.noContent().build();
@@ -51,18 +96,35 @@ public class PatientCotrollerImpl implements PatientController {
     }
 
     @Override
-    public ResponseEntity<PatientResponse> getPatientByEmail(String email) {
-        return ResponseEntity.ok(patientService.getPatientByEmail(email));
+    public ResponseEntity<ChangeFeedResponse> getChanges(String cursor, int size) {
+        return ResponseEntity.ok(patientChangeFeedService.getChanges(cursor, size));
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> exportPatients(String format) {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        StreamingResponseBody body = out -> patientExportService.exportPatients(exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=patients." + exportFormat.getExtension())
+                .body(body);
+    }
+
+    @Override
+    public ResponseEntity<PatientResponse> getPatientByEmail(String email, WebRequest request) {
+        return conditionalGet(request, () -> patientService.getPatientVersionByEmail(email),
+                () -> patientService.getPatientByEmail(email));
     }
 
     @Override
-    public ResponseEntity<PatientResponse> getPatientByDni(String dni) {
-        return ResponseEntity.ok(patientService.getPatientByDni(dni));
+    public ResponseEntity<PatientResponse> getPatientByDni(String dni, WebRequest request) {
+        return conditionalGet(request, () -> patientService.getPatientVersionByDni(dni),
+                () -> patientService.getPatientByDni(dni));
     }
 
     @Override
-    public ResponseEntity<List<PatientResponse>> getPatientsByName(String name) {
-        var patients = patientService.getPatientsByName(name);
+    public ResponseEntity<Page<PatientResponse>> getPatientsByName(String name, int page, int size) {
+        var patients = patientService.getPatientsByName(name, page, size);
         if (patients.isEmpty())
             return ResponseEntity.noContent().build();
         return ResponseEntity.ok(patients);
@@ -78,4 +140,47 @@ public class PatientCotrollerImpl implements PatientController {
     public ResponseEntity<PatientResponse> updatePatient(UUID id, PatientRequest request) {
         return ResponseEntity.ok(patientService.updatePatient(id, request));
     }
+
+    @Override
+    public ResponseEntity<CacheStatsResponse> getCacheStats() {
+        return ResponseEntity.ok(patientService.getCacheStats());
+    }
+
+    /**
+     * Answers a single patient GET: 304 Not Modified when the client already has the current version,
+     * otherwise the patient with its ETag and Last-Modified headers.
+     * The version is only looked up for conditional requests; the others read the patient at once.
+     */
+    private ResponseEntity<PatientResponse> conditionalGet(WebRequest request,
+                                                           Supplier<PatientVersionResponse> version,
+                                                           Supplier<PatientResponse> patient) {
+        if (isConditional(request)) {
+            PatientVersionResponse current = version.get();
+            if (current.getLastUpdateDate() != null
+                    && request.checkNotModified(eTag(current.getId(), current.getLastUpdateDate()),
+                    lastModified(current.getLastUpdateDate())))
+                return null; // checkNotModified already wrote the 304 response
+        }
+        PatientResponse response = patient.get();
+        if (response.getLastUpdateDate() == null)
+            return ResponseEntity.ok(response);
+        return ResponseEntity.ok()
+                .eTag(eTag(response.getId(), response.getLastUpdateDate()))
+                .lastModified(lastModified(response.getLastUpdateDate()))
+                .body(response);
+    }
+
+    private static boolean isConditional(WebRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    private static String eTag(UUID id, LocalDateTime lastUpdateDate) {
+        long micros = lastUpdateDate.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + lastUpdateDate.getNano() / 1_000;
+        return "\"" + id + "-" + Long.toHexString(micros) + "\"";
+    }
+
+    private static long lastModified(LocalDateTime lastUpdateDate) {
+        return lastUpdateDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
 }
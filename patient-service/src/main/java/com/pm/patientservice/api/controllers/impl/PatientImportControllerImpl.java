@@ -0,0 +1,50 @@
+package com.pm.patientservice.api.controllers.impl;
+
+import com.pm.patientservice.api.controllers.contracts.PatientImportController;
+import com.pm.patientservice.api.models.responses.ImportStatusResponse;
+import com.pm.patientservice.services.contracts.PatientImportService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.UUID;
+
+/**
+ * Implementation of the PatientImportController interface.
+ * This class handles the upload of patient CSV files and reports the progress of their import.
+ *
+ * @author caito
+ *
+ */
+@RestController
+@RequestMapping("/v1/Patients/import")
+@RequiredArgsConstructor
+@Tag(name = "Patient Import API", description = "Controller for importing patients from CSV files")
+public class PatientImportControllerImpl implements PatientImportController {
+    private final PatientImportService patientImportService;
+
+    @Override
+    public ResponseEntity<ImportStatusResponse> importPatients(MultipartFile file) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(patientImportService.startImport(file));
+    }
+
+    @Override
+    public ResponseEntity<ImportStatusResponse> getImportStatus(UUID id) {
+        return ResponseEntity.ok(patientImportService.getImportStatus(id));
+    }
+
+    @Override
+    public ResponseEntity<Resource> getRejectedRows(UUID id) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=rejected-" + id + ".csv")
+                .body(patientImportService.getRejectedRows(id));
+    }
+}
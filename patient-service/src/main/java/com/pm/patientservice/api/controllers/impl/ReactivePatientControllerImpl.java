@@ -0,0 +1,58 @@
+package com.pm.patientservice.api.controllers.impl;
+
+import com.pm.patientservice.api.controllers.contracts.ReactivePatientController;
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.services.contracts.ReactivePatientService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Implementation of the ReactivePatientController interface.
+ * It serves the reads of the patient API without blocking: the request thread is released while
+ * R2DBC runs the query, single patients are written once they arrive and lists are streamed as
+ * newline-delimited JSON, one patient at a time as the client consumes them.
+ * It runs next to PatientCotrollerImpl, which keeps serving the same reads and all the writes.
+ *
+ * @author caito
+ *
+ */
+@RestController
+@ConditionalOnProperty(name = "patient.r2dbc.enabled", havingValue = "true", matchIfMissing = true)
+@RequestMapping("/v1/reactive/Patients")
+@RequiredArgsConstructor
+@Tag(name = "Reactive Patient API", description = "Non-blocking reads of patients")
+public class ReactivePatientControllerImpl implements ReactivePatientController {
+    private final ReactivePatientService reactivePatientService;
+
+    @Override
+    public Mono<PatientResponse> getPatientById(UUID id) {
+        return reactivePatientService.getPatientById(id);
+    }
+
+    @Override
+    public Mono<PatientResponse> getPatientByEmail(String email) {
+        return reactivePatientService.getPatientByEmail(email);
+    }
+
+    @Override
+    public Mono<PatientResponse> getPatientByDni(String dni) {
+        return reactivePatientService.getPatientByDni(dni);
+    }
+
+    @Override
+    public Flux<PatientResponse> getPatients(int page, int size) {
+        return reactivePatientService.getPatients(page, size);
+    }
+
+    @Override
+    public Flux<PatientResponse> getPatientsByName(String name, int page, int size) {
+        return reactivePatientService.getPatientsByName(name, page, size);
+    }
+}
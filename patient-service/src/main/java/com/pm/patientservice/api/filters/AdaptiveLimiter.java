@@ -0,0 +1,111 @@
+package com.pm.patientservice.api.filters;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to the observed latency, in the style of the gradient limiters.
+ * It keeps a slow moving average of the latency as the no-load baseline and a fast one as the
+ * current latency; while the current latency stays close to the baseline the limit grows by
+ * about its square root, and as queueing makes it grow the limit shrinks in proportion
+ * (never below half of it per step). Failed requests cut the limit multiplicatively.
+ * Samples taken while less than half the limit was in use do not grow the limit, so an idle
+ * service does not end up with a limit it never proved it can handle.
+ *
+ * @author caito
+ */
+public class AdaptiveLimiter {
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.9;
+    private static final int LONG_WINDOW = 600;
+    private static final int SHORT_WINDOW = 10;
+
+    @Getter
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile double limit;
+    private double longRtt;
+    private double shortRtt;
+
+    /**
+     * Creates a limiter.
+     *
+     * @param name         the name of the budget, used in metrics and logs
+     * @param initialLimit the limit before any latency is observed
+     * @param minLimit     the lowest limit, always allowed in flight
+     * @param maxLimit     the highest limit
+     */
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Takes a slot if fewer requests than the limit are in flight.
+     *
+     * @return the number of requests in flight including this one, or 0 if the limit is reached
+     */
+    public int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit())
+                return 0;
+            if (inFlight.compareAndSet(current, current + 1))
+                return current + 1;
+        }
+    }
+
+    /**
+     * Frees the slot of a request and adjusts the limit to its latency.
+     *
+     * @param inFlightAtStart the value returned by tryAcquire for the request
+     * @param rttNanos        the time the request took
+     * @param failed          whether the request failed on the server side
+     */
+    public void release(int inFlightAtStart, long rttNanos, boolean failed) {
+        inFlight.decrementAndGet();
+        // a sample is dropped rather than making the request wait for another one to update the limit
+        if (!lock.tryLock())
+            return;
+        try {
+            if (failed) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+                return;
+            }
+            double rtt = Math.max(1, rttNanos);
+            if (longRtt == 0) {
+                longRtt = rtt;
+                shortRtt = rtt;
+                return;
+            }
+            shortRtt += (rtt - shortRtt) / SHORT_WINDOW;
+            longRtt += (rtt - longRtt) / LONG_WINDOW;
+            // lets the baseline follow quickly when latency drops for good
+            if (longRtt > shortRtt * 2)
+                longRtt *= 0.95;
+            if (inFlightAtStart < limit / 2)
+                return;
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
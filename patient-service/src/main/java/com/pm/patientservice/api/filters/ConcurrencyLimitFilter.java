@@ -0,0 +1,101 @@
+package com.pm.patientservice.api.filters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.api.models.responses.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * Sheds the patient requests that exceed the adaptive concurrency limits.
+ * Reads and writes have their own limiter, so a burst of one does not starve the other.
+ * A request over the limit fails at once with 503 Service Unavailable and a Retry-After header
+ * instead of queueing for a database connection; the latency of the admitted requests adjusts
+ * the limits. Reads are the GET requests and the batch lookups, everything else is a write.
+ *
+ * @author caito
+ */
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private final AdaptiveLimiter reads;
+    private final AdaptiveLimiter writes;
+    private final Counter readsRejected;
+    private final Counter writesRejected;
+    private final long retryAfterSeconds;
+    private final ObjectMapper objectMapper;
+
+    public ConcurrencyLimitFilter(AdaptiveLimiter reads, AdaptiveLimiter writes,
+                                  Counter readsRejected, Counter writesRejected,
+                                  long retryAfterSeconds, ObjectMapper objectMapper) {
+        this.reads = reads;
+        this.writes = writes;
+        this.readsRejected = readsRejected;
+        this.writesRejected = writesRejected;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean read = isRead(request);
+        AdaptiveLimiter limiter = read ? reads : writes;
+        int inFlight = limiter.tryAcquire();
+        if (inFlight == 0) {
+            (read ? readsRejected : writesRejected).increment();
+            reject(request, response, limiter);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            limiter.release(inFlight, System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * The long running streams are not limited: their latency says nothing about the load.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.startsWith("/v1/Patients/export") || path.startsWith("/v1/Patients/import");
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method)
+                || ("POST".equals(method) && request.getRequestURI().contains("/v1/Patients/batch/"));
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, AdaptiveLimiter limiter)
+            throws IOException {
+        log.debug("Rejecting {} {}: {} limit of {} reached", request.getMethod(), request.getRequestURI(),
+                limiter.getName(), limiter.getLimit());
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ErrorResponse.builder()
+                .code(status.value())
+                .status(status.getReasonPhrase())
+                .timestamp(LocalDateTime.now())
+                .message("Too many concurrent " + limiter.getName() + " requests, retry later")
+                .method(request.getMethod())
+                .path(request.getRequestURL().toString())
+                .build());
+    }
+}
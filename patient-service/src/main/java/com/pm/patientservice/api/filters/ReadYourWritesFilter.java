@@ -0,0 +1,49 @@
+package com.pm.patientservice.api.filters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pm.patientservice.persistence.routing.RoutingContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Keeps the reads of a client on the primary database for a short window after that client wrote,
+ * so that it reads its own writes even if the replica has not applied them yet.
+ * Clients are identified by a header, or by their address when they do not send it.
+ *
+ * @author caito
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    private final String clientHeader;
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesFilter(String clientHeader, Duration stickyWindow) {
+        this.clientHeader = clientHeader;
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(stickyWindow)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String client = request.getHeader(clientHeader);
+        if (client == null || client.isBlank())
+            client = request.getRemoteAddr();
+        RoutingContext.begin(recentWriters.getIfPresent(client) != null);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (RoutingContext.wrote())
+                recentWriters.put(client, Boolean.TRUE);
+            RoutingContext.clear();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.pm.patientservice.api.models.requests;
+
+import com.pm.patientservice.api.exceptions.customs.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Formats supported by the patient export.
+ * Each format knows the content type and file extension of the exported file.
+ *
+ * @author caito
+ *
+ */
+@Getter
+@AllArgsConstructor
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    /**
+     * Resolves a format from its name, ignoring case.
+     *
+     * @param name the name of the format
+     * @return the export format
+     * @throws BadRequestException if the format is not supported
+     */
+    public static ExportFormat from(String name) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name))
+                return format;
+        }
+        throw new BadRequestException(List.of("Unsupported export format: " + name));
+    }
+}
@@ -0,0 +1,24 @@
+package com.pm.patientservice.api.models.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Response model for a batch lookup of patients.
+ * It contains the patients found, in the order of the requested keys, and the keys
+ * that did not match any patient.
+ *
+ * @author caito
+ *
+ */
+@NoArgsConstructor@AllArgsConstructor
+@Data@Builder
+public class BatchLookupResponse implements Serializable {
+    private List<PatientResponse> patients;
+    private List<String> missing;
+}
@@ -0,0 +1,30 @@
+package com.pm.patientservice.api.models.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Response model for one item of a bulk patient creation.
+ * It tells, by position in the request, whether the patient was created (and its ID)
+ * or rejected (and why).
+ *
+ * @author caito
+ *
+ */
+@NoArgsConstructor@AllArgsConstructor
+@Data@Builder
+public class BulkItemResponse implements Serializable {
+    public static final String CREATED = "CREATED";
+    public static final String REJECTED = "REJECTED";
+
+    private int index;
+    private String status;
+    private UUID id;
+    private List<String> errors;
+}
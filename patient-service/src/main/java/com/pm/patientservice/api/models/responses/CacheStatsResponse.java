@@ -0,0 +1,27 @@
+package com.pm.patientservice.api.models.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Response model for the statistics of the patient cache.
+ * It exposes the counters needed to size the cache: entries, hits, misses and evictions.
+ *
+ * @author caito
+ *
+ */
+@NoArgsConstructor@AllArgsConstructor
+@Data@Builder
+public class CacheStatsResponse implements Serializable {
+    private boolean enabled;
+    private long size;
+    private long maximumSize;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+}
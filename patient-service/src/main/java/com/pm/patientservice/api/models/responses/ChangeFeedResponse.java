@@ -0,0 +1,24 @@
+package com.pm.patientservice.api.models.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Response model for a page of the patient change feed.
+ * The next cursor must be sent back to get the following changes, also when the page is empty.
+ *
+ * @author caito
+ *
+ */
+@NoArgsConstructor@AllArgsConstructor
+@Data@Builder
+public class ChangeFeedResponse implements Serializable {
+    private List<PatientChangeResponse> changes;
+    private boolean hasMore;
+    private String nextCursor;
+}
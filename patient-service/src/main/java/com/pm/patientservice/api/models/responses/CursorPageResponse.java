@@ -0,0 +1,26 @@
+package com.pm.patientservice.api.models.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Response model for a cursor (keyset) based page.
+ * Unlike a Page it carries no total count: it holds the page content, whether more rows follow
+ * and an opaque cursor to request the next page.
+ *
+ * @author caito
+ *
+ */
+@NoArgsConstructor@AllArgsConstructor
+@Data@Builder
+public class CursorPageResponse<T> implements Serializable {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+}
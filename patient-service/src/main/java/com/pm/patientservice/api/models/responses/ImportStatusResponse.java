@@ -0,0 +1,37 @@
+package com.pm.patientservice.api.models.responses;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Response model for the progress of a patient CSV import.
+ * It holds the counters of rows read, inserted, updated and rejected and the current throughput.
+ *
+ * @author caito
+ *
+ */
+@NoArgsConstructor@AllArgsConstructor
+@Data@Builder
+public class ImportStatusResponse implements Serializable {
+    private UUID id;
+    private String status;
+    private String fileName;
+    private long rowsRead;
+    private long rowsAccepted;
+    private long rowsInserted;
+    private long rowsUpdated;
+    private long rowsRejected;
+    private double rowsPerSecond;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
+    private LocalDateTime startedAt;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
+    private LocalDateTime finishedAt;
+    private String error;
+}
@@ -0,0 +1,31 @@
+package com.pm.patientservice.api.models.responses;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Response model for one entry of the patient change feed.
+ * An upserted patient carries its current state; a deleted patient only its ID.
+ *
+ * @author caito
+ *
+ */
+@NoArgsConstructor@AllArgsConstructor
+@Data@Builder
+public class PatientChangeResponse implements Serializable {
+    public static final String UPSERTED = "UPSERTED";
+    public static final String DELETED = "DELETED";
+
+    private String type;
+    private UUID id;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss.SSSSSS")
+    private LocalDateTime changedAt;
+    private PatientResponse patient;
+}
@@ -8,11 +8,13 @@ import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 /**
  * Response model for a patient.
- * This class contains fields for the patient's ID, name, email, address, DNI, and birth date.
+ * This class contains fields for the patient's ID, name, email, address, DNI, birth date
+ * and last update date.
  * It is used to transfer data from the server to the client.
  *
  * @author caito
@@ -29,4 +31,6 @@ public class PatientResponse implements Serializable {
     private String dni;
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy")
     private LocalDate birthDate;
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
+    private LocalDateTime lastUpdateDate;
 }
@@ -0,0 +1,24 @@
+package com.pm.patientservice.api.models.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Version of a patient: its ID and last update date.
+ * It is used to validate conditional requests without loading the whole patient.
+ *
+ * @author caito
+ *
+ */
+@NoArgsConstructor@AllArgsConstructor
+@Data@Builder
+public class PatientVersionResponse implements Serializable {
+    private UUID id;
+    private LocalDateTime lastUpdateDate;
+}
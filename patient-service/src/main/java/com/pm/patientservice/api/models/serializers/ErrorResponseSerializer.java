@@ -0,0 +1,45 @@
+package com.pm.patientservice.api.models.serializers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.pm.patientservice.api.models.responses.ErrorResponse;
+
+import java.io.IOException;
+
+/**
+ * Serializer of ErrorResponse, written for every not found and rejected request.
+ *
+ * @author caito
+ */
+public class ErrorResponseSerializer extends StdSerializer<ErrorResponse> {
+    static final SerializedString CODE = new SerializedString("code");
+    static final SerializedString STATUS = new SerializedString("status");
+    static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+    static final SerializedString METHOD = new SerializedString("method");
+    static final SerializedString PATH = new SerializedString("path");
+    private static final SerializedString MESSAGE = new SerializedString("message");
+
+    public ErrorResponseSerializer() {
+        super(ErrorResponse.class);
+    }
+
+    @Override
+    public void serialize(ErrorResponse error, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(error, 6);
+        gen.writeFieldName(CODE);
+        gen.writeNumber(error.getCode());
+        gen.writeFieldName(STATUS);
+        gen.writeString(error.getStatus());
+        gen.writeFieldName(TIMESTAMP);
+        SerializerHelper.writeDateTime(gen, error.getTimestamp());
+        gen.writeFieldName(MESSAGE);
+        gen.writeString(error.getMessage());
+        gen.writeFieldName(METHOD);
+        gen.writeString(error.getMethod());
+        gen.writeFieldName(PATH);
+        gen.writeString(error.getPath());
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,49 @@
+package com.pm.patientservice.api.models.serializers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.pm.patientservice.api.models.responses.ErrorsResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Serializer of ErrorsResponse, written for every request that fails validation.
+ *
+ * @author caito
+ */
+public class ErrorsResponseSerializer extends StdSerializer<ErrorsResponse> {
+    private static final SerializedString MESSAGES = new SerializedString("messages");
+
+    public ErrorsResponseSerializer() {
+        super(ErrorsResponse.class);
+    }
+
+    @Override
+    public void serialize(ErrorsResponse errors, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(errors, 6);
+        gen.writeFieldName(ErrorResponseSerializer.CODE);
+        gen.writeNumber(errors.getCode());
+        gen.writeFieldName(ErrorResponseSerializer.STATUS);
+        gen.writeString(errors.getStatus());
+        gen.writeFieldName(ErrorResponseSerializer.TIMESTAMP);
+        SerializerHelper.writeDateTime(gen, errors.getTimestamp());
+        gen.writeFieldName(MESSAGES);
+        List<String> messages = errors.getMessages();
+        if (messages == null) {
+            gen.writeNull();
+        } else {
+            gen.writeStartArray(messages, messages.size());
+            for (String message : messages)
+                gen.writeString(message);
+            gen.writeEndArray();
+        }
+        gen.writeFieldName(ErrorResponseSerializer.METHOD);
+        gen.writeString(errors.getMethod());
+        gen.writeFieldName(ErrorResponseSerializer.PATH);
+        gen.writeString(errors.getPath());
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,73 @@
+package com.pm.patientservice.api.models.serializers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import org.springframework.data.web.PagedModel;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Serializer of the page envelope: Spring Data turns every Page returned by a controller into a
+ * PagedModel (PageSerializationMode.VIA_DTO), written as its content and its page metadata.
+ * Patients are handed to PatientResponseSerializer directly; any other content goes through the
+ * serializer Jackson finds for it.
+ *
+ * @author caito
+ */
+@SuppressWarnings("rawtypes")
+public class PagedModelSerializer extends StdSerializer<PagedModel> {
+    private static final SerializedString CONTENT = new SerializedString("content");
+    private static final SerializedString PAGE = new SerializedString("page");
+    private static final SerializedString SIZE = new SerializedString("size");
+    private static final SerializedString NUMBER = new SerializedString("number");
+    private static final SerializedString TOTAL_ELEMENTS = new SerializedString("totalElements");
+    private static final SerializedString TOTAL_PAGES = new SerializedString("totalPages");
+
+    private final PatientResponseSerializer patientSerializer;
+
+    public PagedModelSerializer(PatientResponseSerializer patientSerializer) {
+        super(PagedModel.class);
+        this.patientSerializer = patientSerializer;
+    }
+
+    @Override
+    public void serialize(PagedModel page, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(page, 2);
+        gen.writeFieldName(CONTENT);
+        List<?> content = page.getContent();
+        gen.writeStartArray(content, content.size());
+        for (Object item : content) {
+            if (item instanceof PatientResponse patient) {
+                patientSerializer.serialize(patient, gen, provider);
+            } else if (item == null) {
+                gen.writeNull();
+            } else {
+                JsonSerializer<Object> serializer = provider.findValueSerializer(item.getClass());
+                serializer.serialize(item, gen, provider);
+            }
+        }
+        gen.writeEndArray();
+        PagedModel.PageMetadata metadata = page.getMetadata();
+        gen.writeFieldName(PAGE);
+        if (metadata == null) {
+            gen.writeNull();
+        } else {
+            gen.writeStartObject(metadata, 4);
+            gen.writeFieldName(SIZE);
+            gen.writeNumber(metadata.size());
+            gen.writeFieldName(NUMBER);
+            gen.writeNumber(metadata.number());
+            gen.writeFieldName(TOTAL_ELEMENTS);
+            gen.writeNumber(metadata.totalElements());
+            gen.writeFieldName(TOTAL_PAGES);
+            gen.writeNumber(metadata.totalPages());
+            gen.writeEndObject();
+        }
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,53 @@
+package com.pm.patientservice.api.models.serializers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.pm.patientservice.api.models.responses.PatientResponse;
+
+import java.io.IOException;
+
+/**
+ * Serializer of PatientResponse, the payload of every read.
+ * It writes the fields in declaration order with pre-encoded names, instead of going through
+ * the bean properties and the per-field date formatters found by introspection.
+ *
+ * @author caito
+ */
+public class PatientResponseSerializer extends StdSerializer<PatientResponse> {
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString ADDRESS = new SerializedString("address");
+    private static final SerializedString PHONE = new SerializedString("phone");
+    private static final SerializedString DNI = new SerializedString("dni");
+    private static final SerializedString BIRTH_DATE = new SerializedString("birthDate");
+    private static final SerializedString LAST_UPDATE_DATE = new SerializedString("lastUpdateDate");
+
+    public PatientResponseSerializer() {
+        super(PatientResponse.class);
+    }
+
+    @Override
+    public void serialize(PatientResponse patient, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(patient, 8);
+        gen.writeFieldName(ID);
+        SerializerHelper.writeUuid(gen, patient.getId());
+        gen.writeFieldName(NAME);
+        gen.writeString(patient.getName());
+        gen.writeFieldName(EMAIL);
+        gen.writeString(patient.getEmail());
+        gen.writeFieldName(ADDRESS);
+        gen.writeString(patient.getAddress());
+        gen.writeFieldName(PHONE);
+        gen.writeString(patient.getPhone());
+        gen.writeFieldName(DNI);
+        gen.writeString(patient.getDni());
+        gen.writeFieldName(BIRTH_DATE);
+        SerializerHelper.writeDate(gen, patient.getBirthDate());
+        gen.writeFieldName(LAST_UPDATE_DATE);
+        SerializerHelper.writeDateTime(gen, patient.getLastUpdateDate());
+        gen.writeEndObject();
+    }
+}
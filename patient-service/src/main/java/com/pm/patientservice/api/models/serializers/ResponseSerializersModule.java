@@ -0,0 +1,26 @@
+package com.pm.patientservice.api.models.serializers;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.pm.patientservice.api.models.responses.ErrorResponse;
+import com.pm.patientservice.api.models.responses.ErrorsResponse;
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import org.springframework.data.web.PagedModel;
+
+/**
+ * Jackson module with the hand-written serializers of the hottest responses: patients, pages
+ * and errors. Registered as a bean, it applies to every mapper Spring Boot builds, for JSON as
+ * well as for the binary formats.
+ *
+ * @author caito
+ */
+public class ResponseSerializersModule extends SimpleModule {
+
+    public ResponseSerializersModule() {
+        super("ResponseSerializersModule");
+        PatientResponseSerializer patientSerializer = new PatientResponseSerializer();
+        addSerializer(PatientResponse.class, patientSerializer);
+        addSerializer(PagedModel.class, new PagedModelSerializer(patientSerializer));
+        addSerializer(ErrorResponse.class, new ErrorResponseSerializer());
+        addSerializer(ErrorsResponse.class, new ErrorsResponseSerializer());
+    }
+}
@@ -0,0 +1,120 @@
+package com.pm.patientservice.api.models.serializers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+/**
+ * Writes the values shared by the response serializers without building intermediate strings:
+ * ids and dates are formatted into a small char array handed straight to the generator.
+ * The output is the one of the Jackson defaults and the @JsonFormat patterns of the responses.
+ *
+ * @author caito
+ */
+final class SerializerHelper {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
+    private SerializerHelper() {
+    }
+
+    /**
+     * Writes an id as 16 bytes in the binary formats and as its canonical text otherwise,
+     * like the UUIDSerializer of Jackson.
+     */
+    static void writeUuid(JsonGenerator gen, UUID id) throws IOException {
+        if (id == null) {
+            gen.writeNull();
+            return;
+        }
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        if (gen.canWriteBinaryNatively()) {
+            byte[] bytes = new byte[16];
+            for (int i = 0; i < 8; i++) {
+                bytes[i] = (byte) (msb >>> (56 - 8 * i));
+                bytes[8 + i] = (byte) (lsb >>> (56 - 8 * i));
+            }
+            gen.writeBinary(bytes);
+            return;
+        }
+        char[] chars = new char[36];
+        hex(chars, 0, msb >>> 32, 8);
+        chars[8] = '-';
+        hex(chars, 9, msb >>> 16, 4);
+        chars[13] = '-';
+        hex(chars, 14, msb, 4);
+        chars[18] = '-';
+        hex(chars, 19, lsb >>> 48, 4);
+        chars[23] = '-';
+        hex(chars, 24, lsb, 12);
+        gen.writeString(chars, 0, 36);
+    }
+
+    /**
+     * Writes a date as dd-MM-yyyy.
+     */
+    static void writeDate(JsonGenerator gen, LocalDate date) throws IOException {
+        if (date == null) {
+            gen.writeNull();
+            return;
+        }
+        if (date.getYear() < 0 || date.getYear() > 9999) {
+            gen.writeString(DATE.format(date));
+            return;
+        }
+        char[] chars = new char[10];
+        date(chars, date);
+        gen.writeString(chars, 0, 10);
+    }
+
+    /**
+     * Writes a date and time as dd-MM-yyyy HH:mm:ss.
+     */
+    static void writeDateTime(JsonGenerator gen, LocalDateTime dateTime) throws IOException {
+        if (dateTime == null) {
+            gen.writeNull();
+            return;
+        }
+        if (dateTime.getYear() < 0 || dateTime.getYear() > 9999) {
+            gen.writeString(DATE_TIME.format(dateTime));
+            return;
+        }
+        char[] chars = new char[19];
+        date(chars, dateTime.toLocalDate());
+        chars[10] = ' ';
+        digits(chars, 11, dateTime.getHour(), 2);
+        chars[13] = ':';
+        digits(chars, 14, dateTime.getMinute(), 2);
+        chars[16] = ':';
+        digits(chars, 17, dateTime.getSecond(), 2);
+        gen.writeString(chars, 0, 19);
+    }
+
+    private static void date(char[] chars, LocalDate date) {
+        digits(chars, 0, date.getDayOfMonth(), 2);
+        chars[2] = '-';
+        digits(chars, 3, date.getMonthValue(), 2);
+        chars[5] = '-';
+        digits(chars, 6, date.getYear(), 4);
+    }
+
+    private static void digits(char[] chars, int offset, int value, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static void hex(char[] chars, int offset, long value, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            chars[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
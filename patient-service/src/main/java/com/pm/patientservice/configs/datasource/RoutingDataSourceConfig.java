@@ -0,0 +1,90 @@
+package com.pm.patientservice.configs.datasource;
+
+import com.pm.patientservice.api.filters.ReadYourWritesFilter;
+import com.pm.patientservice.persistence.routing.ReadWriteRoutingDataSource;
+import com.pm.patientservice.persistence.routing.ReplicaLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Read/write splitting, enabled with patient.datasource.replica.enabled.
+ * The primary pool is configured with the spring.datasource.* properties and the replica pool
+ * with patient.datasource.replica.*; read-only transactions go to the replica while its lag is
+ * below patient.datasource.replica.max-lag and the client did not write in the last
+ * patient.datasource.replica.sticky-window.
+ *
+ * @author caito
+ */
+@Configuration
+@ConditionalOnProperty(name = "patient.datasource.replica.enabled", havingValue = "true")
+public class RoutingDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("patient.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${patient.datasource.replica.url}") String url,
+                                              @Value("${patient.datasource.replica.username:}") String username,
+                                              @Value("${patient.datasource.replica.password:}") String password,
+                                              @Value("${patient.datasource.replica.driver-class-name:}") String driver) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .driverClassName(driver.isEmpty() ? null : driver)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica,
+                                               @Value("${patient.datasource.replica.lag-query:SHOW REPLICA STATUS}") String lagQuery,
+                                               @Value("${patient.datasource.replica.max-lag:5s}") Duration maxLag,
+                                               @Value("${patient.datasource.replica.check-interval:1s}") Duration checkInterval,
+                                               MeterRegistry meterRegistry) {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, lagQuery, maxLag, checkInterval);
+        Gauge.builder("patient.datasource.replica.lag", monitor, ReplicaLagMonitor::getLagSeconds)
+                .description("Replication lag of the read replica")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        return monitor;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaLagMonitor replicaLagMonitor) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica, replicaLagMonitor));
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${patient.datasource.replica.client-header:X-Client-Id}") String clientHeader,
+            @Value("${patient.datasource.replica.sticky-window:5s}") Duration stickyWindow) {
+        return new ReadYourWritesFilter(clientHeader, stickyWindow);
+    }
+}
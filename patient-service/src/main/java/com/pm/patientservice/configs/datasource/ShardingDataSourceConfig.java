@@ -0,0 +1,163 @@
+package com.pm.patientservice.configs.datasource;
+
+import com.pm.patientservice.persistence.sharding.PatientShardingAspect;
+import com.pm.patientservice.persistence.sharding.PatientShards;
+import com.pm.patientservice.persistence.sharding.ShardDirectory;
+import com.pm.patientservice.persistence.sharding.ShardRing;
+import com.pm.patientservice.persistence.sharding.ShardRoutingDataSource;
+import com.pm.patientservice.persistence.sharding.ShardSchemaInitializer;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.jpa.boot.spi.JpaSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Horizontal sharding of the patients, enabled with patient.sharding.enabled.
+ * The patients are partitioned across the databases of patient.sharding.shards by the hash of
+ * their DNI on a consistent-hashing ring; the repositories are routed to the shards by
+ * PatientShardingAspect and the schema is applied to every shard. spring.datasource.* is not
+ * used, and it cannot be combined with the read replica (patient.datasource.replica.enabled)
+ * nor with the reactive API (patient.r2dbc.enabled), whose connections are not routed.
+ * The bulk creation and the CSV import write the patients of every shard in a transaction of
+ * their own, and the export reads the shards one after the other.
+ *
+ * @author caito
+ */
+@Configuration
+@ConditionalOnProperty(name = "patient.sharding.enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+@Slf4j
+public class ShardingDataSourceConfig {
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private ExecutorService scatterExecutor;
+
+    @Bean
+    public ShardRing shardRing(ShardingProperties properties) {
+        return new ShardRing(properties.getShards().stream().map(ShardingProperties.Shard::getName).toList(),
+                properties.getVirtualNodes());
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(ShardingProperties properties,
+                                                         @Value("${patient.datasource.replica.enabled:false}") boolean replica,
+                                                         @Value("${patient.r2dbc.enabled:true}") boolean reactive) {
+        if (replica)
+            throw new IllegalStateException("patient.sharding.enabled cannot be combined with patient.datasource.replica.enabled");
+        if (reactive)
+            throw new IllegalStateException("patient.sharding.enabled cannot be combined with patient.r2dbc.enabled");
+        LinkedHashMap<String, DataSource> shards = new LinkedHashMap<>();
+        for (ShardingProperties.Shard shard : properties.getShards()) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .driverClassName(shard.getDriverClassName())
+                    .build();
+            dataSource.setPoolName(shard.getName());
+            dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+            pools.add(dataSource);
+            shards.put(shard.getName(), dataSource);
+        }
+        if (shards.isEmpty())
+            throw new IllegalStateException("patient.sharding.shards must list at least one shard");
+        log.info("Patients sharded across {}", shards.keySet());
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public ShardDirectory shardDirectory(ShardRoutingDataSource shardRoutingDataSource, ShardRing shardRing) {
+        return new ShardDirectory(shardRoutingDataSource.getShard(shardRing.getShards().get(0)));
+    }
+
+    /**
+     * The transaction manager is looked up lazily, as the aspect depends on this bean.
+     */
+    @Bean
+    public PatientShards patientShards(ShardRing shardRing, ShardDirectory shardDirectory,
+                                       ObjectProvider<PlatformTransactionManager> transactionManager) {
+        return new PatientShards(shardRing, shardDirectory,
+                () -> new TransactionTemplate(transactionManager.getObject()));
+    }
+
+    @Bean
+    public ShardSchemaInitializer shardSchemaInitializer() {
+        return new ShardSchemaInitializer();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardSchemaCustomizer(ShardSchemaInitializer shardSchemaInitializer) {
+        return properties -> properties.put(JpaSettings.INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> List.of(shardSchemaInitializer));
+    }
+
+    /**
+     * Applies the schema to the shards other than the default one and creates the directory,
+     * once every singleton, the entity manager factory included, is created.
+     */
+    @Bean
+    public SmartInitializingSingleton shardSchemaInitialization(ShardSchemaInitializer shardSchemaInitializer,
+                                                                ShardDirectory shardDirectory, ShardRing shardRing) {
+        return () -> {
+            List<String> shards = shardRing.getShards();
+            shardSchemaInitializer.initialize(shards.subList(1, shards.size()));
+            shardDirectory.createTable();
+        };
+    }
+
+    /**
+     * The transaction manager is looked up lazily: aspects are created while the bean post
+     * processors are, too early for the entity manager factory.
+     */
+    @Bean
+    public PatientShardingAspect patientShardingAspect(ShardRing shardRing, ShardDirectory shardDirectory,
+                                                       PatientShards patientShards,
+                                                       ObjectProvider<PlatformTransactionManager> transactionManager,
+                                                       ShardingProperties properties) {
+        scatterExecutor = Executors.newFixedThreadPool(shardRing.getShards().size() * properties.getThreadsPerShard(),
+                new CustomizableThreadFactory("shard-scatter-"));
+        return new PatientShardingAspect(shardRing, shardDirectory, patientShards,
+                () -> {
+                    TransactionTemplate transaction = new TransactionTemplate(transactionManager.getObject());
+                    transaction.setReadOnly(true);
+                    return transaction;
+                },
+                () -> new TransactionTemplate(transactionManager.getObject()),
+                scatterExecutor, properties.getScatterTimeout());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scatterExecutor != null)
+            scatterExecutor.shutdownNow();
+        pools.forEach(HikariDataSource::close);
+    }
+}
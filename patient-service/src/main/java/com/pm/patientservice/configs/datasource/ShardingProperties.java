@@ -0,0 +1,39 @@
+package com.pm.patientservice.configs.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The patient.sharding.* properties: the shards the patients are partitioned across.
+ * The first shard is the default one, which also holds the directory and the tables that
+ * are not sharded. Shards can be appended to the list, the ring then moves about 1/N of the
+ * DNIs to the new shard; the patients already saved keep being found through the directory.
+ *
+ * @author caito
+ */
+@ConfigurationProperties("patient.sharding")
+@Getter@Setter
+public class ShardingProperties {
+    private boolean enabled;
+    private int virtualNodes = 128;
+    private int threadsPerShard = 4;
+    private Duration scatterTimeout = Duration.ofSeconds(10);
+    /** The patients an offset page can reach: every shard reads all of them up to the end of the page. */
+    private long maxPageDepth = 10000;
+    private List<Shard> shards = new ArrayList<>();
+
+    @Getter@Setter
+    public static class Shard {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+        private int maximumPoolSize = 10;
+    }
+}
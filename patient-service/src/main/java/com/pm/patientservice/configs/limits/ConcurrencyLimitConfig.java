@@ -0,0 +1,72 @@
+package com.pm.patientservice.configs.limits;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.api.filters.AdaptiveLimiter;
+import com.pm.patientservice.api.filters.ConcurrencyLimitFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * Load shedding of the patient endpoints, enabled with patient.concurrency-limit.enabled.
+ * Reads and writes get their own adaptive limiter, bounded by the
+ * patient.concurrency-limit.reads.* and patient.concurrency-limit.writes.* properties; the limits,
+ * the requests in flight and the rejected requests of each are exported as metrics.
+ *
+ * @author caito
+ */
+@Configuration
+@ConditionalOnProperty(name = "patient.concurrency-limit.enabled", havingValue = "true")
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            MeterRegistry meterRegistry,
+            ObjectMapper objectMapper,
+            @Value("${patient.concurrency-limit.reads.initial-limit:20}") int readsInitial,
+            @Value("${patient.concurrency-limit.reads.min-limit:2}") int readsMin,
+            @Value("${patient.concurrency-limit.reads.max-limit:100}") int readsMax,
+            @Value("${patient.concurrency-limit.writes.initial-limit:5}") int writesInitial,
+            @Value("${patient.concurrency-limit.writes.min-limit:1}") int writesMin,
+            @Value("${patient.concurrency-limit.writes.max-limit:20}") int writesMax,
+            @Value("${patient.concurrency-limit.retry-after:1s}") Duration retryAfter) {
+        AdaptiveLimiter reads = limiter("reads", readsInitial, readsMin, readsMax, meterRegistry);
+        AdaptiveLimiter writes = limiter("writes", writesInitial, writesMin, writesMax, meterRegistry);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(reads, writes,
+                rejected("reads", meterRegistry), rejected("writes", meterRegistry),
+                Math.max(1, retryAfter.toSeconds()), objectMapper);
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/v1/Patients/*");
+        // sheds the load before any other filter does work for the request
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    private static AdaptiveLimiter limiter(String name, int initial, int min, int max, MeterRegistry meterRegistry) {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(name, initial, min, max);
+        Gauge.builder("patient.concurrency.limit", limiter, AdaptiveLimiter::getLimit)
+                .tag("budget", name)
+                .description("Current concurrency limit of the patient endpoints")
+                .register(meterRegistry);
+        Gauge.builder("patient.concurrency.in.flight", limiter, AdaptiveLimiter::getInFlight)
+                .tag("budget", name)
+                .description("Patient requests in flight")
+                .register(meterRegistry);
+        return limiter;
+    }
+
+    private static Counter rejected(String name, MeterRegistry meterRegistry) {
+        return Counter.builder("patient.concurrency.rejected")
+                .tag("budget", name)
+                .description("Patient requests rejected with 503 because the concurrency limit was reached")
+                .register(meterRegistry);
+    }
+}
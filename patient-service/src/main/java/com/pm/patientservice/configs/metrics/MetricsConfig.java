@@ -0,0 +1,23 @@
+package com.pm.patientservice.configs.metrics;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics configuration.
+ * Endpoint timers (http.server.requests), repository timers (spring.data.repository.invocations),
+ * Hibernate statistics and Hikari pool metrics are registered by Spring Boot; this class adds the
+ * aspect that records the service methods annotated with {@code @Timed}.
+ *
+ * @author caito
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
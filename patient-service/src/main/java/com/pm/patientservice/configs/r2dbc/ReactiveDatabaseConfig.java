@@ -0,0 +1,60 @@
+package com.pm.patientservice.configs.r2dbc;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+
+/**
+ * R2DBC access for the reactive read API, configured with the patient.r2dbc.* properties,
+ * which point at the same database as spring.datasource.*.
+ * The connection pool is deliberately not exposed as a bean: Spring Boot stops configuring the
+ * JDBC DataSource, and with it JPA, as soon as a ConnectionFactory bean exists, and it would also
+ * register a reactive transaction manager in place of the JPA one. The reactive API only reads,
+ * so it needs neither.
+ * The reactive API is left out with patient.r2dbc.enabled=false, which sharding requires:
+ * its connections go to one database only.
+ *
+ * @author caito
+ */
+@Configuration
+@ConditionalOnProperty(name = "patient.r2dbc.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class ReactiveDatabaseConfig {
+    private ConnectionPool connectionPool;
+
+    @Bean
+    public DatabaseClient databaseClient(@Value("${patient.r2dbc.url}") String url,
+                                         @Value("${patient.r2dbc.username:}") String username,
+                                         @Value("${patient.r2dbc.password:}") String password,
+                                         @Value("${patient.r2dbc.pool.initial-size:5}") int initialSize,
+                                         @Value("${patient.r2dbc.pool.max-size:20}") int maxSize,
+                                         @Value("${patient.r2dbc.pool.max-idle-time:30m}") Duration maxIdleTime) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("reactive")
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                .maxIdleTime(maxIdleTime)
+                .build());
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (connectionPool != null)
+            connectionPool.dispose();
+    }
+}
@@ -0,0 +1,41 @@
+package com.pm.patientservice.configs.threads;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+
+/**
+ * Reports the thread model the requests run on.
+ * Virtual threads are switched on with spring.threads.virtual.enabled (the virtual-threads profile),
+ * which Spring Boot only honours on Java 21 or newer; the build targets Java 17, so the switch is
+ * checked at runtime and a warning tells when it had no effect.
+ * The blocking path of a request was audited for pinning: the application code guards its shared
+ * state with java.util.concurrent locks and atomics instead of synchronized, HikariCP (5.1+) and
+ * MySQL Connector/J (9.0+) no longer hold monitors around I/O, and Logback 1.5 appends under
+ * ReentrantLock. As virtual threads no longer cap the requests in flight at the Tomcat pool size,
+ * the Hikari pool is protected by the concurrency limit filter (patient.concurrency-limit.*).
+ *
+ * @author caito
+ */
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class VirtualThreadsConfig {
+    private final Environment environment;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportThreadModel() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("Requests and background tasks run on virtual threads");
+        } else if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("Virtual threads need Java 21 or newer, running on Java {}: requests keep running on "
+                    + "platform threads", Runtime.version().feature());
+        } else {
+            log.info("Requests and background tasks run on platform threads");
+        }
+    }
+}
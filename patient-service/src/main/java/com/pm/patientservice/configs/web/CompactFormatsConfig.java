@@ -0,0 +1,37 @@
+package com.pm.patientservice.configs.web;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Compact binary encodings of the API, negotiated with the Accept and Content-Type headers:
+ * CBOR (application/cbor) and Smile (application/x-jackson-smile) next to the default JSON.
+ * The mappers are built from the Jackson2ObjectMapperBuilder of Spring Boot, so they get the
+ * same modules and settings as the JSON one, including the PagedModel representation of pages;
+ * ids are written as 16 raw bytes instead of 36 characters.
+ * Responses are also compressed with gzip above a size threshold when the client sends
+ * Accept-Encoding: gzip, with the server.compression.* properties.
+ *
+ * @author caito
+ */
+@Configuration
+public class CompactFormatsConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        // pages repeat the same values (dates, street names), which Smile can back-reference
+        SmileFactory factory = SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build();
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(factory).build());
+    }
+}
@@ -0,0 +1,22 @@
+package com.pm.patientservice.configs.web;
+
+import com.fasterxml.jackson.databind.Module;
+import com.pm.patientservice.api.models.serializers.ResponseSerializersModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the hand-written response serializers: Spring Boot adds every Module bean to the
+ * Jackson2ObjectMapperBuilder, so the application ObjectMapper and the CBOR and Smile ones use them
+ * and the existing endpoints need no change.
+ *
+ * @author caito
+ */
+@Configuration
+public class SerializersConfig {
+
+    @Bean
+    public Module responseSerializersModule() {
+        return new ResponseSerializersModule();
+    }
+}
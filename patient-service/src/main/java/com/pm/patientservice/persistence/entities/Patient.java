@@ -1,9 +1,12 @@
 package com.pm.patientservice.persistence.entities;
 
+import com.pm.patientservice.persistence.generators.TimeOrderedUuid;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -13,27 +16,40 @@ import java.util.UUID;
  * Entity class representing a Patient in the system.
  * This class is mapped to the "patients" table in the database.
  * It contains fields for the patient's ID and other relevant information.
+ * The ID is a time-ordered UUID stored as BINARY(16), see db/mysql/patients-id-binary16.sql
+ * for the migration of existing tables.
  *
  * @author caito
  *
  */
 @Entity
-@Table(name = "patients")
+@Table(name = "patients", uniqueConstraints = {
+        @UniqueConstraint(name = Patient.EMAIL_CONSTRAINT, columnNames = "email"),
+        @UniqueConstraint(name = Patient.DNI_CONSTRAINT, columnNames = "dni")
+}, indexes = {
+        @Index(name = "idx_patients_registration_date_id", columnList = "registration_date, id"),
+        @Index(name = "idx_patients_last_update_date_id", columnList = "last_update_date, id")
+})
 @NoArgsConstructor@AllArgsConstructor
 @Getter@Setter@Builder
 public class Patient {
+    public static final String EMAIL_CONSTRAINT = "uk_patients_email";
+    public static final String DNI_CONSTRAINT = "uk_patients_dni";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @TimeOrderedUuid
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
     private UUID id;
     @Column(nullable = false, length = 75)
     private String name;
-    @Column(nullable = false, unique = true, length = 100)
+    @Column(nullable = false, length = 100)
     private String email;
     @Column(length = 250)
     private String address;
     @Column(length = 75)
     private String phone;
-    @Column(nullable = false, unique = true, length = 9)
+    @Column(nullable = false, length = 9)
     private String dni;
     private LocalDate birthDate;
     @CreationTimestamp
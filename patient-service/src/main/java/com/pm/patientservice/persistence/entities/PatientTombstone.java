@@ -0,0 +1,47 @@
+package com.pm.patientservice.persistence.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Entity class recording the deletion of a patient, so that the change feed can report it.
+ * This class is mapped to the "patient_tombstones" table in the database.
+ *
+ * @author caito
+ *
+ */
+@Entity
+@Table(name = "patient_tombstones", indexes = {
+        @Index(name = "idx_patient_tombstones_deleted_date_patient_id", columnList = "deleted_date, patient_id")
+})
+@NoArgsConstructor@AllArgsConstructor
+@Getter@Setter@Builder
+public class PatientTombstone implements Persistable<UUID> {
+    @Id
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    private UUID patientId;
+    @CreationTimestamp
+    private LocalDateTime deletedDate;
+
+    @Override
+    public UUID getId() {
+        return patientId;
+    }
+
+    /**
+     * The ID is assigned, so a tombstone is new until its deletion date was generated;
+     * this lets save() insert it without selecting it first.
+     */
+    @Override
+    public boolean isNew() {
+        return deletedDate == null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.pm.patientservice.persistence.generators;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered UUIDs following the version 7 layout of RFC 9562:
+ * 48 bits of Unix epoch milliseconds, the version, a 12 bit counter and 62 random bits.
+ * The counter makes the IDs generated in the same millisecond increase as well, so new rows
+ * are always appended at the end of the primary key index instead of on random pages.
+ * The IDs are not meant to be unguessable (ThreadLocalRandom, creation time is readable).
+ *
+ * @author caito
+ */
+public class UuidV7Generator implements BeforeExecutionGenerator {
+    /** Last generated timestamp (milliseconds << 12) plus counter. */
+    private static final AtomicLong LAST = new AtomicLong();
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        return next();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+
+    /**
+     * Returns a new UUID, greater than every UUID previously returned by this JVM
+     * as long as the clock does not go back.
+     *
+     * @return the generated UUID
+     */
+    public static UUID next() {
+        long now = System.currentTimeMillis() << 12;
+        long last;
+        long next;
+        do {
+            last = LAST.get();
+            // on counter overflow, or when the clock goes back, the timestamp moves ahead of the clock
+            next = Math.max(now, last + 1);
+        } while (!LAST.compareAndSet(last, next));
+        long msb = (next >>> 12) << 16 | 0x7000L | (next & 0xFFFL);
+        long lsb = ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
@@ -0,0 +1,13 @@
+package com.pm.patientservice.persistence.projections;
+
+/**
+ * Projection of a Patient holding only its unique keys, email and DNI.
+ * It is used to check the uniqueness of many patients with a single query.
+ *
+ * @author caito
+ *
+ */
+public interface PatientKeyView {
+    String getEmail();
+    String getDni();
+}
@@ -0,0 +1,15 @@
+package com.pm.patientservice.persistence.projections;
+
+import java.util.UUID;
+
+/**
+ * Projection of a Patient holding only its ID and name.
+ * It is used to build the in-memory name search index without loading whole entities.
+ *
+ * @author caito
+ *
+ */
+public interface PatientNameView {
+    UUID getId();
+    String getName();
+}
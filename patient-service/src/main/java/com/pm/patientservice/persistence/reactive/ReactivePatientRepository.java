@@ -0,0 +1,108 @@
+package com.pm.patientservice.persistence.reactive;
+
+import com.pm.patientservice.persistence.entities.Patient;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Non-blocking read access to the patients table through R2DBC.
+ * Rows are read into Patient objects (not managed by JPA) so that they go through the same
+ * PatientMapper as the servlet API. Queries returning many rows are streamed: rows are
+ * fetched as the subscriber requests them instead of being collected into a list.
+ * The IDs are bound and read as the 16 bytes Hibernate stores them in.
+ *
+ * @author caito
+ *
+ */
+@Repository
+@ConditionalOnProperty(name = "patient.r2dbc.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class ReactivePatientRepository {
+    private static final String SELECT = "SELECT id, name, email, address, phone, dni, birth_date, " +
+            "registration_date, last_update_date FROM patients ";
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<Patient> findById(UUID id) {
+        return databaseClient.sql(SELECT + "WHERE id = :id")
+                .bind("id", toBytes(id))
+                .map(ReactivePatientRepository::toPatient)
+                .one();
+    }
+
+    public Mono<Patient> findByEmail(String email) {
+        return databaseClient.sql(SELECT + "WHERE email = :email")
+                .bind("email", email)
+                .map(ReactivePatientRepository::toPatient)
+                .one();
+    }
+
+    public Mono<Patient> findByDni(String dni) {
+        return databaseClient.sql(SELECT + "WHERE dni = :dni")
+                .bind("dni", dni)
+                .map(ReactivePatientRepository::toPatient)
+                .one();
+    }
+
+    public Flux<Patient> findByIdIn(Collection<UUID> ids) {
+        return databaseClient.sql(SELECT + "WHERE id IN (:ids)")
+                .bind("ids", ids.stream().map(ReactivePatientRepository::toBytes).toList())
+                .map(ReactivePatientRepository::toPatient)
+                .all();
+    }
+
+    public Flux<Patient> findPage(long offset, int limit) {
+        return databaseClient.sql(SELECT + "ORDER BY registration_date, id LIMIT :limit OFFSET :offset")
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(ReactivePatientRepository::toPatient)
+                .all();
+    }
+
+    public Flux<Patient> findByNameContaining(String name, long offset, int limit) {
+        return databaseClient.sql(SELECT + "WHERE LOWER(name) LIKE LOWER(CONCAT('%', :name, '%')) " +
+                        "ORDER BY name, id LIMIT :limit OFFSET :offset")
+                .bind("name", name)
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(ReactivePatientRepository::toPatient)
+                .all();
+    }
+
+    private static Patient toPatient(Readable row) {
+        return Patient.builder()
+                .id(toUuid(row.get("id", byte[].class)))
+                .name(row.get("name", String.class))
+                .email(row.get("email", String.class))
+                .address(row.get("address", String.class))
+                .phone(row.get("phone", String.class))
+                .dni(row.get("dni", String.class))
+                .birthDate(row.get("birth_date", LocalDate.class))
+                .registrationDate(row.get("registration_date", LocalDateTime.class))
+                .lastUpdateDate(row.get("last_update_date", LocalDateTime.class))
+                .build();
+    }
+
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    private static UUID toUuid(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
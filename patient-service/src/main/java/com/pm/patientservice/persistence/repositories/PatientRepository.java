@@ -1,29 +1,88 @@
 package com.pm.patientservice.persistence.repositories;
 
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.api.models.responses.PatientVersionResponse;
 import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.projections.PatientKeyView;
+import com.pm.patientservice.persistence.projections.PatientNameView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing Patient entities.
  * This interface extends JpaRepository to provide CRUD operations and custom query methods.
- * It includes a method to check if a patient exists by their email address.
+ * It includes queries that check the unique email and DNI in a single round trip,
+ * keyset (seek) queries ordered by registration date and ID that page without OFFSET or COUNT,
+ * and read queries that select straight into PatientResponse, bypassing entity hydration,
+ * or only into its version to validate conditional requests.
+ * The single patient and version lookups are read-only transactions of their own, as the service calls them
+ * outside of any transaction.
  *
  * @author caito
  *
  */
 public interface PatientRepository extends JpaRepository<Patient, UUID> {
-    boolean existsByEmail(String email);
-    boolean existsByDni(String dni);
+    String SELECT_RESPONSE = "SELECT new com.pm.patientservice.api.models.responses.PatientResponse(" +
+            "p.id, p.name, p.email, p.address, p.phone, p.dni, p.birthDate, p.lastUpdateDate) FROM Patient p ";
+    String SELECT_VERSION = "SELECT new com.pm.patientservice.api.models.responses.PatientVersionResponse(" +
+            "p.id, p.lastUpdateDate) FROM Patient p ";
+
     Optional<Patient> findByEmail(String email);
     Optional<Patient> findByDni(String dni);
-    List<Patient> findByNameContainingIgnoreCase(String name);
-    @Query("SELECT COUNT(p) > 0 FROM Patient p WHERE p.email = :email AND p.id <> :id")
-    boolean findEmailIsUsed(String email, UUID id);
-    @Query("SELECT COUNT(p) > 0 FROM Patient p WHERE p.dni = :dni AND p.id <> :id")
-    Boolean findDniIsUsed(String dni, UUID id);
+    List<Patient> findByDniIn(Collection<String> dnis);
+    @Transactional(readOnly = true)
+    @Query(SELECT_RESPONSE + "WHERE p.id = :id")
+    Optional<PatientResponse> findResponseById(UUID id);
+    @Transactional(readOnly = true)
+    @Query(SELECT_RESPONSE + "WHERE p.email = :email")
+    Optional<PatientResponse> findResponseByEmail(String email);
+    @Transactional(readOnly = true)
+    @Query(SELECT_RESPONSE + "WHERE p.dni = :dni")
+    Optional<PatientResponse> findResponseByDni(String dni);
+    @Transactional(readOnly = true)
+    @Query(SELECT_VERSION + "WHERE p.id = :id")
+    Optional<PatientVersionResponse> findVersionById(UUID id);
+    @Transactional(readOnly = true)
+    @Query(SELECT_VERSION + "WHERE p.email = :email")
+    Optional<PatientVersionResponse> findVersionByEmail(String email);
+    @Transactional(readOnly = true)
+    @Query(SELECT_VERSION + "WHERE p.dni = :dni")
+    Optional<PatientVersionResponse> findVersionByDni(String dni);
+    @Query(SELECT_RESPONSE + "WHERE p.id IN :ids")
+    List<PatientResponse> findResponsesByIdIn(Collection<UUID> ids);
+    @Query(SELECT_RESPONSE + "WHERE p.lastUpdateDate < :until AND (p.lastUpdateDate > :date " +
+            "OR (p.lastUpdateDate = :date AND p.id > :id)) ORDER BY p.lastUpdateDate, p.id")
+    List<PatientResponse> findChangedAfter(LocalDateTime date, UUID id, LocalDateTime until, Pageable pageable);
+    @Query(SELECT_RESPONSE + "WHERE p.dni IN :dnis")
+    List<PatientResponse> findResponsesByDniIn(Collection<String> dnis);
+    @Query(value = SELECT_RESPONSE, countQuery = "SELECT COUNT(p) FROM Patient p")
+    Page<PatientResponse> findResponsePage(Pageable pageable);
+    @Query(value = SELECT_RESPONSE + "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))",
+            countQuery = "SELECT COUNT(p) FROM Patient p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    Page<PatientResponse> findResponsesByNameContaining(String name, Pageable pageable);
+    @Query("SELECT p.email AS email, p.dni AS dni FROM Patient p WHERE p.email = :email OR p.dni = :dni")
+    List<PatientKeyView> findKeysByEmailOrDni(String email, String dni);
+    @Query("SELECT p.email AS email, p.dni AS dni FROM Patient p WHERE (p.email = :email OR p.dni = :dni) AND p.id <> :id")
+    List<PatientKeyView> findKeysUsedByOthers(String email, String dni, UUID id);
+    @Query("SELECT p FROM Patient p ORDER BY p.registrationDate, p.id")
+    List<Patient> findFirstSeekPage(Pageable pageable);
+    @Query("SELECT p FROM Patient p WHERE p.registrationDate > :date OR (p.registrationDate = :date AND p.id > :id) " +
+            "ORDER BY p.registrationDate, p.id")
+    List<Patient> findSeekPageAfter(LocalDateTime date, UUID id, Pageable pageable);
+    @Query("SELECT p.id AS id, p.name AS name FROM Patient p")
+    Stream<PatientNameView> streamNames();
+    @Query("SELECT p.email AS email, p.dni AS dni FROM Patient p")
+    Stream<PatientKeyView> streamKeys();
+    @Query("SELECT p.email AS email, p.dni AS dni FROM Patient p WHERE p.email IN :emails OR p.dni IN :dnis")
+    List<PatientKeyView> findKeysByEmailsOrDnis(Collection<String> emails, Collection<String> dnis);
 }
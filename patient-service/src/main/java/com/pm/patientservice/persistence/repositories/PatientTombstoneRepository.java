@@ -0,0 +1,23 @@
+package com.pm.patientservice.persistence.repositories;
+
+import com.pm.patientservice.persistence.entities.PatientTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository interface for managing PatientTombstone entities.
+ * Tombstones are read in (deletion date, patient ID) order, seeking past a cursor.
+ *
+ * @author caito
+ *
+ */
+public interface PatientTombstoneRepository extends JpaRepository<PatientTombstone, UUID> {
+    @Query("SELECT t FROM PatientTombstone t WHERE t.deletedDate < :until AND (t.deletedDate > :date " +
+            "OR (t.deletedDate = :date AND t.patientId > :id)) ORDER BY t.deletedDate, t.patientId")
+    List<PatientTombstone> findDeletedAfter(LocalDateTime date, UUID id, LocalDateTime until, Pageable pageable);
+}
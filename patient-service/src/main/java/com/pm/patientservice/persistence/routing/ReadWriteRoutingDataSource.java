@@ -0,0 +1,43 @@
+package com.pm.patientservice.persistence.routing;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Data source that sends read-only transactions to the replica and everything else to the primary.
+ * Reads stay on the primary while the replica lags too much or the current client wrote recently.
+ * It must be wrapped in a LazyConnectionDataSourceProxy, so that the connection is obtained once
+ * the read-only flag of the transaction is known.
+ *
+ * @author caito
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        initialize();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive())
+                RoutingContext.markWrite();
+            return PRIMARY;
+        }
+        if (RoutingContext.isPrimaryForced() || !replicaLagMonitor.isReplicaUsable())
+            return PRIMARY;
+        RoutingContext.markReplicaRead();
+        return REPLICA;
+    }
+}
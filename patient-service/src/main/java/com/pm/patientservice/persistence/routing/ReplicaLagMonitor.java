@@ -0,0 +1,101 @@
+package com.pm.patientservice.persistence.routing;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically measures the replication lag of the replica and tells whether reads can use it.
+ * The lag query must return the lag in seconds: either a Seconds_Behind_Source column
+ * (SHOW REPLICA STATUS on MySQL) or a single numeric column. No row, a null lag or a failing
+ * query make the replica unusable until the next successful check.
+ *
+ * @author caito
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+    private static final String LAG_COLUMN = "Seconds_Behind_Source";
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final Duration maxLag;
+    private final Duration checkInterval;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean replicaUsable;
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, Duration maxLag, Duration checkInterval) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+    }
+
+    public void start() {
+        check();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, checkInterval.toMillis(), checkInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+
+    /**
+     * Measures the lag now and updates the state of the replica.
+     */
+    public void check() {
+        Double lag;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            lag = readLag(resultSet);
+        } catch (SQLException e) {
+            log.warn("Replica lag check failed: {}", e.getMessage());
+            lag = null;
+        }
+        boolean usable = lag != null && lag <= maxLag.toMillis() / 1000.0;
+        if (usable != replicaUsable)
+            log.warn("Replica {} for reads (lag {} s, maximum {})", usable ? "enabled" : "disabled", lag, maxLag);
+        lagSeconds = lag == null ? Double.NaN : lag;
+        replicaUsable = usable;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * Returns the last measured lag in seconds, NaN when unknown.
+     */
+    public double getLagSeconds() {
+        return lagSeconds;
+    }
+
+    private static Double readLag(ResultSet resultSet) throws SQLException {
+        if (!resultSet.next())
+            return null;
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int column = 1;
+        for (int i = 1; i <= metaData.getColumnCount(); i++)
+            if (LAG_COLUMN.equalsIgnoreCase(metaData.getColumnLabel(i)))
+                column = i;
+        Object value = resultSet.getObject(column);
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+}
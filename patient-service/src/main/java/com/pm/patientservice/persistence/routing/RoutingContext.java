@@ -0,0 +1,93 @@
+package com.pm.patientservice.persistence.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread routing state of the current request: whether its reads must go to the primary
+ * (read-your-writes) and whether it has written to the primary. It also tells, request or not,
+ * whether the thread read from the replica, whose data may miss the latest writes.
+ *
+ * @author caito
+ */
+public final class RoutingContext {
+    private static final ThreadLocal<RoutingContext> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+
+    private final boolean primaryForced;
+    private boolean wrote;
+
+    private RoutingContext(boolean primaryForced) {
+        this.primaryForced = primaryForced;
+    }
+
+    /**
+     * Starts the routing context of the current thread.
+     *
+     * @param primaryForced whether read-only transactions must use the primary as well
+     */
+    public static void begin(boolean primaryForced) {
+        CURRENT.set(new RoutingContext(primaryForced));
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs an action whose read-only transactions must use the primary as well, whatever the
+     * client, because it cannot tolerate the lag of the replica. The transactions must start
+     * inside the action.
+     *
+     * @param action the action to run
+     * @return the result of the action
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        RoutingContext previous = CURRENT.get();
+        RoutingContext context = new RoutingContext(true);
+        CURRENT.set(context);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                previous.wrote |= context.wrote;
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static boolean isPrimaryForced() {
+        RoutingContext context = CURRENT.get();
+        return context != null && context.primaryForced;
+    }
+
+    static void markWrite() {
+        RoutingContext context = CURRENT.get();
+        if (context != null)
+            context.wrote = true;
+    }
+
+    public static boolean wrote() {
+        RoutingContext context = CURRENT.get();
+        return context != null && context.wrote;
+    }
+
+    /**
+     * Forgets the replica reads of the current thread, before a read whose origin matters.
+     */
+    public static void resetReplicaRead() {
+        REPLICA_READ.remove();
+    }
+
+    static void markReplicaRead() {
+        REPLICA_READ.set(Boolean.TRUE);
+    }
+
+    /**
+     * Whether the current thread took a replica connection since the last resetReplicaRead.
+     */
+    public static boolean readFromReplica() {
+        return REPLICA_READ.get() != null;
+    }
+}
@@ -0,0 +1,404 @@
+package com.pm.patientservice.persistence.sharding;
+
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.entities.PatientTombstone;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Routes the calls of the patient repositories to the shards.
+ * The lookups by DNI go to the shard the ring places the DNI on, and those by ID or email to the
+ * shard the directory records; the batch lookups are split per shard and the uniqueness checks
+ * are answered by the directory, which holds the keys of every shard. Paging, name searches,
+ * seek pages and the change feed are scattered to every shard in parallel and their results
+ * merged in the order of the query: by ID for the offset pages, which each shard reads up to
+ * the end of the requested page (the service bounds that depth), and by the order of the query
+ * for the others.
+ * New patients are saved on the shard of their DNI and registered in the directory, changed ones
+ * on the shard they live on. A transaction is bound to one shard: loading or saving patients of
+ * several shards at once fails, the callers split them with PatientShards and use a transaction
+ * per shard. Likewise the streams of every patient are read one shard at a time by their callers.
+ * The calls made with a shard pinned to the thread, like the ones of the scatter workers,
+ * go to that shard unchanged.
+ *
+ * @author caito
+ */
+@Aspect
+public class PatientShardingAspect {
+    /** Same order as the BINARY(16) ids in the database: unsigned bytes. */
+    static final Comparator<UUID> ID_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+    private static final Comparator<PatientResponse> RESPONSE_ID_ORDER =
+            Comparator.comparing(PatientResponse::getId, ID_ORDER);
+    private static final Comparator<Patient> SEEK_ORDER = Comparator
+            .comparing(Patient::getRegistrationDate)
+            .thenComparing(Patient::getId, ID_ORDER);
+    private static final Comparator<PatientResponse> CHANGE_ORDER = Comparator
+            .comparing(PatientResponse::getLastUpdateDate)
+            .thenComparing(PatientResponse::getId, ID_ORDER);
+    private static final Comparator<PatientTombstone> TOMBSTONE_ORDER = Comparator
+            .comparing(PatientTombstone::getDeletedDate)
+            .thenComparing(PatientTombstone::getPatientId, ID_ORDER);
+
+    private final ShardRing ring;
+    private final ShardDirectory directory;
+    private final PatientShards shards;
+    private final Supplier<TransactionTemplate> readOnlyTransaction;
+    private final Supplier<TransactionTemplate> writeTransaction;
+    private final ExecutorService executor;
+    private final long timeoutNanos;
+
+    /**
+     * Creates the aspect.
+     *
+     * @param readOnlyTransaction the read-only transactions of the scatter workers
+     * @param writeTransaction    the transactions of the writes split per shard
+     * @param executor            the threads querying the shards in parallel
+     * @param timeout             the time a scatter waits for all the shards
+     */
+    public PatientShardingAspect(ShardRing ring, ShardDirectory directory, PatientShards shards,
+                                 Supplier<TransactionTemplate> readOnlyTransaction,
+                                 Supplier<TransactionTemplate> writeTransaction,
+                                 ExecutorService executor, Duration timeout) {
+        this.ring = ring;
+        this.directory = directory;
+        this.shards = shards;
+        this.readOnlyTransaction = readOnlyTransaction;
+        this.writeTransaction = writeTransaction;
+        this.executor = executor;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Around("target(com.pm.patientservice.persistence.repositories.PatientRepository)")
+    @SuppressWarnings("unchecked")
+    public Object routePatients(ProceedingJoinPoint pjp) throws Throwable {
+        if (ShardContext.pinned() != null)
+            return pjp.proceed();
+        Object[] args = pjp.getArgs();
+        return switch (pjp.getSignature().getName()) {
+            case "findByDni", "findResponseByDni", "findVersionByDni" -> byDni(pjp, (String) args[0]);
+            case "findById", "existsById", "findResponseById", "findVersionById", "deleteById" ->
+                    onShardOf(pjp, directory.shardOfId((UUID) args[0]));
+            case "findByEmail", "findResponseByEmail", "findVersionByEmail" ->
+                    onShardOf(pjp, directory.shardOfEmail((String) args[0]));
+            case "findByDniIn" -> loadByDnis(pjp, (Collection<String>) args[0]);
+            case "findResponsesByIdIn" -> responsesByIds(pjp, (Collection<UUID>) args[0]);
+            case "findResponsesByDniIn" -> responsesByDnis(pjp, (Collection<String>) args[0]);
+            case "findKeysByEmailOrDni" -> directory.findKeys(keys(args[0]), keys(args[1]), null);
+            case "findKeysUsedByOthers" -> directory.findKeys(keys(args[0]), keys(args[1]), (UUID) args[2]);
+            case "findKeysByEmailsOrDnis" ->
+                    directory.findKeys((Collection<String>) args[0], (Collection<String>) args[1], null);
+            case "findResponsePage", "findResponsesByNameContaining" -> page(pjp, args);
+            case "findFirstSeekPage", "findSeekPageAfter" -> merge(pjp, SEEK_ORDER);
+            case "findChangedAfter" -> merge(pjp, CHANGE_ORDER);
+            case "streamNames", "streamKeys" -> stream(pjp);
+            case "count" -> args.length == 0 ? count(pjp) : pjp.proceed();
+            case "findAll" -> args.length == 0 ? all(pjp) : pjp.proceed();
+            case "save", "saveAndFlush" -> save(pjp, (Patient) args[0]);
+            case "saveAll", "saveAllAndFlush" -> saveAll(pjp, (Iterable<Patient>) args[0]);
+            case "delete" -> delete(pjp, (Patient) args[0]);
+            case "deleteAll", "deleteAllInBatch" -> args.length == 0 ? deleteAll(pjp) : pjp.proceed();
+            default -> pjp.proceed();
+        };
+    }
+
+    @Around("target(com.pm.patientservice.persistence.repositories.PatientTombstoneRepository) "
+            + "&& execution(* findDeletedAfter(..))")
+    public Object routeTombstones(ProceedingJoinPoint pjp) throws Throwable {
+        if (ShardContext.pinned() != null)
+            return pjp.proceed();
+        return merge(pjp, TOMBSTONE_ORDER);
+    }
+
+    /**
+     * Looks a DNI up on the shard of the ring, then on the shard of the directory if it differs:
+     * a patient stays on the shard of the DNI it was created with.
+     */
+    private Object byDni(ProceedingJoinPoint pjp, String dni) throws Throwable {
+        String shard = ring.shardFor(dni);
+        Object result = on(shard, pjp, pjp.getArgs());
+        if (!isEmpty(result))
+            return result;
+        Optional<String> moved = directory.shardOfDni(dni).filter(other -> !other.equals(shard));
+        return moved.isPresent() ? on(moved.get(), pjp, pjp.getArgs()) : result;
+    }
+
+    private Object onShardOf(ProceedingJoinPoint pjp, Optional<String> shard) throws Throwable {
+        if (shard.isPresent())
+            return on(shard.get(), pjp, pjp.getArgs());
+        Class<?> type = ((MethodSignature) pjp.getSignature()).getReturnType();
+        if (type == Optional.class)
+            return Optional.empty();
+        if (type == boolean.class)
+            return false;
+        return null;
+    }
+
+    /**
+     * Loads managed patients in the current transaction, so they must all live on one shard.
+     */
+    private Object loadByDnis(ProceedingJoinPoint pjp, Collection<String> dnis) throws Throwable {
+        Map<String, List<String>> groups = shards.groupByDni(dnis, dni -> dni);
+        if (groups.isEmpty())
+            return List.of();
+        if (groups.size() > 1)
+            throw new IllegalStateException("The patients of " + dnis.size() + " DNIs live on "
+                    + groups.size() + " shards and cannot be loaded in one transaction");
+        Map.Entry<String, List<String>> group = groups.entrySet().iterator().next();
+        return on(group.getKey(), pjp, new Object[]{group.getValue()});
+    }
+
+    private Object responsesByIds(ProceedingJoinPoint pjp, Collection<UUID> ids) {
+        Map<UUID, String> shards = directory.shardsOfIds(ids);
+        Map<String, List<UUID>> groups = group(shards.keySet(), shards::get);
+        return concat(scatter(groups.keySet(), false, shard -> proceed(pjp, groups.get(shard))));
+    }
+
+    private Object responsesByDnis(ProceedingJoinPoint pjp, Collection<String> dnis) {
+        Map<String, List<String>> groups = group(dnis, ring::shardFor);
+        List<PatientResponse> found = concat(scatter(groups.keySet(), false, shard -> proceed(pjp, groups.get(shard))));
+        Set<String> missing = new HashSet<>(dnis);
+        found.forEach(patient -> missing.remove(patient.getDni()));
+        Map<String, String> moved = directory.shardsOfDnis(missing);
+        moved.entrySet().removeIf(entry -> entry.getValue().equals(ring.shardFor(entry.getKey())));
+        if (moved.isEmpty())
+            return found;
+        Map<String, List<String>> movedGroups = group(moved.keySet(), moved::get);
+        List<PatientResponse> all = new ArrayList<>(found);
+        all.addAll(concat(scatter(movedGroups.keySet(), false, shard -> proceed(pjp, movedGroups.get(shard)))));
+        return all;
+    }
+
+    /**
+     * Reads the offset page from every shard as the first offset + size patients in ID order,
+     * then keeps the requested slice of the merged patients.
+     */
+    private Object page(ProceedingJoinPoint pjp, Object[] args) {
+        Pageable pageable = (Pageable) args[args.length - 1];
+        Object[] shardArgs = args.clone();
+        if (pageable.isPaged()) {
+            long depth = pageable.getOffset() + pageable.getPageSize();
+            if (depth > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("The page ends past patient " + Integer.MAX_VALUE);
+            shardArgs[args.length - 1] = PageRequest.of(0, (int) depth, Sort.by("id"));
+        }
+        List<Page<PatientResponse>> pages = scatter(ring.getShards(), false, shard -> proceed(pjp, shardArgs));
+        long total = pages.stream().mapToLong(Page::getTotalElements).sum();
+        Stream<PatientResponse> merged = pages.stream().flatMap(page -> page.getContent().stream())
+                .sorted(RESPONSE_ID_ORDER);
+        if (pageable.isPaged())
+            merged = merged.skip(pageable.getOffset()).limit(pageable.getPageSize());
+        return new PageImpl<>(merged.toList(), pageable, total);
+    }
+
+    /**
+     * Reads a keyset page from every shard, each one being at most the size of the page,
+     * and keeps the first ones of the merged rows.
+     */
+    private <T> Object merge(ProceedingJoinPoint pjp, Comparator<T> order) {
+        Object[] args = pjp.getArgs();
+        Pageable pageable = (Pageable) args[args.length - 1];
+        List<List<T>> rows = scatter(ring.getShards(), false, shard -> proceed(pjp, args));
+        Stream<T> merged = rows.stream().flatMap(List::stream).sorted(order);
+        return (pageable.isPaged() ? merged.limit(pageable.getPageSize()) : merged).toList();
+    }
+
+    /**
+     * Rejects a stream over every shard, which could only be merged by holding the rows of every
+     * shard in memory; the callers stream the shards one after the other, each pinned in its own
+     * transaction.
+     */
+    private Object stream(ProceedingJoinPoint pjp) {
+        throw new IllegalStateException("The patients live on " + ring.getShards().size() + " shards and "
+                + pjp.getSignature().getName() + " must read them one shard at a time");
+    }
+
+    private Object count(ProceedingJoinPoint pjp) {
+        List<Long> counts = scatter(ring.getShards(), false, shard -> proceed(pjp, pjp.getArgs()));
+        return counts.stream().mapToLong(Long::longValue).sum();
+    }
+
+    private Object all(ProceedingJoinPoint pjp) {
+        return concat(scatter(ring.getShards(), false, shard -> proceed(pjp, pjp.getArgs())));
+    }
+
+    private Object save(ProceedingJoinPoint pjp, Patient patient) throws Throwable {
+        boolean created = patient.getId() == null;
+        String shard = shardOf(patient);
+        Object saved = on(shard, pjp, pjp.getArgs());
+        track(shard, created, patient);
+        return saved;
+    }
+
+    /**
+     * Saves patients in the current transaction, so they must all live on one shard: a write
+     * split over transactions of several shards could not be rolled back as a whole.
+     */
+    private Object saveAll(ProceedingJoinPoint pjp, Iterable<Patient> patients) throws Throwable {
+        List<Patient> list = new ArrayList<>();
+        patients.forEach(list::add);
+        Map<Patient, Boolean> created = new IdentityHashMap<>();
+        list.forEach(patient -> created.put(patient, patient.getId() == null));
+        Map<String, List<Patient>> groups = group(list, this::shardOf);
+        if (groups.isEmpty())
+            return List.of();
+        if (groups.size() > 1)
+            throw new IllegalStateException("The " + list.size() + " patients live on " + groups.size()
+                    + " shards and cannot be saved in one transaction");
+        String shard = groups.keySet().iterator().next();
+        Object saved = on(shard, pjp, new Object[]{list});
+        list.forEach(patient -> track(shard, created.get(patient), patient));
+        return saved;
+    }
+
+    private Object delete(ProceedingJoinPoint pjp, Patient patient) throws Throwable {
+        if (patient.getId() == null)
+            return pjp.proceed();
+        Object result = on(shardOf(patient), pjp, pjp.getArgs());
+        directory.removeAfterCommit(patient.getId());
+        return result;
+    }
+
+    private Object deleteAll(ProceedingJoinPoint pjp) {
+        scatter(ring.getShards(), true, shard -> proceed(pjp, pjp.getArgs()));
+        directory.clear();
+        return null;
+    }
+
+    /**
+     * The shard a patient is saved on: the one it lives on, or the one of its DNI if it is new.
+     */
+    private String shardOf(Patient patient) {
+        if (patient.getId() != null) {
+            Optional<String> shard = directory.shardOfId(patient.getId());
+            if (shard.isPresent())
+                return shard.get();
+        }
+        return ring.shardFor(patient.getDni());
+    }
+
+    private void track(String shard, boolean created, Patient patient) {
+        if (created)
+            directory.register(patient.getId(), patient.getEmail(), patient.getDni(), shard);
+        else
+            directory.update(patient.getId(), patient.getEmail(), patient.getDni(), shard);
+    }
+
+    /**
+     * Runs the call on a shard, in the current transaction that is then bound to the shard.
+     */
+    private Object on(String shard, ProceedingJoinPoint pjp, Object[] args) throws Throwable {
+        ShardContext.bindTransaction(shard);
+        String previous = ShardContext.pin(shard);
+        try {
+            return pjp.proceed(args);
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    /**
+     * Runs a query on some shards in parallel, each one in a transaction of its own on a worker,
+     * and waits for all of them.
+     *
+     * @param shards the shards to query
+     * @param write  whether the transactions write
+     * @param query  the query, called with the shard pinned to the worker
+     * @return the results of the shards, in the order of the shards
+     * @throws QueryTimeoutException if the shards do not all answer within the timeout
+     */
+    private <T> List<T> scatter(Collection<String> shards, boolean write, Function<String, T> query) {
+        TransactionTemplate transaction = (write ? writeTransaction : readOnlyTransaction).get();
+        List<CompletableFuture<T>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(
+                        () -> ShardContext.call(shard, () -> transaction.execute(status -> query.apply(shard))), executor))
+                .toList();
+        long deadline = System.nanoTime() + timeoutNanos;
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<T> future : futures)
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shards", e);
+        } catch (TimeoutException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new QueryTimeoutException("The shards did not answer within "
+                    + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime)
+                throw runtime;
+            if (e.getCause() instanceof Error error)
+                throw error;
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Proceeds with other arguments, from any thread: the join point is cloned for the call.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T proceed(ProceedingJoinPoint pjp, Object... args) {
+        try {
+            return (T) pjp.proceed(args);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <V> Map<String, List<V>> group(Collection<V> values, Function<V, String> shardOf) {
+        Map<String, List<V>> groups = new LinkedHashMap<>();
+        for (V value : values)
+            groups.computeIfAbsent(shardOf.apply(value), shard -> new ArrayList<>()).add(value);
+        return groups;
+    }
+
+    private static <T> List<T> concat(List<? extends Collection<T>> parts) {
+        List<T> all = new ArrayList<>();
+        parts.forEach(all::addAll);
+        return all;
+    }
+
+    private static List<String> keys(Object key) {
+        return key == null ? List.of() : List.of((String) key);
+    }
+
+    private static boolean isEmpty(Object result) {
+        return result == null || (result instanceof Optional<?> optional && optional.isEmpty());
+    }
+}
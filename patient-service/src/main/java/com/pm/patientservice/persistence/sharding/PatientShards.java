@@ -0,0 +1,71 @@
+package com.pm.patientservice.persistence.sharding;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The shards of the patients, for the services that read or write many patients at once.
+ * A transaction is bound to one shard, so those services split their work per shard: a patient
+ * lives on the shard the directory records for its DNI, or else on the shard the ring places
+ * the DNI on, which is where a new patient is saved.
+ *
+ * @author caito
+ */
+public class PatientShards {
+    private final ShardRing ring;
+    private final ShardDirectory directory;
+    private final Supplier<TransactionTemplate> transaction;
+
+    /**
+     * Creates the shards.
+     *
+     * @param transaction the transactions of the writes split per shard
+     */
+    public PatientShards(ShardRing ring, ShardDirectory directory, Supplier<TransactionTemplate> transaction) {
+        this.ring = ring;
+        this.directory = directory;
+        this.transaction = transaction;
+    }
+
+    public List<String> getShards() {
+        return ring.getShards();
+    }
+
+    /**
+     * Groups items by the shard of their DNI.
+     *
+     * @param items the items to group
+     * @param dniOf the DNI of an item
+     * @return the items of every shard, in the order of the items
+     */
+    public <T> Map<String, List<T>> groupByDni(Collection<T> items, Function<T, String> dniOf) {
+        Map<String, String> registered = directory.shardsOfDnis(items.stream().map(dniOf).toList());
+        Map<String, List<T>> groups = new LinkedHashMap<>();
+        for (T item : items) {
+            String dni = dniOf.apply(item);
+            String shard = registered.getOrDefault(dni, ring.shardFor(dni));
+            groups.computeIfAbsent(shard, key -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * Runs the writes of the patients of one shard in a new transaction, committed on its own
+     * whatever the transaction of the caller does.
+     *
+     * @param writes the writes, whose repository calls bind the transaction to the shard
+     */
+    public void write(Runnable writes) {
+        TransactionTemplate template = transaction.get();
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.executeWithoutResult(status -> writes.run());
+    }
+}
@@ -0,0 +1,101 @@
+package com.pm.patientservice.persistence.sharding;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread works on.
+ * A shard is pinned to the thread around the repository calls routed to it, and a transaction
+ * stays on the shard of its first connection until it completes: a transaction cannot span
+ * shards, so using another shard in it fails instead of silently reading the wrong database.
+ *
+ * @author caito
+ */
+public final class ShardContext {
+    private static final ThreadLocal<String> PINNED = new ThreadLocal<>();
+    private static final Object TRANSACTION_KEY = new Object();
+
+    private ShardContext() {
+    }
+
+    /**
+     * Runs an action on a shard.
+     *
+     * @param shard  the shard to pin to the current thread
+     * @param action the action, whose connections are taken from the shard
+     * @return the result of the action
+     */
+    public static <T> T call(String shard, Supplier<T> action) {
+        String previous = pin(shard);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Pins a shard to the current thread, to be undone with restore.
+     *
+     * @return the shard pinned before, or null
+     */
+    public static String pin(String shard) {
+        String previous = PINNED.get();
+        PINNED.set(shard);
+        return previous;
+    }
+
+    public static void restore(String previous) {
+        if (previous == null)
+            PINNED.remove();
+        else
+            PINNED.set(previous);
+    }
+
+    /**
+     * The shard pinned to the current thread, or null.
+     */
+    public static String pinned() {
+        return PINNED.get();
+    }
+
+    /**
+     * The shard pinned to the current thread, or else the shard of the current transaction, or null.
+     */
+    public static String current() {
+        String shard = PINNED.get();
+        return shard != null ? shard : transactionShard();
+    }
+
+    /**
+     * Binds the current transaction, if any, to a shard.
+     *
+     * @param shard the shard the transaction is about to use
+     * @throws IllegalStateException if the transaction already uses another shard
+     */
+    public static void bindTransaction(String shard) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+        String bound = (String) TransactionSynchronizationManager.getResource(TRANSACTION_KEY);
+        if (bound == null) {
+            TransactionSynchronizationManager.bindResource(TRANSACTION_KEY, shard);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_KEY);
+                }
+            });
+        } else if (!bound.equals(shard)) {
+            throw new IllegalStateException("The transaction uses shard " + bound + " and cannot use shard " + shard
+                    + " as well: patients of several shards cannot be changed in one transaction");
+        }
+    }
+
+    private static String transactionShard() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return null;
+        return (String) TransactionSynchronizationManager.getResource(TRANSACTION_KEY);
+    }
+}
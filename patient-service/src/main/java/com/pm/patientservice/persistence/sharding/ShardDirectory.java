@@ -0,0 +1,256 @@
+package com.pm.patientservice.persistence.sharding;
+
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.projections.PatientKeyView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Global directory of the sharded patients: the shard, email and DNI of every patient ID.
+ * It lives on the first shard, outside of the sharded tables, and is what keeps the email and
+ * DNI unique across the shards (its unique constraints reject a key used on another shard)
+ * and routes the lookups by ID and email, which the ring cannot place.
+ * Its statements run outside of the patient transactions, as those are bound to the shard of
+ * the patient: an entry is written once the patient is saved, and is undone if the patient
+ * transaction then rolls back, or removed once the deletion of the patient commits.
+ *
+ * @author caito
+ */
+@Slf4j
+public class ShardDirectory {
+    private static final String TABLE = "patient_directory";
+    private static final String EMAIL_CONSTRAINT = "uk_patient_directory_email";
+    private static final String DNI_CONSTRAINT = "uk_patient_directory_dni";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Creates the directory.
+     *
+     * @param dataSource the data source of the shard holding the directory, not the routing one
+     */
+    public ShardDirectory(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /**
+     * Creates the directory table if it does not exist yet.
+     */
+    public void createTable() {
+        jdbcTemplate.getJdbcOperations().execute("CREATE TABLE IF NOT EXISTS " + TABLE + " ("
+                + "id BINARY(16) NOT NULL PRIMARY KEY, "
+                + "email VARCHAR(100) NOT NULL, "
+                + "dni VARCHAR(9) NOT NULL, "
+                + "shard VARCHAR(50) NOT NULL, "
+                + "CONSTRAINT " + EMAIL_CONSTRAINT + " UNIQUE (email), "
+                + "CONSTRAINT " + DNI_CONSTRAINT + " UNIQUE (dni))");
+    }
+
+    public Optional<String> shardOfId(UUID id) {
+        return shardWhere("id = :key", toBytes(id));
+    }
+
+    public Optional<String> shardOfEmail(String email) {
+        return shardWhere("email = :key", email);
+    }
+
+    public Optional<String> shardOfDni(String dni) {
+        return shardWhere("dni = :key", dni);
+    }
+
+    /**
+     * Finds the shards of many patients, the unknown IDs are left out.
+     */
+    public Map<UUID, String> shardsOfIds(Collection<UUID> ids) {
+        Map<UUID, String> shards = new HashMap<>();
+        if (ids.isEmpty())
+            return shards;
+        jdbcTemplate.query("SELECT id, shard FROM " + TABLE + " WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids.stream().map(ShardDirectory::toBytes).toList()),
+                row -> {
+                    shards.put(toUuid(row.getBytes(1)), row.getString(2));
+                });
+        return shards;
+    }
+
+    /**
+     * Finds the shards of many patients by DNI, the unknown DNIs are left out.
+     */
+    public Map<String, String> shardsOfDnis(Collection<String> dnis) {
+        Map<String, String> shards = new HashMap<>();
+        if (dnis.isEmpty())
+            return shards;
+        jdbcTemplate.query("SELECT dni, shard FROM " + TABLE + " WHERE dni IN (:dnis)",
+                new MapSqlParameterSource("dnis", dnis),
+                row -> {
+                    shards.put(row.getString(1), row.getString(2));
+                });
+        return shards;
+    }
+
+    /**
+     * Finds the keys used by the patients of every shard among some emails and DNIs.
+     *
+     * @param emails     the emails to look for
+     * @param dnis       the DNIs to look for
+     * @param excludedId the patient whose keys are ignored, or null
+     * @return the email and DNI of every patient using any of the keys
+     */
+    public List<PatientKeyView> findKeys(Collection<String> emails, Collection<String> dnis, UUID excludedId) {
+        List<String> conditions = new ArrayList<>();
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        if (!emails.isEmpty()) {
+            conditions.add("email IN (:emails)");
+            parameters.addValue("emails", emails);
+        }
+        if (!dnis.isEmpty()) {
+            conditions.add("dni IN (:dnis)");
+            parameters.addValue("dnis", dnis);
+        }
+        if (conditions.isEmpty())
+            return List.of();
+        String sql = "SELECT email, dni FROM " + TABLE + " WHERE (" + String.join(" OR ", conditions) + ")";
+        if (excludedId != null) {
+            sql += " AND id <> :id";
+            parameters.addValue("id", toBytes(excludedId));
+        }
+        return jdbcTemplate.query(sql, parameters, (row, n) -> new Key(row.getString(1), row.getString(2)));
+    }
+
+    /**
+     * Registers a patient just saved on a shard, undone if the current transaction rolls back.
+     *
+     * @throws DataIntegrityViolationException naming the patient unique constraint of the key
+     *                                         that another patient already uses
+     */
+    public void register(UUID id, String email, String dni, String shard) {
+        try {
+            jdbcTemplate.update("INSERT INTO " + TABLE + " (id, email, dni, shard) VALUES (:id, :email, :dni, :shard)",
+                    new MapSqlParameterSource("id", toBytes(id)).addValue("email", email).addValue("dni", dni)
+                            .addValue("shard", shard));
+        } catch (DuplicateKeyException e) {
+            throw duplicate(e, email, dni, id);
+        }
+        afterRollback(() -> remove(id));
+    }
+
+    /**
+     * Updates the keys of a patient just saved on a shard, restored if the current transaction
+     * rolls back. A patient missing from the directory is registered.
+     */
+    public void update(UUID id, String email, String dni, String shard) {
+        List<PatientKeyView> previous = jdbcTemplate.query("SELECT email, dni FROM " + TABLE + " WHERE id = :id",
+                new MapSqlParameterSource("id", toBytes(id)), (row, n) -> new Key(row.getString(1), row.getString(2)));
+        if (previous.isEmpty()) {
+            register(id, email, dni, shard);
+            return;
+        }
+        PatientKeyView old = previous.get(0);
+        if (old.getEmail().equals(email) && old.getDni().equals(dni))
+            return;
+        try {
+            setKeys(id, email, dni);
+        } catch (DuplicateKeyException e) {
+            throw duplicate(e, email, dni, id);
+        }
+        afterRollback(() -> setKeys(id, old.getEmail(), old.getDni()));
+    }
+
+    /**
+     * Removes a patient once the current transaction commits, or at once without a transaction.
+     */
+    public void removeAfterCommit(UUID id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remove(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remove(id);
+            }
+        });
+    }
+
+    /**
+     * Removes every patient, for the deletions spanning all the shards.
+     */
+    public void clear() {
+        jdbcTemplate.getJdbcOperations().update("DELETE FROM " + TABLE);
+    }
+
+    private void remove(UUID id) {
+        jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE id = :id", new MapSqlParameterSource("id", toBytes(id)));
+    }
+
+    private void setKeys(UUID id, String email, String dni) {
+        jdbcTemplate.update("UPDATE " + TABLE + " SET email = :email, dni = :dni WHERE id = :id",
+                new MapSqlParameterSource("id", toBytes(id)).addValue("email", email).addValue("dni", dni));
+    }
+
+    private Optional<String> shardWhere(String condition, Object key) {
+        if (key == null)
+            return Optional.empty();
+        return jdbcTemplate.query("SELECT shard FROM " + TABLE + " WHERE " + condition,
+                new MapSqlParameterSource("key", key), (row, n) -> row.getString(1)).stream().findFirst();
+    }
+
+    /**
+     * Names the patient unique constraint of the duplicated key, so that the service reports it
+     * as it does for a patient duplicated on the same shard.
+     */
+    private DataIntegrityViolationException duplicate(DuplicateKeyException e, String email, String dni, UUID id) {
+        boolean emailUsed = !findKeys(List.of(email), List.of(), id).isEmpty();
+        String constraint = emailUsed ? Patient.EMAIL_CONSTRAINT : Patient.DNI_CONSTRAINT;
+        log.debug("Patient {} rejected by the directory: {} already used", id, emailUsed ? "email" : "DNI");
+        return new DataIntegrityViolationException("Duplicate entry for key " + constraint, e);
+    }
+
+    private void afterRollback(Runnable compensation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED)
+                    compensation.run();
+            }
+        });
+    }
+
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+
+    private static UUID toUuid(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private record Key(String email, String dni) implements PatientKeyView {
+        @Override
+        public String getEmail() {
+            return email;
+        }
+
+        @Override
+        public String getDni() {
+            return dni;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.pm.patientservice.persistence.sharding;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hashing ring that places patients on shards by their DNI.
+ * Every shard owns many points of the ring (virtual nodes) and a DNI belongs to the shard of the
+ * first point at or after its hash, so the DNIs spread evenly and adding a shard only moves the
+ * DNIs that now fall on its points, about 1/N of them, all onto the new shard.
+ *
+ * @author caito
+ */
+public class ShardRing {
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final List<String> shards;
+
+    /**
+     * Creates the ring.
+     *
+     * @param shards       the names of the shards, the first one also holds the directory
+     * @param virtualNodes the number of points of every shard on the ring
+     */
+    public ShardRing(List<String> shards, int virtualNodes) {
+        if (shards.isEmpty())
+            throw new IllegalArgumentException("At least one shard is required");
+        this.shards = List.copyOf(shards);
+        for (String shard : shards) {
+            for (int i = 0; i < virtualNodes; i++)
+                ring.putIfAbsent(hash(shard + "#" + i), shard);
+        }
+    }
+
+    /**
+     * Finds the shard a key belongs to.
+     *
+     * @param key the DNI of a patient
+     * @return the name of the shard
+     */
+    public String shardFor(String key) {
+        Map.Entry<Long, String> point = ring.ceilingEntry(hash(key));
+        return (point == null ? ring.firstEntry() : point).getValue();
+    }
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    /**
+     * FNV-1a over the characters of the key, finished with the MurmurHash3 mix
+     * so that close keys land far apart on the ring.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,52 @@
+package com.pm.patientservice.persistence.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Data source that takes the connections from the shard of the current thread or transaction,
+ * and from the first shard when there is none (startup, the tables that are not sharded).
+ * The shard of the first connection of a transaction is bound to it, see ShardContext.
+ * It must be wrapped in a LazyConnectionDataSourceProxy, so that the connection is obtained once
+ * the repository call has chosen the shard.
+ *
+ * @author caito
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    private final Map<String, DataSource> shards;
+    private final String defaultShard;
+
+    /**
+     * Creates the data source.
+     *
+     * @param shards the data source of every shard, by name, the first one being the default
+     */
+    public ShardRoutingDataSource(LinkedHashMap<String, DataSource> shards) {
+        this.shards = Map.copyOf(shards);
+        this.defaultShard = shards.keySet().iterator().next();
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(defaultShard));
+        setLenientFallback(false);
+        initialize();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String shard = ShardContext.current();
+        if (shard == null)
+            shard = defaultShard;
+        ShardContext.bindTransaction(shard);
+        return shard;
+    }
+
+    /**
+     * The data source of a shard, for the work that must bypass the routing.
+     */
+    public DataSource getShard(String name) {
+        return shards.get(name);
+    }
+}
@@ -0,0 +1,57 @@
+package com.pm.patientservice.persistence.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+
+import java.util.Collection;
+
+/**
+ * Applies the schema action of Hibernate (spring.jpa.hibernate.ddl-auto) to every shard.
+ * Hibernate only manages the schema of the database it gets its first connection from, the
+ * default shard; this integrator keeps the mapping it was built with and runs the same action
+ * on the other shards once the entity manager factory is ready.
+ *
+ * @author caito
+ */
+@Slf4j
+public class ShardSchemaInitializer implements Integrator {
+    private volatile Metadata metadata;
+    private volatile SessionFactoryImplementor sessionFactory;
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                          SessionFactoryImplementor sessionFactory) {
+        this.metadata = metadata;
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        this.metadata = null;
+        this.sessionFactory = null;
+    }
+
+    /**
+     * Runs the schema action on some shards.
+     *
+     * @param shards the shards other than the default one
+     */
+    public void initialize(Collection<String> shards) {
+        if (metadata == null)
+            throw new IllegalStateException("The entity manager factory is not built yet");
+        for (String shard : shards) {
+            log.info("Applying the patient schema to shard {}", shard);
+            ShardContext.call(shard, () -> {
+                SchemaManagementToolCoordinator.process(metadata, sessionFactory.getServiceRegistry(),
+                        sessionFactory.getProperties(), action -> {
+                        });
+                return null;
+            });
+        }
+    }
+}
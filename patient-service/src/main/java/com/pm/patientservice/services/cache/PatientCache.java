@@ -0,0 +1,138 @@
+package com.pm.patientservice.services.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.pm.patientservice.api.models.responses.CacheStatsResponse;
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * In-process read-through cache of PatientResponse objects.
+ * Every cached patient is reachable by its ID, email and DNI; the cache is bounded by
+ * size and entries expire after a configurable time to live.
+ * It is configured with the patient.cache.* properties and does nothing when disabled.
+ *
+ * @author caito
+ */
+@Component
+@Slf4j
+public class PatientCache {
+    private static final String ID_KEY = "id:";
+    private static final String EMAIL_KEY = "email:";
+    private static final String DNI_KEY = "dni:";
+
+    private final boolean enabled;
+    private final long maximumSize;
+    private final Cache<String, PatientResponse> cache;
+
+    /**
+     * Creates the cache.
+     *
+     * @param enabled     whether the cache is enabled
+     * @param maximumSize the maximum number of entries (each patient uses one entry per identifier)
+     * @param ttl         the time an entry is kept after it was written
+     */
+    public PatientCache(@Value("${patient.cache.enabled:false}") boolean enabled,
+                        @Value("${patient.cache.maximum-size:30000}") long maximumSize,
+                        @Value("${patient.cache.ttl:5m}") Duration ttl) {
+        this.enabled = enabled;
+        this.maximumSize = maximumSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(enabled ? maximumSize : 0)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        if (enabled)
+            log.info("Patient cache enabled, maximum size {}, ttl {}", maximumSize, ttl);
+        else
+            log.info("Patient cache disabled");
+    }
+
+    public PatientResponse getById(UUID id) {
+        return get(ID_KEY + id);
+    }
+
+    public PatientResponse getByEmail(String email) {
+        return get(EMAIL_KEY + email);
+    }
+
+    public PatientResponse getByDni(String dni) {
+        return get(DNI_KEY + dni);
+    }
+
+    /**
+     * Stores a patient under its ID, email and DNI.
+     *
+     * @param patient the patient to cache
+     */
+    public void put(PatientResponse patient) {
+        if (!enabled)
+            return;
+        cache.put(ID_KEY + patient.getId(), patient);
+        cache.put(EMAIL_KEY + patient.getEmail(), patient);
+        cache.put(DNI_KEY + patient.getDni(), patient);
+    }
+
+    /**
+     * Removes a patient from the cache now and again once the current transaction commits,
+     * so that a concurrent read cannot re-cache the old state before the change is visible.
+     * Reads from the replica, which may still return the old state afterwards, are not cached.
+     *
+     * @param id    the ID of the patient
+     * @param email the email the patient was cached under
+     * @param dni   the DNI the patient was cached under
+     */
+    public void evict(UUID id, String email, String dni) {
+        if (!enabled)
+            return;
+        invalidate(id, email, dni);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(id, email, dni);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the current statistics of the cache.
+     *
+     * @return the cache statistics
+     */
+    public CacheStatsResponse stats() {
+        CacheStats stats = cache.stats();
+        return CacheStatsResponse.builder()
+                .enabled(enabled)
+                .size(cache.estimatedSize())
+                .maximumSize(maximumSize)
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .build();
+    }
+
+    private PatientResponse get(String key) {
+        if (!enabled)
+            return null;
+        return cache.getIfPresent(key);
+    }
+
+    private void invalidate(UUID id, String email, String dni) {
+        cache.invalidate(ID_KEY + id);
+        if (email != null)
+            cache.invalidate(EMAIL_KEY + email);
+        if (dni != null)
+            cache.invalidate(DNI_KEY + dni);
+    }
+}
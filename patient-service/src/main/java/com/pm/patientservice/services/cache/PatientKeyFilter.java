@@ -0,0 +1,341 @@
+package com.pm.patientservice.services.cache;
+
+import com.pm.patientservice.persistence.projections.PatientKeyView;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.persistence.sharding.PatientShards;
+import com.pm.patientservice.persistence.sharding.ShardContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over the emails and DNIs of the existing patients.
+ * It answers "definitely not used" or "maybe used", so the service only runs the uniqueness
+ * queries for keys that may already exist. It is built from the database when the application
+ * is ready and every key is added before the patient that uses it is saved; until it is built,
+ * or when it is disabled, every key is reported as maybe used.
+ * Keys cannot be removed from a Bloom filter: deleted and replaced keys are only counted, and the
+ * filter is rebuilt in the background when they, or the keys added beyond its capacity,
+ * make the false-positive rate drift too far. A key missed by the filter is still rejected
+ * by the unique constraints, so the filter can only save queries, never let a duplicate in.
+ * It is configured with the patient.key-filter.* properties.
+ *
+ * @author caito
+ */
+@Component
+@Slf4j
+public class PatientKeyFilter {
+    private static final String EMAIL_KEY = "e:";
+    private static final String DNI_KEY = "d:";
+
+    private final PatientRepository patientRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    /** The shards of the patients, only when they are sharded. */
+    @Autowired(required = false)
+    private PatientShards patientShards;
+    private final AsyncTaskExecutor taskExecutor;
+    private final boolean enabled;
+    private final long expectedPatients;
+    private final double falsePositiveRate;
+    private final double maxStaleRatio;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicLong staleKeys = new AtomicLong();
+    private final Timer rebuildTimer;
+    private final Counter absentChecks;
+    private final Counter maybeChecks;
+    private volatile Bits current;
+    private Bits building;
+
+    /**
+     * Creates the filter and registers its metrics.
+     *
+     * @param expectedPatients  the number of patients the filter is sized for when there are fewer
+     * @param falsePositiveRate the false-positive rate the filter is sized for
+     * @param maxStaleRatio     the fraction of deleted keys that triggers a rebuild
+     */
+    public PatientKeyFilter(PatientRepository patientRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+                            MeterRegistry meterRegistry,
+                            @Value("${patient.key-filter.enabled:true}") boolean enabled,
+                            @Value("${patient.key-filter.expected-patients:1000000}") long expectedPatients,
+                            @Value("${patient.key-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                            @Value("${patient.key-filter.max-stale-ratio:0.2}") double maxStaleRatio) {
+        this.patientRepository = patientRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.taskExecutor = taskExecutor;
+        this.enabled = enabled;
+        this.expectedPatients = expectedPatients;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxStaleRatio = maxStaleRatio;
+
+        Gauge.builder("patient.key.filter.keys", this, filter -> filter.current == null ? 0 : filter.current.keys.get())
+                .description("Emails and DNIs added to the patient key filter")
+                .register(meterRegistry);
+        Gauge.builder("patient.key.filter.size", this, filter -> filter.current == null ? 0 : filter.current.size / 8.0)
+                .description("Size of the patient key filter")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("patient.key.filter.false.positive.rate", this, PatientKeyFilter::getFalsePositiveRate)
+                .description("Estimated false-positive rate of the patient key filter")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("patient.key.filter.rebuild")
+                .description("Time spent building the patient key filter from the database")
+                .register(meterRegistry);
+        this.absentChecks = Counter.builder("patient.key.filter.checks").tag("result", "absent")
+                .description("Uniqueness checks answered by the patient key filter")
+                .register(meterRegistry);
+        this.maybeChecks = Counter.builder("patient.key.filter.checks").tag("result", "maybe")
+                .description("Uniqueness checks answered by the patient key filter")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds the filter from the emails and DNIs of every patient in the database, one shard after
+     * the other when the patients are sharded.
+     * Keys added while it is being built go to both the old and the new filter.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            log.info("Patient key filter disabled");
+            return;
+        }
+        long start = System.nanoTime();
+        long patients = readOnlyTransaction.execute(status -> patientRepository.count());
+        Bits bits = new Bits(Math.max(expectedPatients, patients * 2) * 2, falsePositiveRate);
+        lock.writeLock().lock();
+        try {
+            building = bits;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            if (patientShards == null) {
+                readOnlyTransaction.executeWithoutResult(status -> load(bits));
+            } else {
+                for (String shard : patientShards.getShards())
+                    ShardContext.call(shard, () -> readOnlyTransaction.execute(status -> load(bits)));
+            }
+            lock.writeLock().lock();
+            try {
+                current = bits;
+                staleKeys.set(0);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                building = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        rebuildTimer.record(nanos, TimeUnit.NANOSECONDS);
+        log.info("Patient key filter built with {} keys in {} KB ({} hashes) in {} ms", bits.keys.get(),
+                bits.size / 8 / 1024, bits.hashes, nanos / 1_000_000);
+    }
+
+    /**
+     * Adds the emails and DNIs streamed from the database to a filter.
+     */
+    private Void load(Bits bits) {
+        try (Stream<PatientKeyView> rows = patientRepository.streamKeys()) {
+            rows.forEach(row -> {
+                bits.add(EMAIL_KEY + row.getEmail());
+                bits.add(DNI_KEY + row.getDni());
+            });
+        }
+        return null;
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    /**
+     * Tells whether neither the email nor the DNI is used by any patient.
+     * A null or empty key counts as not used.
+     *
+     * @param email the email to check
+     * @param dni   the DNI to check
+     * @return true if both keys are definitely not used, false if any of them may be used
+     *         or the filter is not ready
+     */
+    public boolean isAbsent(String email, String dni) {
+        Bits bits = current;
+        if (bits == null)
+            return false;
+        boolean absent = (isEmpty(email) || !bits.mightContain(EMAIL_KEY + email))
+                && (isEmpty(dni) || !bits.mightContain(DNI_KEY + dni));
+        (absent ? absentChecks : maybeChecks).increment();
+        return absent;
+    }
+
+    /**
+     * Adds the email and DNI of a patient that is about to be saved.
+     * A key added for a patient that is never committed only costs a query later on.
+     *
+     * @param email the email of the patient
+     * @param dni   the DNI of the patient
+     */
+    public void add(String email, String dni) {
+        if (!enabled)
+            return;
+        lock.readLock().lock();
+        try {
+            add(current, email, dni);
+            add(building, email, dni);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Bits bits = current;
+        if (bits != null && bits.keys.get() > bits.capacity)
+            rebuild("capacity exceeded");
+    }
+
+    /**
+     * Records that the email and DNI of a patient are no longer used.
+     * They stay in the filter as stale keys until the next rebuild.
+     *
+     * @param email the email the patient no longer uses, or null
+     * @param dni   the DNI the patient no longer uses, or null
+     */
+    public void remove(String email, String dni) {
+        Bits bits = current;
+        if (bits == null)
+            return;
+        long stale = staleKeys.addAndGet((isEmpty(email) ? 0 : 1) + (isEmpty(dni) ? 0 : 1));
+        if (stale > bits.keys.get() * maxStaleRatio)
+            rebuild("too many stale keys");
+    }
+
+    /**
+     * Estimates the false-positive rate from the number of keys in the filter.
+     *
+     * @return the estimated probability that an unused key is reported as maybe used
+     */
+    public double getFalsePositiveRate() {
+        Bits bits = current;
+        if (bits == null)
+            return 1;
+        return Math.pow(1 - Math.exp(-(double) bits.hashes * bits.keys.get() / bits.size), bits.hashes);
+    }
+
+    private void rebuild(String reason) {
+        if (!rebuilding.compareAndSet(false, true))
+            return;
+        log.info("Rebuilding patient key filter: {}", reason);
+        taskExecutor.execute(() -> {
+            try {
+                build();
+            } catch (RuntimeException e) {
+                log.error("Could not rebuild the patient key filter", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+    }
+
+    private static void add(Bits bits, String email, String dni) {
+        if (bits == null)
+            return;
+        if (!isEmpty(email))
+            bits.add(EMAIL_KEY + email);
+        if (!isEmpty(dni))
+            bits.add(DNI_KEY + dni);
+    }
+
+    private static boolean isEmpty(String key) {
+        return key == null || key.isEmpty();
+    }
+
+    /**
+     * The bit array of a Bloom filter, sized for a number of keys and a false-positive rate.
+     * Positions are derived from one 64-bit hash split in two (Kirsch-Mitzenmacher double hashing)
+     * and set with lock-free updates, so keys can be added while others are checked.
+     */
+    static final class Bits {
+        private final AtomicLongArray words;
+        private final long size;
+        private final int hashes;
+        private final long capacity;
+        private final AtomicLong keys = new AtomicLong();
+
+        Bits(long capacity, double falsePositiveRate) {
+            long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) Math.max(1, (bits + 63) >>> 6));
+            this.size = (long) words.length() << 6;
+            this.hashes = (int) Math.max(1, Math.round((double) size / capacity * Math.log(2)));
+            this.capacity = capacity;
+        }
+
+        void add(String key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashes; i++) {
+                long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % size;
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word = words.get(index);
+                while ((word & mask) == 0 && !words.weakCompareAndSetVolatile(index, word, word | mask))
+                    word = words.get(index);
+            }
+            keys.incrementAndGet();
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashes; i++) {
+                long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % size;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * FNV-1a over the characters of the key, finished with the MurmurHash3 mix
+         * so that both halves of the result are well distributed.
+         */
+        private static long hash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.pm.patientservice.services.cache;
+
+import com.pm.patientservice.persistence.routing.RoutingContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same patient, or of the same patient version.
+ * The first caller for a key runs the load on its own thread; callers asking for the same key
+ * while it is in flight wait for it and share its result, or its exception, instead of taking
+ * another database connection. Nothing is kept once the load completes, so it never serves
+ * stale data. A caller that waits longer than the timeout stops waiting and starts a fresh load
+ * that later callers join. Callers whose reads are forced to the primary (read-your-writes) only
+ * share loads among themselves, as the others may read from a replica that misses their writes.
+ * It is configured with the patient.single-flight.* properties and loads directly when disabled.
+ *
+ * @author caito
+ */
+@Component
+@Slf4j
+public class PatientSingleFlight {
+    private final boolean enabled;
+    private final long timeoutNanos;
+    private final Map<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+    private final Counter loads;
+    private final Counter coalesced;
+    private final Counter timeouts;
+
+    /**
+     * Creates the single flight and registers its metrics.
+     *
+     * @param enabled whether concurrent loads are coalesced
+     * @param timeout the time a caller waits for a load started by another caller
+     */
+    public PatientSingleFlight(@Value("${patient.single-flight.enabled:true}") boolean enabled,
+                               @Value("${patient.single-flight.timeout:2s}") Duration timeout,
+                               MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.timeoutNanos = timeout.toNanos();
+        this.loads = Counter.builder("patient.single.flight.calls").tag("result", "loaded")
+                .description("Patient lookups that ran a database load")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("patient.single.flight.calls").tag("result", "coalesced")
+                .description("Patient lookups that shared the load of another caller")
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("patient.single.flight.calls").tag("result", "timeout")
+                .description("Patient lookups that gave up waiting for the load of another caller")
+                .register(meterRegistry);
+        Gauge.builder("patient.single.flight.in.flight", flights, Map::size)
+                .description("Patient loads currently in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads a patient, sharing the load with any concurrent caller for the same key.
+     * The prefix of the key tells what is loaded, so that a key always loads the same type.
+     *
+     * @param key    the identifier being looked up, prefixed with its kind
+     * @param loader the database load, run only if no load of the key is in flight
+     * @return the loaded patient
+     */
+    public <T> T load(String key, Supplier<T> loader) {
+        if (!enabled)
+            return loader.get();
+        if (RoutingContext.isPrimaryForced())
+            key = "primary:" + key;
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight == null)
+            return lead(key, flight, loader);
+
+        coalesced.increment();
+        try {
+            return await(inFlight);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            log.warn("Load of patient {} still in flight after {} ms, loading again", key,
+                    TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+            // replaces the stuck load so that later callers join the new one
+            flights.remove(key, inFlight);
+            flight = new CompletableFuture<>();
+            if (flights.putIfAbsent(key, flight) == null)
+                return lead(key, flight, loader);
+            loads.increment();
+            return loader.get();
+        }
+    }
+
+    private <T> T lead(String key, CompletableFuture<Object> flight, Supplier<T> loader) {
+        loads.increment();
+        try {
+            T patient = loader.get();
+            flight.complete(patient);
+            return patient;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T await(CompletableFuture<Object> flight) throws TimeoutException {
+        try {
+            return (T) flight.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a patient load", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime)
+                throw runtime;
+            if (e.getCause() instanceof Error error)
+                throw error;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
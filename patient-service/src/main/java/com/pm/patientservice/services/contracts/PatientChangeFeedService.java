@@ -0,0 +1,14 @@
+package com.pm.patientservice.services.contracts;
+
+import com.pm.patientservice.api.models.responses.ChangeFeedResponse;
+
+/**
+ * Service interface for the patient change feed.
+ * This interface defines the method that returns the patients created, updated or deleted after a cursor.
+ *
+ * @author caito
+ *
+ */
+public interface PatientChangeFeedService {
+    ChangeFeedResponse getChanges(String cursor, int size);
+}
@@ -0,0 +1,16 @@
+package com.pm.patientservice.services.contracts;
+
+import com.pm.patientservice.api.models.requests.ExportFormat;
+
+import java.io.OutputStream;
+
+/**
+ * Service interface for exporting the whole patient table.
+ * This interface defines the method that streams every patient to an output stream.
+ *
+ * @author caito
+ *
+ */
+public interface PatientExportService {
+    long exportPatients(ExportFormat format, OutputStream out);
+}
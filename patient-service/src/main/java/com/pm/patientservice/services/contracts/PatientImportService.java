@@ -0,0 +1,21 @@
+package com.pm.patientservice.services.contracts;
+
+import com.pm.patientservice.api.models.responses.ImportStatusResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.UUID;
+
+/**
+ * Service interface for importing patients from CSV files.
+ * This interface defines methods for starting an import, following its progress
+ * and retrieving the rows it rejected.
+ *
+ * @author caito
+ *
+ */
+public interface PatientImportService {
+    ImportStatusResponse startImport(MultipartFile file);
+    ImportStatusResponse getImportStatus(UUID id);
+    Resource getRejectedRows(UUID id);
+}
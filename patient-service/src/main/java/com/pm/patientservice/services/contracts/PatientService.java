@@ -1,7 +1,12 @@
 package com.pm.patientservice.services.contracts;
 
 import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.api.models.responses.BatchLookupResponse;
+import com.pm.patientservice.api.models.responses.BulkItemResponse;
+import com.pm.patientservice.api.models.responses.CacheStatsResponse;
+import com.pm.patientservice.api.models.responses.CursorPageResponse;
 import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.api.models.responses.PatientVersionResponse;
 import org.springframework.data.domain.Page;
 
 import java.util.List;
@@ -10,18 +15,27 @@ import java.util.UUID;
 /**
  * Service interface for managing patient operations.
  * This interface defines methods for creating a patient, retrieving a patient by ID,
- * and getting a paginated list of patients.
+ * and getting a paginated list of patients, either by offset or by cursor.
+ * The version methods return only the ID and last update date of a patient, for conditional requests.
  *
  * @author caito
  *
  */
 public interface PatientService {
     void createPatient(PatientRequest request);
+    List<BulkItemResponse> createPatients(List<PatientRequest> requests);
     PatientResponse getPatientById(UUID id);
     Page<PatientResponse> getPatients(int page, int size);
+    CursorPageResponse<PatientResponse> getPatientsAfter(String cursor, int size);
     PatientResponse getPatientByEmail(String email);
     PatientResponse getPatientByDni(String dni);
-    List<PatientResponse> getPatientsByName(String name);
+    BatchLookupResponse getPatientsByIds(List<UUID> ids);
+    BatchLookupResponse getPatientsByDnis(List<String> dnis);
+    PatientVersionResponse getPatientVersionById(UUID id);
+    PatientVersionResponse getPatientVersionByEmail(String email);
+    PatientVersionResponse getPatientVersionByDni(String dni);
+    Page<PatientResponse> getPatientsByName(String name, int page, int size);
     void deletePatient(UUID id);
     PatientResponse updatePatient(UUID id, PatientRequest request);
+    CacheStatsResponse getCacheStats();
 }
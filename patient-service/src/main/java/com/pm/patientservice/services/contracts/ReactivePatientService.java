@@ -0,0 +1,23 @@
+package com.pm.patientservice.services.contracts;
+
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * Service interface for the non-blocking patient reads.
+ * This interface defines the reactive variants of the read methods of PatientService;
+ * lists are returned as streams instead of pages.
+ *
+ * @author caito
+ *
+ */
+public interface ReactivePatientService {
+    Mono<PatientResponse> getPatientById(UUID id);
+    Mono<PatientResponse> getPatientByEmail(String email);
+    Mono<PatientResponse> getPatientByDni(String dni);
+    Flux<PatientResponse> getPatients(int page, int size);
+    Flux<PatientResponse> getPatientsByName(String name, int page, int size);
+}
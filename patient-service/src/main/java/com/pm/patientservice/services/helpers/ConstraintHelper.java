@@ -0,0 +1,44 @@
+package com.pm.patientservice.services.helpers;
+
+import com.pm.patientservice.api.exceptions.customs.BadRequestException;
+import com.pm.patientservice.persistence.entities.Patient;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * ConstraintHelper translates violations of the patient unique constraints into bad requests.
+ * The constraints are the last line of defence for uniqueness: they reject a duplicate that
+ * slipped past the existence check because two requests ran at the same time.
+ *
+ * @author caito
+ */
+public class ConstraintHelper {
+
+    /**
+     * Translates a unique constraint violation on the email or DNI of a patient.
+     *
+     * @param ex         the exception thrown when flushing the patient
+     * @param emailError the message to use when the email is duplicated
+     * @param dniError   the message to use when the DNI is duplicated
+     * @return a BadRequestException with the matching message, or the original exception
+     *         if it is not a violation of the patient unique constraints
+     */
+    public static RuntimeException translate(DataIntegrityViolationException ex, String emailError, String dniError) {
+        String constraint = null;
+        for (Throwable cause = ex; cause != null && constraint == null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation)
+                constraint = violation.getConstraintName();
+        }
+        if (constraint == null)
+            constraint = ex.getMostSpecificCause().getMessage();
+        constraint = constraint == null ? "" : constraint.toLowerCase(Locale.ROOT);
+        if (constraint.contains(Patient.EMAIL_CONSTRAINT))
+            return new BadRequestException(List.of(emailError));
+        if (constraint.contains(Patient.DNI_CONSTRAINT))
+            return new BadRequestException(List.of(dniError));
+        return ex;
+    }
+}
@@ -0,0 +1,60 @@
+package com.pm.patientservice.services.helpers;
+
+import com.pm.patientservice.api.exceptions.customs.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * CursorHelper encodes and decodes the opaque continuation tokens used by keyset pagination.
+ * A token wraps the sort key of the last row returned, so the next page can seek past it.
+ *
+ * @author caito
+ */
+public class CursorHelper {
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Position of the last row returned by a keyset page.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Cursor {
+        private final LocalDateTime date;
+        private final UUID id;
+    }
+
+    /**
+     * Encodes the given sort key into an opaque, URL safe token.
+     *
+     * @param date the date of the last row returned
+     * @param id   the ID of the last row returned
+     * @return the encoded cursor
+     */
+    public static String encode(LocalDateTime date, UUID id) {
+        String raw = date + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode(LocalDateTime, UUID)}.
+     *
+     * @param cursor the encoded cursor
+     * @return the decoded cursor
+     * @throws BadRequestException if the cursor is malformed
+     */
+    public static Cursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.indexOf(SEPARATOR);
+            return new Cursor(LocalDateTime.parse(raw.substring(0, index)), UUID.fromString(raw.substring(index + 1)));
+        } catch (RuntimeException e) {
+            throw new BadRequestException(List.of("Invalid cursor"));
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.pm.patientservice.services.helpers;
 
+import com.pm.patientservice.api.models.requests.PatientRequest;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 
 /**
@@ -8,6 +12,10 @@ import java.util.regex.Pattern;
  * @author caito
  */
 public class ValidationHelper {
+    private static final Pattern EMAIL_PATTERN =
+            Pattern.compile("^[_A-Za-z0-9-+]+(\\.[_A-Za-z0-9-]+)*@[A-Za-z0-9-]+(\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})$");
+    private static final Pattern PASS_PATTERN =
+            Pattern.compile("^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=])(?=\\S+$).{8,}$");
 
     /**
      * Validates if the given email address is in a correct format.
@@ -16,8 +24,7 @@ public class ValidationHelper {
      * @return true if the email is valid, false otherwise
      */
     public static boolean validateEmail(String email){
-        Pattern PATTERN = Pattern.compile("^[_A-Za-z0-9-+]+(\\.[_A-Za-z0-9-]+)*@[A-Za-z0-9-]+(\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})$");
-        return PATTERN.matcher(email).matches();
+        return EMAIL_PATTERN.matcher(email).matches();
     }
 
     /**
@@ -29,8 +36,59 @@ public class ValidationHelper {
      * @return true if the password is valid, false otherwise
      */
     public static boolean validatePassword(String password){
-        final String PASS_REGEX = "^(?=.*[0-9])(?=.*[a-z])(?=.*[A-Z])(?=.*[@#$%^&+=])(?=\\S+$).{8,}$";
-        final Pattern PASS_PATTERN = Pattern.compile(PASS_REGEX);
         return PASS_PATTERN.matcher(password).matches();
     }
+
+    /**
+     * Validates the fields of a patient request without querying the database.
+     * Name, email, address and DNI are required and the email must be well formed.
+     *
+     * @param request the patient request to validate
+     * @return the validation errors, empty if the fields are valid
+     */
+    public static List<String> validatePatient(PatientRequest request) {
+        List<String> errors = new ArrayList<>();
+
+        //validate name
+        if (request.getName() == null || request.getName().isEmpty()) {
+            errors.add("Name cannot be null or empty");
+        }
+        //validate email
+        if (request.getEmail() == null || request.getEmail().isEmpty()) {
+            errors.add("Email cannot be null or empty");
+        } else if (!validateEmail(request.getEmail())) {
+            errors.add("Invalid email format");
+        }
+        //validate address
+        if (request.getAddress() == null || request.getAddress().isEmpty()) {
+            errors.add("Address cannot be null or empty");
+        }
+        //validate dni
+        if (request.getDni() == null || request.getDni().isEmpty()) {
+            errors.add("DNI cannot be null or empty");
+        }
+        return errors;
+    }
+
+    /**
+     * Validates the page number and size of a paged request.
+     *
+     * @param page    the page number, starting at zero
+     * @param size    the number of items per page
+     * @param maxSize the largest size allowed
+     * @return the validation errors, empty if the page is valid
+     */
+    public static List<String> validatePage(int page, int size, int maxSize) {
+        List<String> errors = new ArrayList<>();
+        if (page < 0) {
+            errors.add("Page cannot be negative");
+        }
+        if (size < 1) {
+            errors.add("Size must be greater than zero");
+        }
+        if (size > maxSize) {
+            errors.add("Size cannot be greater than " + maxSize);
+        }
+        return errors;
+    }
 }
@@ -0,0 +1,112 @@
+package com.pm.patientservice.services.impl;
+
+import com.pm.patientservice.api.exceptions.customs.BadRequestException;
+import com.pm.patientservice.api.models.responses.ChangeFeedResponse;
+import com.pm.patientservice.api.models.responses.PatientChangeResponse;
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.persistence.entities.PatientTombstone;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.persistence.repositories.PatientTombstoneRepository;
+import com.pm.patientservice.persistence.routing.RoutingContext;
+import com.pm.patientservice.services.contracts.PatientChangeFeedService;
+import com.pm.patientservice.services.helpers.CursorHelper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Implementation of the PatientChangeFeedService interface.
+ * Changes are the patients ordered by (last update date, ID) merged with the tombstones of the
+ * deleted patients ordered by (deletion date, patient ID); both are keyset range scans on their
+ * indexes, so a sync costs in proportion to the changes and not to the table size.
+ * Changes younger than patient.changes.settle are held back, so that a transaction that committed
+ * late with an older timestamp is not skipped by a cursor that already moved past it.
+ * The changes are always read from the primary: a lagging replica could miss changes older than
+ * the settle window, and the cursor would then move past them for good.
+ *
+ * @author caito
+ *
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PatientChangeFeedServiceImpl implements PatientChangeFeedService {
+    private static final LocalDateTime START_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final UUID START_ID = new UUID(0, 0);
+    /** Same order as the BINARY(16) ids in the database: unsigned bytes. */
+    private static final Comparator<PatientChangeResponse> ORDER = Comparator
+            .comparing(PatientChangeResponse::getChangedAt)
+            .thenComparing(change -> change.getId().getMostSignificantBits(), Long::compareUnsigned)
+            .thenComparing(change -> change.getId().getLeastSignificantBits(), Long::compareUnsigned);
+
+    private final PatientRepository patientRepository;
+    private final PatientTombstoneRepository patientTombstoneRepository;
+    private final PlatformTransactionManager transactionManager;
+    @Value("${patient.changes.max-size:1000}")
+    private int maxSize = 1000;
+    @Value("${patient.changes.settle:2s}")
+    private Duration settle = Duration.ofSeconds(2);
+
+    /**
+     * Returns the changes after the cursor, oldest first.
+     *
+     * @param cursor the cursor returned by the previous call, or null/empty to start from the beginning
+     * @param size   the maximum number of changes to return
+     * @return the changes and the cursor to continue from
+     * @throws BadRequestException if the cursor or the size is invalid
+     */
+    @Override
+    public ChangeFeedResponse getChanges(String cursor, int size) {
+        log.debug("Retrieving patient changes, size {}", size);
+        if (size < 1 || size > maxSize) {
+            throw new BadRequestException(List.of("Size must be between 1 and " + maxSize));
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        return RoutingContext.onPrimary(() -> transaction.execute(status -> readChanges(cursor, size)));
+    }
+
+    private ChangeFeedResponse readChanges(String cursor, int size) {
+        LocalDateTime date = START_DATE;
+        UUID id = START_ID;
+        if (cursor != null && !cursor.isEmpty()) {
+            CursorHelper.Cursor position = CursorHelper.decode(cursor);
+            date = position.getDate();
+            id = position.getId();
+        }
+        LocalDateTime until = LocalDateTime.now().minus(settle);
+        PageRequest pr = PageRequest.of(0, size + 1);
+        List<PatientChangeResponse> changes = new ArrayList<>();
+        for (PatientResponse patient : patientRepository.findChangedAfter(date, id, until, pr))
+            changes.add(PatientChangeResponse.builder().type(PatientChangeResponse.UPSERTED).id(patient.getId())
+                    .changedAt(patient.getLastUpdateDate()).patient(patient).build());
+        for (PatientTombstone tombstone : patientTombstoneRepository.findDeletedAfter(date, id, until, pr))
+            changes.add(PatientChangeResponse.builder().type(PatientChangeResponse.DELETED)
+                    .id(tombstone.getPatientId()).changedAt(tombstone.getDeletedDate()).build());
+        changes.sort(ORDER);
+        boolean hasMore = changes.size() > size;
+        if (hasMore)
+            changes = changes.subList(0, size);
+        String nextCursor = cursor;
+        if (!changes.isEmpty()) {
+            PatientChangeResponse last = changes.get(changes.size() - 1);
+            nextCursor = CursorHelper.encode(last.getChangedAt(), last.getId());
+        }
+        return ChangeFeedResponse.builder()
+                .changes(changes)
+                .hasMore(hasMore)
+                .nextCursor(nextCursor)
+                .build();
+    }
+}
@@ -0,0 +1,120 @@
+package com.pm.patientservice.services.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.api.models.requests.ExportFormat;
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.sharding.PatientShards;
+import com.pm.patientservice.persistence.sharding.ShardContext;
+import com.pm.patientservice.services.contracts.PatientExportService;
+import com.pm.patientservice.utils.csv.CsvHelper;
+import com.pm.patientservice.utils.mappers.PatientMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the PatientExportService interface.
+ * Patients are read through a forward-only cursor with a configured fetch size and written
+ * to the output stream one by one; each entity is detached once written, so memory use stays
+ * flat whatever the size of the table. When the patients are sharded, the shards are read one
+ * after the other, each in a read-only transaction of its own.
+ *
+ * @author caito
+ *
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PatientExportServiceImpl implements PatientExportService {
+    private static final int FLUSH_EVERY = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+    /** The shards of the patients, only when they are sharded. */
+    @Autowired(required = false)
+    private PatientShards patientShards;
+    @Value("${patient.export.fetch-size:1000}")
+    private int fetchSize = 1000;
+
+    /**
+     * Writes every patient to the given output stream.
+     *
+     * @param format the format of the export
+     * @param out    the stream to write to, it is flushed but not closed
+     * @return the number of patients exported
+     * @throws UncheckedIOException if writing to the stream fails
+     */
+    @Override
+    public long exportPatients(ExportFormat format, OutputStream out) {
+        log.info("Exporting patients as {}", format);
+        long start = System.currentTimeMillis();
+        AtomicLong count = new AtomicLong();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        try {
+            if (format == ExportFormat.CSV)
+                writer.write(CsvHelper.HEADER + "\n");
+            if (patientShards == null) {
+                transaction.executeWithoutResult(status -> write(format, writer, count));
+            } else {
+                for (String shard : patientShards.getShards())
+                    ShardContext.call(shard, () -> transaction.execute(status -> write(format, writer, count)));
+            }
+            writer.flush();
+        } catch (IOException e) {
+            log.error("Export interrupted after {} patients: {}", count.get(), e.getMessage());
+            throw new UncheckedIOException(e);
+        } catch (UncheckedIOException e) {
+            log.error("Export interrupted after {} patients: {}", count.get(), e.getMessage());
+            throw e;
+        }
+        log.info("Exported {} patients in {} ms", count.get(), System.currentTimeMillis() - start);
+        return count.get();
+    }
+
+    /**
+     * Writes the patients of the database of the current transaction.
+     */
+    private Void write(ExportFormat format, Writer writer, AtomicLong count) {
+        try (Stream<Patient> patients = entityManager.createQuery("SELECT p FROM Patient p", Patient.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            var iterator = patients.iterator();
+            while (iterator.hasNext()) {
+                Patient patient = iterator.next();
+                if (format == ExportFormat.CSV)
+                    writer.write(CsvHelper.toRow(patient));
+                else
+                    writer.write(objectMapper.writeValueAsString(PatientMapper.mapToDto(patient)));
+                writer.write('\n');
+                entityManager.detach(patient);
+                if (count.incrementAndGet() % FLUSH_EVERY == 0)
+                    writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,423 @@
+package com.pm.patientservice.services.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.pm.patientservice.api.exceptions.customs.BadRequestException;
+import com.pm.patientservice.api.exceptions.customs.NotFoundException;
+import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.api.models.responses.ImportStatusResponse;
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.projections.PatientKeyView;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.persistence.sharding.PatientShards;
+import com.pm.patientservice.services.cache.PatientCache;
+import com.pm.patientservice.services.cache.PatientKeyFilter;
+import com.pm.patientservice.services.contracts.PatientImportService;
+import com.pm.patientservice.services.helpers.ConstraintHelper;
+import com.pm.patientservice.services.helpers.ValidationHelper;
+import com.pm.patientservice.services.search.PatientNameIndex;
+import com.pm.patientservice.utils.csv.CsvHelper;
+import com.pm.patientservice.utils.mappers.PatientMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of the PatientImportService interface.
+ * The uploaded file is stored on disk and imported in the background: it is read record by record,
+ * validated with the same rules as the API, and written in chunks, each chunk in its own transaction.
+ * A chunk the database refuses is split and retried until only its failing rows are rejected.
+ * When the patients are sharded, the rows of a chunk are written in a transaction per shard.
+ * Rows whose DNI already exists update that patient; rows that fail validation or use an email
+ * of another patient are rejected and written to a CSV report.
+ *
+ * @author caito
+ *
+ */
+@Service
+@Slf4j
+public class PatientImportServiceImpl implements PatientImportService {
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "email", "address", "dni");
+
+    private final PatientRepository patientRepository;
+    private final PatientCache patientCache;
+    private final PatientNameIndex patientNameIndex;
+    private final PatientKeyFilter patientKeyFilter;
+    private final TransactionTemplate transactionTemplate;
+    private final PatientShards patientShards;
+    private final AsyncTaskExecutor taskExecutor;
+    private final int chunkSize;
+    private final Cache<UUID, ImportJob> jobs;
+
+    public PatientImportServiceImpl(PatientRepository patientRepository,
+                                    PatientCache patientCache,
+                                    PatientNameIndex patientNameIndex,
+                                    PatientKeyFilter patientKeyFilter,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectProvider<PatientShards> patientShards,
+                                    @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+                                    @Value("${patient.import.chunk-size:1000}") int chunkSize,
+                                    @Value("${patient.import.retention:24h}") Duration retention) {
+        this.patientRepository = patientRepository;
+        this.patientCache = patientCache;
+        this.patientNameIndex = patientNameIndex;
+        this.patientKeyFilter = patientKeyFilter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.patientShards = patientShards.getIfAvailable();
+        this.taskExecutor = taskExecutor;
+        this.chunkSize = chunkSize;
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(retention)
+                .removalListener((UUID id, ImportJob job, RemovalCause cause) -> {
+                    if (job != null)
+                        deleteQuietly(job.rejectedFile);
+                })
+                .build();
+    }
+
+    /**
+     * Stores the uploaded file and starts importing it in the background.
+     *
+     * @param file the CSV file, with a header row naming the columns
+     * @return the initial status of the import
+     * @throws BadRequestException if the file is empty
+     */
+    @Override
+    public ImportStatusResponse startImport(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new BadRequestException(List.of("File cannot be null or empty"));
+        }
+        ImportJob job;
+        try {
+            job = new ImportJob(file.getOriginalFilename(),
+                    Files.createTempFile("patient-import-", ".csv"),
+                    Files.createTempFile("patient-import-rejected-", ".csv"));
+            file.transferTo(job.file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Starting patient import {} of file {}", job.id, job.fileName);
+        jobs.put(job.id, job);
+        taskExecutor.execute(() -> run(job));
+        return job.toResponse();
+    }
+
+    /**
+     * Retrieves the progress of an import.
+     *
+     * @param id the ID of the import
+     * @return the status of the import
+     * @throws NotFoundException if the import is not found
+     */
+    @Override
+    public ImportStatusResponse getImportStatus(UUID id) {
+        return findJob(id).toResponse();
+    }
+
+    /**
+     * Retrieves the report of the rows rejected by an import so far.
+     *
+     * @param id the ID of the import
+     * @return the CSV report with the row number, the errors and the original fields of every rejected row
+     * @throws NotFoundException if the import is not found
+     */
+    @Override
+    public Resource getRejectedRows(UUID id) {
+        return new FileSystemResource(findJob(id).rejectedFile);
+    }
+
+    private ImportJob findJob(UUID id) {
+        ImportJob job = jobs.getIfPresent(id);
+        if (job == null)
+            throw new NotFoundException("Import not found with ID: " + id);
+        return job;
+    }
+
+    private void run(ImportJob job) {
+        try (BufferedReader reader = Files.newBufferedReader(job.file, StandardCharsets.UTF_8);
+             BufferedWriter report = Files.newBufferedWriter(job.rejectedFile, StandardCharsets.UTF_8)) {
+            List<String> header = CsvHelper.readRecord(reader);
+            if (header == null)
+                throw new IllegalArgumentException("The file is empty");
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++)
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            for (String column : REQUIRED_COLUMNS) {
+                if (!columns.containsKey(column))
+                    throw new IllegalArgumentException("Missing column: " + column);
+            }
+            report.write("row,errors," + String.join(",", header.stream().map(CsvHelper::escape).toList()) + "\n");
+
+            List<Row> chunk = new ArrayList<>();
+            List<String> fields;
+            long number = 0;
+            while ((fields = CsvHelper.readRecord(reader)) != null) {
+                if (fields.size() == 1 && fields.get(0).isBlank())
+                    continue;
+                job.read.incrementAndGet();
+                chunk.add(new Row(++number, fields, columns));
+                if (chunk.size() == chunkSize) {
+                    processChunk(job, chunk, report);
+                    chunk.clear();
+                }
+            }
+            processChunk(job, chunk, report);
+            job.status = ImportJob.COMPLETED;
+            log.info("Patient import {} completed: {} read, {} inserted, {} updated, {} rejected",
+                    job.id, job.read, job.inserted, job.updated, job.rejected);
+        } catch (Exception e) {
+            job.status = ImportJob.FAILED;
+            job.error = e.getMessage();
+            log.error("Patient import {} failed: {}", job.id, e.getMessage(), e);
+        } finally {
+            job.finishNanos = System.nanoTime();
+            job.finishedAt = LocalDateTime.now();
+            deleteQuietly(job.file);
+        }
+    }
+
+    private void processChunk(ImportJob job, List<Row> rows, BufferedWriter report) throws IOException {
+        Set<String> emails = new HashSet<>();
+        Set<String> dnis = new HashSet<>();
+        List<Row> valid = new ArrayList<>();
+        for (Row row : rows) {
+            if (!row.errors.isEmpty())
+                continue;
+            if (!dnis.add(row.request.getDni()))
+                row.errors.add("Duplicate DNI in file");
+            else if (!emails.add(row.request.getEmail()))
+                row.errors.add("Duplicate email in file");
+            else
+                valid.add(row);
+        }
+        if (!valid.isEmpty()) {
+            // a transaction is bound to one shard, so the rows of every shard are written on their own
+            Collection<List<Row>> shards = patientShards == null ? List.of(valid)
+                    : patientShards.groupByDni(valid, row -> row.request.getDni()).values();
+            for (List<Row> shard : shards)
+                write(job, shard);
+        }
+        for (Row row : rows) {
+            if (row.errors.isEmpty())
+                continue;
+            job.rejected.incrementAndGet();
+            report.write(row.number + "," + CsvHelper.escape(String.join("; ", row.errors)) + ","
+                    + String.join(",", row.fields.stream().map(CsvHelper::escape).toList()) + "\n");
+        }
+        report.flush();
+    }
+
+    /**
+     * Writes the rows in one transaction. When the transaction fails, each half of the rows is retried
+     * in a transaction of its own until the failing rows are isolated, so a row the database refuses
+     * only rejects itself and not the rest of its chunk.
+     */
+    private void write(ImportJob job, List<Row> rows) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> upsert(rows));
+        } catch (RuntimeException e) {
+            rows.forEach(Row::reset);
+            if (rows.size() == 1) {
+                rows.get(0).errors.addAll(rejection(e));
+                return;
+            }
+            log.warn("Import chunk of {} rows failed, retrying its halves: {}", rows.size(), e.getMessage());
+            int half = rows.size() / 2;
+            write(job, rows.subList(0, half));
+            write(job, rows.subList(half, rows.size()));
+            return;
+        }
+        for (Row row : rows) {
+            if (row.errors.isEmpty() && row.updated)
+                job.updated.incrementAndGet();
+            else if (row.errors.isEmpty())
+                job.inserted.incrementAndGet();
+        }
+    }
+
+    private static List<String> rejection(RuntimeException e) {
+        RuntimeException translated = e instanceof DataIntegrityViolationException violation
+                ? ConstraintHelper.translate(violation, "Email is in use by another patient", "DNI already exists")
+                : e;
+        if (translated instanceof BadRequestException badRequest)
+            return badRequest.getErrors();
+        return List.of("Rejected by the database: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+    }
+
+    private void upsert(List<Row> rows) {
+        Set<String> emails = rows.stream().map(row -> row.request.getEmail()).collect(Collectors.toSet());
+        Set<String> dnis = rows.stream().map(row -> row.request.getDni()).collect(Collectors.toSet());
+        Map<String, Patient> existing = patientRepository.findByDniIn(dnis)
+                .stream()
+                .collect(Collectors.toMap(Patient::getDni, patient -> patient));
+        Map<String, String> emailOwners = new HashMap<>();
+        for (PatientKeyView key : patientRepository.findKeysByEmailsOrDnis(emails, dnis))
+            emailOwners.put(key.getEmail(), key.getDni());
+
+        List<Patient> inserts = new ArrayList<>();
+        for (Row row : rows) {
+            PatientRequest request = row.request;
+            String owner = emailOwners.get(request.getEmail());
+            if (owner != null && !owner.equals(request.getDni())) {
+                row.errors.add("Email is in use by another patient");
+                continue;
+            }
+            Patient patient = existing.get(request.getDni());
+            if (patient == null) {
+                patient = PatientMapper.mapToEntity(request);
+                inserts.add(patient);
+                patientKeyFilter.add(patient.getEmail(), patient.getDni());
+            } else {
+                patientCache.evict(patient.getId(), patient.getEmail(), patient.getDni());
+                if (!request.getEmail().equals(patient.getEmail())) {
+                    patientKeyFilter.remove(patient.getEmail(), null);
+                    patientKeyFilter.add(request.getEmail(), null);
+                }
+                patient.setName(request.getName());
+                patient.setEmail(request.getEmail());
+                patient.setAddress(request.getAddress());
+                if (request.getPhone() != null)
+                    patient.setPhone(request.getPhone());
+                if (request.getBirthDate() != null)
+                    patient.setBirthDate(request.getBirthDate());
+                patientNameIndex.index(patient.getId(), patient.getName());
+                row.updated = true;
+            }
+        }
+        patientRepository.saveAll(inserts);
+        patientRepository.flush();
+        inserts.forEach(patient -> patientNameIndex.index(patient.getId(), patient.getName()));
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * A data row of the file, its parsed request and the errors found so far.
+     */
+    private static class Row {
+        private final long number;
+        private final List<String> fields;
+        private final PatientRequest request;
+        private final List<String> errors;
+        private boolean updated;
+
+        Row(long number, List<String> fields, Map<String, Integer> columns) {
+            this.number = number;
+            this.fields = fields;
+            this.request = PatientRequest.builder()
+                    .name(field(fields, columns, "name"))
+                    .email(field(fields, columns, "email"))
+                    .address(field(fields, columns, "address"))
+                    .phone(field(fields, columns, "phone"))
+                    .dni(field(fields, columns, "dni"))
+                    .build();
+            this.errors = ValidationHelper.validatePatient(request);
+            String birthDate = field(fields, columns, "birthdate");
+            if (birthDate != null) {
+                try {
+                    request.setBirthDate(LocalDate.parse(birthDate));
+                } catch (DateTimeParseException e) {
+                    errors.add("Invalid birth date, expected yyyy-MM-dd");
+                }
+            }
+        }
+
+        private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= fields.size())
+                return null;
+            String value = fields.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        /**
+         * Forgets what a rolled back write found, before the row is written again.
+         */
+        private void reset() {
+            errors.clear();
+            updated = false;
+        }
+    }
+
+    /**
+     * State and counters of one import.
+     */
+    private static class ImportJob {
+        private static final String RUNNING = "RUNNING";
+        private static final String COMPLETED = "COMPLETED";
+        private static final String FAILED = "FAILED";
+
+        private final UUID id = UUID.randomUUID();
+        private final String fileName;
+        private final Path file;
+        private final Path rejectedFile;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong read = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private volatile String status = RUNNING;
+        private volatile long finishNanos;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        ImportJob(String fileName, Path file, Path rejectedFile) {
+            this.fileName = fileName;
+            this.file = file;
+            this.rejectedFile = rejectedFile;
+        }
+
+        ImportStatusResponse toResponse() {
+            long end = finishedAt == null ? System.nanoTime() : finishNanos;
+            double seconds = (end - startNanos) / 1_000_000_000.0;
+            long accepted = inserted.get() + updated.get();
+            return ImportStatusResponse.builder()
+                    .id(id)
+                    .status(status)
+                    .fileName(fileName)
+                    .rowsRead(read.get())
+                    .rowsAccepted(accepted)
+                    .rowsInserted(inserted.get())
+                    .rowsUpdated(updated.get())
+                    .rowsRejected(rejected.get())
+                    .rowsPerSecond(seconds > 0 ? (accepted + rejected.get()) / seconds : 0)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .error(error)
+                    .build();
+        }
+    }
+}
@@ -3,22 +3,57 @@ package com.pm.patientservice.services.impl;
 import com.pm.patientservice.api.exceptions.customs.BadRequestException;
 import com.pm.patientservice.api.exceptions.customs.NotFoundException;
 import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.api.models.responses.BatchLookupResponse;
+import com.pm.patientservice.api.models.responses.BulkItemResponse;
+import com.pm.patientservice.api.models.responses.CacheStatsResponse;
+import com.pm.patientservice.api.models.responses.CursorPageResponse;
 import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.api.models.responses.PatientVersionResponse;
 import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.persistence.repositories.PatientTombstoneRepository;
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.entities.PatientTombstone;
+import com.pm.patientservice.persistence.projections.PatientKeyView;
+import com.pm.patientservice.persistence.routing.RoutingContext;
+import com.pm.patientservice.persistence.sharding.PatientShards;
+import com.pm.patientservice.services.cache.PatientCache;
+import com.pm.patientservice.services.cache.PatientKeyFilter;
+import com.pm.patientservice.services.cache.PatientSingleFlight;
 import com.pm.patientservice.services.contracts.PatientService;
+import com.pm.patientservice.services.helpers.ConstraintHelper;
+import com.pm.patientservice.services.helpers.CursorHelper;
 import com.pm.patientservice.services.helpers.ValidationHelper;
-import com.pm.patientservice.utils.logs.WriteLog;
+import com.pm.patientservice.services.search.PatientNameIndex;
 import com.pm.patientservice.utils.mappers.PatientMapper;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of the PatientService interface.
@@ -31,11 +66,40 @@ import java.util.UUID;
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Timed(value = "patient.service", description = "Latency of the PatientService methods")
 public class PatientServiceImpl implements PatientService {
+    /** Logger of the read endpoints, sampled by logback-spring.xml because of its volume. */
+    private static final Logger READ_LOG = LoggerFactory.getLogger("com.pm.patientservice.reads");
     private final PatientRepository patientRepository;
+    private final PatientTombstoneRepository patientTombstoneRepository;
+    private final PatientCache patientCache;
+    private final PatientNameIndex patientNameIndex;
+    private final PatientKeyFilter patientKeyFilter;
+    private final PatientSingleFlight patientSingleFlight;
+    private final PlatformTransactionManager transactionManager;
+    @Value("${patient.pagination.max-size:1000}")
+    private int pageMaxSize = 1000;
+    @Value("${patient.search.max-results:1000}")
+    private int searchMaxResults = 1000;
+    @Value("${patient.search.max-page-size:100}")
+    private int searchMaxPageSize = 100;
+    @Value("${patient.bulk.max-items:1000}")
+    private int bulkMaxItems = 1000;
+    @Value("${patient.batch.max-keys:1000}")
+    private int batchMaxKeys = 1000;
+    @Value("${patient.batch.chunk-size:200}")
+    private int batchChunkSize = 200;
+    /** The shards of the patients, only when they are sharded. */
+    @Autowired(required = false)
+    private PatientShards patientShards;
+    @Value("${patient.sharding.max-page-depth:10000}")
+    private long shardedMaxPageDepth = 10000;
 
     /**
      * Creates a new patient.
+     * Email and DNI uniqueness is checked with one query, skipped when the key filter knows both
+     * keys are unused, and a duplicate inserted concurrently by another request is caught by
+     * the unique constraints and reported the same way.
      *
      * @param request the patient request containing patient details
      * @throws BadRequestException if the patient request is invalid
@@ -43,27 +107,177 @@ public class PatientServiceImpl implements PatientService {
     @Override
     @Transactional
     public void createPatient(PatientRequest request) {
-        log.info(WriteLog.logInfo("Creating patient service"));
+        log.debug("Creating patient");
         validatePatient(request);
-        patientRepository.save(PatientMapper.mapToEntity(request));
+        patientKeyFilter.add(request.getEmail(), request.getDni());
+        Patient patient;
+        try {
+            patient = patientRepository.saveAndFlush(PatientMapper.mapToEntity(request));
+        } catch (DataIntegrityViolationException e) {
+            throw ConstraintHelper.translate(e, "Email already exists", "DNI already exists");
+        }
+        patientNameIndex.index(patient.getId(), patient.getName());
+    }
+
+    /**
+     * Creates many patients at once.
+     * Every request is validated on its own, uniqueness of the emails and DNIs the key filter
+     * cannot rule out is checked with a single query (duplicates inside the batch are rejected too)
+     * and the valid patients are
+     * inserted with JDBC batching. Invalid requests do not prevent the valid ones from being created.
+     * The patients are inserted in a transaction of their own: when a unique constraint rejects one
+     * that another request created meanwhile, each half is retried until the offending patients are
+     * isolated and rejected, so the others are still created. Any other failure rejects the patients
+     * of the transaction with a generic reason. When the patients are sharded, those of every shard
+     * are inserted the same way, each shard on its own.
+     *
+     * @param requests the patient requests, at most patient.bulk.max-items
+     * @return the result of every request, in request order
+     * @throws BadRequestException if the batch is empty or too large
+     */
+    @Override
+    public List<BulkItemResponse> createPatients(List<PatientRequest> requests) {
+        log.info("Creating {} patients in bulk", requests == null ? 0 : requests.size());
+        if (requests == null || requests.isEmpty() || requests.size() > bulkMaxItems) {
+            throw new BadRequestException(List.of("Bulk requests must contain between 1 and " + bulkMaxItems + " patients"));
+        }
+        List<List<String>> errors = new ArrayList<>();
+        Set<String> emails = new HashSet<>();
+        Set<String> dnis = new HashSet<>();
+        for (PatientRequest request : requests) {
+            List<String> itemErrors = ValidationHelper.validatePatient(request);
+            errors.add(itemErrors);
+            if (itemErrors.isEmpty() && !patientKeyFilter.isAbsent(request.getEmail(), request.getDni())) {
+                emails.add(request.getEmail());
+                dnis.add(request.getDni());
+            }
+        }
+        Set<String> usedEmails = new HashSet<>();
+        Set<String> usedDnis = new HashSet<>();
+        if (!emails.isEmpty()) {
+            // the patients are inserted in transactions of their own, so the keys are read from the primary
+            for (PatientKeyView key : RoutingContext.onPrimary(() -> patientRepository.findKeysByEmailsOrDnis(emails, dnis))) {
+                usedEmails.add(key.getEmail());
+                usedDnis.add(key.getDni());
+            }
+        }
+        Patient[] patients = new Patient[requests.size()];
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            PatientRequest request = requests.get(i);
+            List<String> itemErrors = errors.get(i);
+            if (!itemErrors.isEmpty())
+                continue;
+            if (usedEmails.contains(request.getEmail()))
+                itemErrors.add("Email already exists");
+            if (usedDnis.contains(request.getDni()))
+                itemErrors.add("DNI already exists");
+            if (itemErrors.isEmpty()) {
+                // the keys of an accepted item are taken for the items further down the same batch
+                usedEmails.add(request.getEmail());
+                usedDnis.add(request.getDni());
+                accepted.add(i);
+                patientKeyFilter.add(request.getEmail(), request.getDni());
+            }
+        }
+        Collection<List<Integer>> shards = patientShards == null || accepted.isEmpty() ? List.of(accepted)
+                : patientShards.groupByDni(accepted, i -> requests.get(i).getDni()).values();
+        for (List<Integer> shard : shards) {
+            if (!shard.isEmpty())
+                insert(shard, requests, patients, errors);
+        }
+
+        List<BulkItemResponse> results = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (patients[i] != null) {
+                patientNameIndex.index(patients[i].getId(), patients[i].getName());
+                results.add(BulkItemResponse.builder().index(i).status(BulkItemResponse.CREATED)
+                        .id(patients[i].getId()).build());
+            } else {
+                results.add(BulkItemResponse.builder().index(i).status(BulkItemResponse.REJECTED)
+                        .errors(errors.get(i)).build());
+            }
+        }
+        long created = results.stream().filter(result -> BulkItemResponse.CREATED.equals(result.getStatus())).count();
+        log.info("Bulk creation finished: {} created, {} rejected", created, requests.size() - created);
+        return results;
+    }
+
+    /**
+     * Inserts the patients of the given requests, all on the same shard if they are sharded, in a
+     * transaction of their own. When a unique constraint rejects the transaction, each half of the
+     * patients is retried in a transaction of its own until the offending patients are isolated,
+     * so a patient created concurrently by another request only rejects itself. Any other failure
+     * rejects the patients with a generic reason, the details being logged only.
+     */
+    private void insert(List<Integer> items, List<PatientRequest> requests, Patient[] patients,
+                        List<List<String>> errors) {
+        // the entities of a failed attempt already have an ID, so every attempt maps its own
+        List<Patient> batch = items.stream().map(i -> PatientMapper.mapToEntity(requests.get(i))).toList();
+        Runnable writes = () -> {
+            patientRepository.saveAll(batch);
+            patientRepository.flush();
+        };
+        try {
+            if (patientShards == null) {
+                TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+                transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                transaction.executeWithoutResult(status -> writes.run());
+            } else {
+                patientShards.write(writes);
+            }
+        } catch (DataIntegrityViolationException e) {
+            if (items.size() > 1) {
+                log.warn("Bulk creation of {} patients failed, retrying its halves: {}", items.size(), e.getMessage());
+                int half = items.size() / 2;
+                insert(items.subList(0, half), requests, patients, errors);
+                insert(items.subList(half, items.size()), requests, patients, errors);
+                return;
+            }
+            RuntimeException translated = ConstraintHelper.translate(e, "Email already exists", "DNI already exists");
+            if (translated instanceof BadRequestException badRequest) {
+                errors.get(items.get(0)).addAll(badRequest.getErrors());
+                return;
+            }
+            reject(items, errors, e);
+            return;
+        } catch (RuntimeException e) {
+            reject(items, errors, e);
+            return;
+        }
+        for (int i = 0; i < items.size(); i++)
+            patients[items.get(i)] = batch.get(i);
+    }
+
+    private void reject(List<Integer> items, List<List<String>> errors, RuntimeException e) {
+        log.error("Bulk creation of {} patients failed", items.size(), e);
+        items.forEach(i -> errors.get(i).add("Could not be saved"));
     }
 
 
 
     /**
      * Retrieves a patient by its ID.
+     * Concurrent lookups of the same patient share one database load; the method is not
+     * transactional so that callers waiting for that load do not hold a connection.
      *
      * @param id the ID of the patient to retrieve
      * @return the patient response containing patient details
      * @throws NotFoundException if the patient is not found
      */
     @Override
-    @Transactional(readOnly = true)
     public PatientResponse getPatientById(UUID id) {
-        log.info(WriteLog.logInfo("Retrieving patient by ID: " + id));
-        return PatientMapper.mapToDto(patientRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Patient not found with ID: " + id)));
-
+        READ_LOG.info("Retrieving patient by ID: {}", id);
+        PatientResponse cached = patientCache.getById(id);
+        if (cached != null)
+            return cached;
+        return patientSingleFlight.load("id:" + id, () -> {
+            RoutingContext.resetReplicaRead();
+            PatientResponse response = patientRepository.findResponseById(id)
+                    .orElseThrow(() -> new NotFoundException("Patient not found with ID: " + id));
+            cacheIfCurrent(response);
+            return response;
+        });
     }
 
     /**
@@ -72,61 +286,277 @@ public class PatientServiceImpl implements PatientService {
      * @param page the page number to retrieve
      * @param size the number of patients per page
      * @return a page of patient responses
+     * @throws BadRequestException if the page or the size is invalid
      */
     @Override
     @Transactional(readOnly = true)
     public Page<PatientResponse> getPatients(int page, int size) {
-        log.info(WriteLog.logInfo("Retrieving patients with pagination: page " + page + ", size " + size));
+        READ_LOG.info("Retrieving patients with pagination: page {}, size {}", page, size);
+        validatePage(page, size);
+        validateShardedDepth((long) page * size, size);
         PageRequest pr = PageRequest.of(page, size);
-        return patientRepository.findAll(pr)
-                .map(PatientMapper::mapToDto);
+        return patientRepository.findResponsePage(pr);
+    }
+
+    /**
+     * Retrieves a page of patients using keyset (seek) pagination.
+     * Patients are ordered by registration date and ID; the cursor marks the last patient of the
+     * previous page, so every page costs the same regardless of depth and no count query is issued.
+     *
+     * @param cursor the cursor returned by the previous page, or null/empty for the first page
+     * @param size   the number of patients per page
+     * @return a cursor page of patient responses
+     * @throws BadRequestException if the cursor or the size is invalid
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<PatientResponse> getPatientsAfter(String cursor, int size) {
+        READ_LOG.info("Retrieving patients with cursor pagination: size {}", size);
+        if (size < 1 || size > pageMaxSize) {
+            throw new BadRequestException(List.of("Size must be between 1 and " + pageMaxSize));
+        }
+        // fetch one extra row to know whether another page follows without counting
+        PageRequest pr = PageRequest.of(0, size + 1);
+        List<Patient> patients;
+        if (cursor == null || cursor.isEmpty()) {
+            patients = patientRepository.findFirstSeekPage(pr);
+        } else {
+            CursorHelper.Cursor position = CursorHelper.decode(cursor);
+            patients = patientRepository.findSeekPageAfter(position.getDate(), position.getId(), pr);
+        }
+        boolean hasNext = patients.size() > size;
+        if (hasNext) {
+            patients = patients.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            Patient last = patients.get(patients.size() - 1);
+            nextCursor = CursorHelper.encode(last.getRegistrationDate(), last.getId());
+        }
+        return CursorPageResponse.<PatientResponse>builder()
+                .content(patients.stream().map(PatientMapper::mapToDto).toList())
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     /**
-     * Retrieves a patient by its email.
+     * Retrieves a patient by its email, sharing the database load with concurrent lookups of it.
      *
      * @param email the email of the patient to retrieve
      * @return the patient response containing patient details
      * @throws NotFoundException if the patient is not found
      */
     @Override
-    @Transactional(readOnly = true)
     public PatientResponse getPatientByEmail(String email) {
-        log.info(WriteLog.logInfo("Retrieving patient by email: " + email));
-        return PatientMapper.mapToDto(patientRepository.findByEmail(email)
-        .orElseThrow(() -> new NotFoundException("Patient not found with email: " + email)));
+        READ_LOG.info("Retrieving patient by email: {}", email);
+        PatientResponse cached = patientCache.getByEmail(email);
+        if (cached != null)
+            return cached;
+        return patientSingleFlight.load("email:" + email, () -> {
+            RoutingContext.resetReplicaRead();
+            PatientResponse response = patientRepository.findResponseByEmail(email)
+                    .orElseThrow(() -> new NotFoundException("Patient not found with email: " + email));
+            cacheIfCurrent(response);
+            return response;
+        });
     }
 
 
     /**
-     * Retrieves a patient by its DNI.
+     * Retrieves a patient by its DNI, sharing the database load with concurrent lookups of it.
      *
      * @param dni the DNI of the patient to retrieve
      * @return the patient response containing patient details
      * @throws NotFoundException if the patient is not found
      */
     @Override
-    @Transactional(readOnly = true)
     public PatientResponse getPatientByDni(String dni) {
-        log.info(WriteLog.logInfo("Retrieving patient by DNI: " + dni));
-        return PatientMapper.mapToDto(patientRepository.findByDni(dni)
-        .orElseThrow(() -> new NotFoundException("Patient not found with DNI: " + dni)));
+        READ_LOG.info("Retrieving patient by DNI: {}", dni);
+        PatientResponse cached = patientCache.getByDni(dni);
+        if (cached != null)
+            return cached;
+        return patientSingleFlight.load("dni:" + dni, () -> {
+            RoutingContext.resetReplicaRead();
+            PatientResponse response = patientRepository.findResponseByDni(dni)
+                    .orElseThrow(() -> new NotFoundException("Patient not found with DNI: " + dni));
+            cacheIfCurrent(response);
+            return response;
+        });
+    }
+
+    /**
+     * Retrieves many patients by their IDs in one call.
+     *
+     * @param ids the IDs of the patients to retrieve
+     * @return the patients found, in the order of the IDs, and the IDs not found
+     * @throws BadRequestException if the list is empty, too long or contains nulls
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BatchLookupResponse getPatientsByIds(List<UUID> ids) {
+        READ_LOG.info("Retrieving {} patients by ID", ids == null ? 0 : ids.size());
+        return lookup(ids, "IDs", patientCache::getById, patientRepository::findResponsesByIdIn, PatientResponse::getId);
+    }
+
+    /**
+     * Retrieves many patients by their DNIs in one call.
+     *
+     * @param dnis the DNIs of the patients to retrieve
+     * @return the patients found, in the order of the DNIs, and the DNIs not found
+     * @throws BadRequestException if the list is empty, too long or contains nulls
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BatchLookupResponse getPatientsByDnis(List<String> dnis) {
+        READ_LOG.info("Retrieving {} patients by DNI", dnis == null ? 0 : dnis.size());
+        return lookup(dnis, "DNIs", patientCache::getByDni, patientRepository::findResponsesByDniIn, PatientResponse::getDni);
+    }
+
+    /**
+     * Resolves the keys from the cache first and the rest with IN queries of at most
+     * patient.batch.chunk-size keys. Repeated keys are resolved once.
+     */
+    private <K> BatchLookupResponse lookup(List<K> keys, String name, Function<K, PatientResponse> cached,
+                                           Function<List<K>, List<PatientResponse>> query,
+                                           Function<PatientResponse, K> keyOf) {
+        if (keys == null || keys.isEmpty() || keys.size() > batchMaxKeys) {
+            throw new BadRequestException(List.of("Batch lookups must contain between 1 and " + batchMaxKeys + " " + name));
+        }
+        if (keys.stream().anyMatch(Objects::isNull)) {
+            throw new BadRequestException(List.of("Batch lookups must not contain null " + name));
+        }
+        Set<K> unique = new LinkedHashSet<>(keys);
+        RoutingContext.resetReplicaRead();
+        Map<K, PatientResponse> found = new HashMap<>();
+        List<K> pending = new ArrayList<>();
+        for (K key : unique) {
+            PatientResponse patient = cached.apply(key);
+            if (patient != null)
+                found.put(key, patient);
+            else
+                pending.add(key);
+        }
+        for (int from = 0; from < pending.size(); from += batchChunkSize) {
+            for (PatientResponse patient : query.apply(pending.subList(from, Math.min(from + batchChunkSize, pending.size())))) {
+                found.put(keyOf.apply(patient), patient);
+                cacheIfCurrent(patient);
+            }
+        }
+        List<PatientResponse> patients = new ArrayList<>(found.size());
+        List<String> missing = new ArrayList<>();
+        for (K key : unique) {
+            PatientResponse patient = found.get(key);
+            if (patient != null)
+                patients.add(patient);
+            else
+                missing.add(key.toString());
+        }
+        return BatchLookupResponse.builder().patients(patients).missing(missing).build();
+    }
+
+    /**
+     * Retrieves the version of a patient by its ID, from the cache or with a query
+     * that only reads the ID and last update date. Like the patient lookups, concurrent lookups
+     * of the same version share one query and the method is not transactional, so that the
+     * callers waiting for that query do not hold a connection.
+     *
+     * @param id the ID of the patient
+     * @return the version of the patient
+     * @throws NotFoundException if the patient is not found
+     */
+    @Override
+    public PatientVersionResponse getPatientVersionById(UUID id) {
+        PatientResponse cached = patientCache.getById(id);
+        if (cached != null)
+            return version(cached);
+        return patientSingleFlight.load("version:id:" + id, () -> patientRepository.findVersionById(id)
+                .orElseThrow(() -> new NotFoundException("Patient not found with ID: " + id)));
+    }
+
+    /**
+     * Retrieves the version of a patient by its email.
+     *
+     * @param email the email of the patient
+     * @return the version of the patient
+     * @throws NotFoundException if the patient is not found
+     */
+    @Override
+    public PatientVersionResponse getPatientVersionByEmail(String email) {
+        PatientResponse cached = patientCache.getByEmail(email);
+        if (cached != null)
+            return version(cached);
+        return patientSingleFlight.load("version:email:" + email, () -> patientRepository.findVersionByEmail(email)
+                .orElseThrow(() -> new NotFoundException("Patient not found with email: " + email)));
+    }
+
+    /**
+     * Retrieves the version of a patient by its DNI.
+     *
+     * @param dni the DNI of the patient
+     * @return the version of the patient
+     * @throws NotFoundException if the patient is not found
+     */
+    @Override
+    public PatientVersionResponse getPatientVersionByDni(String dni) {
+        PatientResponse cached = patientCache.getByDni(dni);
+        if (cached != null)
+            return version(cached);
+        return patientSingleFlight.load("version:dni:" + dni, () -> patientRepository.findVersionByDni(dni)
+                .orElseThrow(() -> new NotFoundException("Patient not found with DNI: " + dni)));
+    }
+
+    /**
+     * Caches a patient unless it was read from the replica: the replica may still return the
+     * state an update has just evicted, which would then be served to every client, the writer
+     * included, for the whole time to live.
+     */
+    private void cacheIfCurrent(PatientResponse patient) {
+        if (!RoutingContext.readFromReplica())
+            patientCache.put(patient);
+    }
+
+    private static PatientVersionResponse version(PatientResponse patient) {
+        return new PatientVersionResponse(patient.getId(), patient.getLastUpdateDate());
     }
 
     /**
-     * Retrieves a list of patients by their name.
+     * Retrieves a page of patients whose name contains the given text.
+     * The search runs on the in-memory name index and only the patients of the requested page
+     * are loaded from the database; while the index is still being built it falls back to a
+     * LIKE query. At most patient.search.max-results matches can be paged through.
      *
      * @param name the name to search for
-     * @return a list of patient responses containing patient details
+     * @param page the page number to retrieve
+     * @param size the number of patients per page, capped to patient.search.max-page-size
+     * @return a page of patient responses, best matches first
+     * @throws BadRequestException if the page or the size is invalid
      */
     @Override
     @Transactional(readOnly = true)
-    public List<PatientResponse> getPatientsByName(String name) {
-        log.info(WriteLog.logInfo("Retrieving patients by name: " + name));
-        return patientRepository.findByNameContainingIgnoreCase(name)
+    public Page<PatientResponse> getPatientsByName(String name, int page, int size) {
+        READ_LOG.info("Retrieving patients by name: {}", name);
+        validatePage(page, size);
+        PageRequest pr = PageRequest.of(page, Math.min(size, searchMaxPageSize));
+        if (!patientNameIndex.isReady()) {
+            log.warn("Name index not ready, searching the database");
+            validateShardedDepth(pr.getOffset(), pr.getPageSize());
+            return patientRepository.findResponsesByNameContaining(name, pr);
+        }
+        // a page past the reachable matches is empty; the offset is bounded before it is narrowed to an int
+        PatientNameIndex.SearchResult result = patientNameIndex.search(name,
+                (int) Math.min(pr.getOffset(), searchMaxResults), pr.getPageSize(), searchMaxResults);
+        if (result.getIds().isEmpty())
+            return new PageImpl<>(List.of(), pr, result.getTotal());
+        Map<UUID, PatientResponse> patients = patientRepository.findResponsesByIdIn(result.getIds())
                 .stream()
-                .map(PatientMapper::mapToDto)
+                .collect(Collectors.toMap(PatientResponse::getId, Function.identity()));
+        List<PatientResponse> content = result.getIds().stream()
+                .map(patients::get)
+                .filter(Objects::nonNull)
                 .toList();
+        return new PageImpl<>(content, pr, result.getTotal());
     }
 
     /**
@@ -138,11 +568,16 @@ public class PatientServiceImpl implements PatientService {
     @Override
     @Transactional
     public void deletePatient(UUID id) {
-        log.info(WriteLog.logInfo("Deleting patient with ID: " + id));
+        log.info("Deleting patient with ID: {}", id);
         var patient = patientRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Patient not found with ID: " + id));
-        if (patient != null)
+        if (patient != null) {
             patientRepository.delete(patient);
+            patientTombstoneRepository.save(PatientTombstone.builder().patientId(patient.getId()).build());
+            patientCache.evict(patient.getId(), patient.getEmail(), patient.getDni());
+            patientNameIndex.remove(patient.getId());
+            patientKeyFilter.remove(patient.getEmail(), patient.getDni());
+        }
     }
 
     /**
@@ -157,28 +592,48 @@ public class PatientServiceImpl implements PatientService {
     @Override
     @Transactional
     public PatientResponse updatePatient(UUID id, PatientRequest request) {
-        log.info(WriteLog.logInfo("Updating patient with ID: " + id));
+        log.info("Updating patient with ID: {}", id);
         var patient = patientRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Patient not found with ID: " + id));
-        if (!(request.getName() == null) && !request.getName().isEmpty()) {
-            patient.setName(request.getName());
+        // the old email and DNI are evicted too, they may still be cached for this patient
+        patientCache.evict(id, patient.getEmail(), patient.getDni());
+        boolean newEmail = !(request.getEmail() == null) && !request.getEmail().isEmpty()
+                && !request.getEmail().equals(patient.getEmail());
+        boolean newDni = !(request.getDni() == null) && !request.getDni().isEmpty()
+                && !request.getDni().equals(patient.getDni());
+        if (newEmail && !ValidationHelper.validateEmail(request.getEmail())) {
+            throw new BadRequestException(List.of("Invalid email format"));
         }
-        if (!(request.getEmail() == null) && !request.getEmail().isEmpty()) {
-           if (patientRepository.findEmailIsUsed(request.getEmail(), id)) {
-                throw new BadRequestException(List.of("Email is in use by another patient"));
+        if ((newEmail || newDni) && !patientKeyFilter.isAbsent(newEmail ? request.getEmail() : null,
+                newDni ? request.getDni() : null)) {
+            // both unique keys are checked with one query
+            List<PatientKeyView> used = patientRepository.findKeysUsedByOthers(
+                    newEmail ? request.getEmail() : null, newDni ? request.getDni() : null, id);
+            List<String> errors = new ArrayList<>();
+            if (newEmail && used.stream().anyMatch(key -> request.getEmail().equals(key.getEmail()))) {
+                errors.add("Email is in use by another patient");
+            }
+            if (newDni && used.stream().anyMatch(key -> request.getDni().equals(key.getDni()))) {
+                errors.add("DNI is in use by another patient");
             }
-            if (!ValidationHelper.validateEmail(request.getEmail())) {
-                throw new BadRequestException(List.of("Invalid email format"));
+            if (!errors.isEmpty()) {
+                throw new BadRequestException(errors);
             }
+        }
+        if (newEmail || newDni) {
+            patientKeyFilter.remove(newEmail ? patient.getEmail() : null, newDni ? patient.getDni() : null);
+            patientKeyFilter.add(newEmail ? request.getEmail() : null, newDni ? request.getDni() : null);
+        }
+        if (!(request.getName() == null) && !request.getName().isEmpty()) {
+            patient.setName(request.getName());
+        }
+        if (newEmail) {
             patient.setEmail(request.getEmail());
         }
         if (!(request.getAddress() == null) && !request.getAddress().isEmpty()) {
             patient.setAddress(request.getAddress());
         }
-        if (!(request.getDni() == null) && !request.getDni().isEmpty()) {
-            if (patientRepository.findDniIsUsed(request.getDni(), id)) {
-                throw new BadRequestException(List.of("DNI is in use by another patient"));
-            }
+        if (newDni) {
             patient.setDni(request.getDni());
         }
         if (!(request.getPhone() == null) && !request.getPhone().isEmpty()) {
@@ -187,10 +642,43 @@ public class PatientServiceImpl implements PatientService {
         if (!(request.getBirthDate() == null)) {
             patient.setBirthDate(request.getBirthDate());
         }
-        patientRepository.save(patient);
+        try {
+            patientRepository.saveAndFlush(patient);
+        } catch (DataIntegrityViolationException e) {
+            throw ConstraintHelper.translate(e, "Email is in use by another patient", "DNI is in use by another patient");
+        }
+        patientNameIndex.index(patient.getId(), patient.getName());
         return PatientMapper.mapToDto(patient);
     }
 
+    /**
+     * Retrieves the statistics of the patient cache.
+     *
+     * @return the cache statistics
+     */
+    @Override
+    public CacheStatsResponse getCacheStats() {
+        return patientCache.stats();
+    }
+
+    private void validatePage(int page, int size) {
+        List<String> errors = ValidationHelper.validatePage(page, size, pageMaxSize);
+        if (!errors.isEmpty()) {
+            throw new BadRequestException(errors);
+        }
+    }
+
+    /**
+     * Rejects the offset pages that end past patient.sharding.max-page-depth when the patients are
+     * sharded: every shard reads all the patients up to the end of the requested page.
+     */
+    private void validateShardedDepth(long offset, int size) {
+        if (patientShards != null && offset + size > shardedMaxPageDepth) {
+            throw new BadRequestException(List.of("Pages cannot end past the first " + shardedMaxPageDepth
+                    + " patients, use the cursor to page further"));
+        }
+    }
+
     /**
      * Validates the patient request.
      *
@@ -198,33 +686,23 @@ public class PatientServiceImpl implements PatientService {
      * @throws BadRequestException if the request is invalid
      */
     private void validatePatient(PatientRequest request) {
-        log.info(WriteLog.logInfo("Validating patient..."));
-        List<String> errors = new ArrayList<>();
-
-        //validate name
-        if (request.getName() == null || request.getName().isEmpty()) {
-            errors.add("Name cannot be null or empty");
-        }
-        //validate email
-        if (request.getEmail() == null || request.getEmail().isEmpty()) {
-            errors.add("Email cannot be null or empty");
-        } else if (patientRepository.existsByEmail(request.getEmail())) {
-            errors.add("Email already exists");
-        } else if (!ValidationHelper.validateEmail(request.getEmail())) {
-            errors.add("Invalid email format");
-        }
-        //validate address
-        if (request.getAddress() == null || request.getAddress().isEmpty()) {
-            errors.add("Address cannot be null or empty");
-        }
-        //validate dni
-        if (request.getDni() == null || request.getDni().isEmpty()) {
-            errors.add("DNI cannot be null or empty");
-        } else if (patientRepository.existsByDni(request.getDni())) {
-            errors.add("DNI already exists");
+        log.debug("Validating patient");
+        List<String> errors = ValidationHelper.validatePatient(request);
+
+        //validate uniqueness of email and DNI in a single query, unless the key filter rules both out
+        String email = request.getEmail() == null || request.getEmail().isEmpty() ? null : request.getEmail();
+        String dni = request.getDni() == null || request.getDni().isEmpty() ? null : request.getDni();
+        if ((email != null || dni != null) && !patientKeyFilter.isAbsent(email, dni)) {
+            List<PatientKeyView> used = patientRepository.findKeysByEmailOrDni(email, dni);
+            if (email != null && used.stream().anyMatch(key -> email.equals(key.getEmail()))) {
+                errors.add("Email already exists");
+            }
+            if (dni != null && used.stream().anyMatch(key -> dni.equals(key.getDni()))) {
+                errors.add("DNI already exists");
+            }
         }
         if (!errors.isEmpty()) {
-            log.error(WriteLog.logError("Validation errors: " + String.join(", ", errors)));
+            log.warn("Validation errors: {}", errors);
             throw new BadRequestException(errors);
         }
     }
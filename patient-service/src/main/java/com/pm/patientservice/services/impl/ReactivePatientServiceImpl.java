@@ -0,0 +1,136 @@
+package com.pm.patientservice.services.impl;
+
+import com.pm.patientservice.api.exceptions.customs.BadRequestException;
+import com.pm.patientservice.api.exceptions.customs.NotFoundException;
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.reactive.ReactivePatientRepository;
+import com.pm.patientservice.services.cache.PatientCache;
+import com.pm.patientservice.services.contracts.ReactivePatientService;
+import com.pm.patientservice.services.helpers.ValidationHelper;
+import com.pm.patientservice.services.search.PatientNameIndex;
+import com.pm.patientservice.utils.mappers.PatientMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of the ReactivePatientService interface.
+ * Patients are read with R2DBC and mapped with PatientMapper, so they look exactly like the
+ * ones of PatientService; single lookups go through the same patient cache and name searches
+ * through the same in-memory name index. Invalid arguments are rejected when the method is
+ * called, before anything is subscribed, with the validation rules of PatientService.
+ *
+ * @author caito
+ *
+ */
+@Service
+@ConditionalOnProperty(name = "patient.r2dbc.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class ReactivePatientServiceImpl implements ReactivePatientService {
+    /** Logger of the read endpoints, sampled by logback-spring.xml because of its volume. */
+    private static final Logger READ_LOG = LoggerFactory.getLogger("com.pm.patientservice.reads");
+    private final ReactivePatientRepository reactivePatientRepository;
+    private final PatientCache patientCache;
+    private final PatientNameIndex patientNameIndex;
+    @Value("${patient.pagination.max-size:1000}")
+    private int pageMaxSize = 1000;
+    @Value("${patient.search.max-results:1000}")
+    private int searchMaxResults = 1000;
+    @Value("${patient.search.max-page-size:100}")
+    private int searchMaxPageSize = 100;
+
+    @Override
+    public Mono<PatientResponse> getPatientById(UUID id) {
+        READ_LOG.info("Retrieving patient by ID reactively: {}", id);
+        return lookup(() -> patientCache.getById(id), reactivePatientRepository.findById(id),
+                "Patient not found with ID: " + id);
+    }
+
+    @Override
+    public Mono<PatientResponse> getPatientByEmail(String email) {
+        READ_LOG.info("Retrieving patient by email reactively: {}", email);
+        return lookup(() -> patientCache.getByEmail(email), reactivePatientRepository.findByEmail(email),
+                "Patient not found with email: " + email);
+    }
+
+    @Override
+    public Mono<PatientResponse> getPatientByDni(String dni) {
+        READ_LOG.info("Retrieving patient by DNI reactively: {}", dni);
+        return lookup(() -> patientCache.getByDni(dni), reactivePatientRepository.findByDni(dni),
+                "Patient not found with DNI: " + dni);
+    }
+
+    /**
+     * Streams a page of patients ordered by registration date.
+     *
+     * @throws BadRequestException if the page or the size is invalid
+     */
+    @Override
+    public Flux<PatientResponse> getPatients(int page, int size) {
+        READ_LOG.info("Retrieving patients reactively: page {}, size {}", page, size);
+        validatePage(page, size);
+        return reactivePatientRepository.findPage((long) page * size, size)
+                .map(PatientMapper::mapToDto);
+    }
+
+    /**
+     * Streams a page of patients whose name contains the given text, best matches first.
+     * The matches are ranked by the name index and only the patients of the page are read;
+     * while the index is being built the database is searched instead.
+     *
+     * @throws BadRequestException if the page or the size is invalid
+     */
+    @Override
+    public Flux<PatientResponse> getPatientsByName(String name, int page, int size) {
+        READ_LOG.info("Retrieving patients by name reactively: {}", name);
+        validatePage(page, size);
+        int pageSize = Math.min(size, searchMaxPageSize);
+        long offset = (long) page * pageSize;
+        if (!patientNameIndex.isReady()) {
+            log.warn("Name index not ready, searching the database");
+            return reactivePatientRepository.findByNameContaining(name, offset, pageSize)
+                    .map(PatientMapper::mapToDto);
+        }
+        // a page past the reachable matches is empty; the offset is bounded before it is narrowed to an int
+        List<UUID> ids = patientNameIndex.search(name, (int) Math.min(offset, searchMaxResults), pageSize,
+                searchMaxResults).getIds();
+        if (ids.isEmpty())
+            return Flux.empty();
+        // the page is bounded by the page size, so it is gathered once to restore the ranking
+        return reactivePatientRepository.findByIdIn(ids)
+                .collectMap(Patient::getId, Function.identity())
+                .flatMapIterable(patients -> ids.stream()
+                        .filter(patients::containsKey)
+                        .map(id -> PatientMapper.mapToDto(patients.get(id)))
+                        .toList());
+    }
+
+    private Mono<PatientResponse> lookup(Supplier<PatientResponse> cached, Mono<Patient> query, String notFound) {
+        PatientResponse patient = cached.get();
+        if (patient != null)
+            return Mono.just(patient);
+        return query.map(PatientMapper::mapToDto)
+                .doOnNext(patientCache::put)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException(notFound)));
+    }
+
+    private void validatePage(int page, int size) {
+        List<String> errors = ValidationHelper.validatePage(page, size, pageMaxSize);
+        if (!errors.isEmpty()) {
+            throw new BadRequestException(errors);
+        }
+    }
+}
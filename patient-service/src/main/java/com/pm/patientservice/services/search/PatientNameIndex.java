@@ -0,0 +1,309 @@
+package com.pm.patientservice.services.search;
+
+import com.pm.patientservice.persistence.projections.PatientNameView;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.persistence.sharding.PatientShards;
+import com.pm.patientservice.persistence.sharding.ShardContext;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory search index over patient names.
+ * Names are normalized (lower case, no accents) and indexed by trigram for substring search,
+ * and by word for a prefix fast path used by queries shorter than a trigram.
+ * A search keeps only the best matches up to the end of the requested page in a bounded heap,
+ * so common queries do not sort every match.
+ * The index is built from the database when the application is ready, one shard after the other
+ * when the patients are sharded, and kept up to date
+ * by the service on create, update and delete; until it is built, searches report it as not ready.
+ *
+ * @author caito
+ */
+@Component
+@Slf4j
+public class PatientNameIndex {
+    private static final int GRAM = 3;
+    private static final Comparator<Match> MATCH_ORDER = Comparator.comparingInt(Match::rank)
+            .thenComparing(Match::name).thenComparing(Match::id);
+
+    private final PatientRepository patientRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    /** The shards of the patients, only when they are sharded. */
+    @Autowired(required = false)
+    private PatientShards patientShards;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, String> names = new HashMap<>();
+    private final Map<String, Set<UUID>> grams = new HashMap<>();
+    private final NavigableMap<String, Set<UUID>> words = new TreeMap<>();
+    private final Set<UUID> removedWhileBuilding = new HashSet<>();
+    private volatile boolean ready;
+
+    /**
+     * Result of a search: the IDs of the requested page, best match first, and the number of matches.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SearchResult {
+        private final List<UUID> ids;
+        private final long total;
+    }
+
+    public PatientNameIndex(PatientRepository patientRepository, PlatformTransactionManager transactionManager) {
+        this.patientRepository = patientRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Loads every patient name from the database into the index.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        if (patientShards == null) {
+            readOnlyTransaction.executeWithoutResult(status -> load());
+        } else {
+            for (String shard : patientShards.getShards())
+                ShardContext.call(shard, () -> readOnlyTransaction.execute(status -> load()));
+        }
+        lock.writeLock().lock();
+        try {
+            removedWhileBuilding.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Patient name index built with {} patients in {} ms", names.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Indexes the names streamed from the database, skipping the patients removed or indexed meanwhile.
+     */
+    private Void load() {
+        try (Stream<PatientNameView> rows = patientRepository.streamNames()) {
+            rows.forEach(row -> {
+                lock.writeLock().lock();
+                try {
+                    if (!removedWhileBuilding.contains(row.getId()) && !names.containsKey(row.getId()))
+                        insert(row.getId(), row.getName());
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        }
+        return null;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Indexes a patient, replacing its previous name if it was already indexed.
+     * Inside a transaction the change is applied once the transaction commits.
+     *
+     * @param id   the ID of the patient
+     * @param name the name of the patient
+     */
+    public void index(UUID id, String name) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                delete(id);
+                insert(id, name);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Removes a patient from the index.
+     * Inside a transaction the change is applied once the transaction commits.
+     *
+     * @param id the ID of the patient
+     */
+    public void remove(UUID id) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                delete(id);
+                if (!ready)
+                    removedWhileBuilding.add(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Searches patients whose name contains the given text, ignoring case and accents.
+     * Matches are ranked: exact name, name prefix, word prefix and then any other substring,
+     * ties ordered by name. Only the first maxResults ranked matches can be paged through.
+     *
+     * @param text       the text to search for
+     * @param offset     the index of the first match to return
+     * @param limit      the number of matches to return
+     * @param maxResults the maximum number of matches that can be returned
+     * @return the IDs of the requested matches and the number of reachable matches
+     */
+    public SearchResult search(String text, int offset, int limit, int maxResults) {
+        String query = normalize(text);
+        if (query.isEmpty())
+            return new SearchResult(List.of(), 0);
+        // only the best offset + limit matches are kept, the worst of them on top of the heap,
+        // and none when the page starts past the reachable matches: they are only counted
+        int keep = offset >= maxResults ? 0 : (int) Math.min(maxResults, (long) offset + limit);
+        PriorityQueue<Match> best = new PriorityQueue<>(Math.max(1, keep), MATCH_ORDER.reversed());
+        int found = 0;
+        lock.readLock().lock();
+        try {
+            for (UUID id : candidates(query)) {
+                String name = names.get(id);
+                int rank = rank(name, query);
+                if (rank < 0)
+                    continue;
+                found++;
+                if (keep <= 0)
+                    continue;
+                Match match = new Match(id, name, rank);
+                if (best.size() < keep) {
+                    best.add(match);
+                } else if (MATCH_ORDER.compare(match, best.peek()) < 0) {
+                    best.poll();
+                    best.add(match);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(MATCH_ORDER);
+        int total = Math.min(found, maxResults);
+        List<UUID> ids = matches.subList(Math.min(offset, matches.size()), matches.size())
+                .stream()
+                .map(Match::id)
+                .toList();
+        return new SearchResult(ids, total);
+    }
+
+    private record Match(UUID id, String name, int rank) {
+    }
+
+    private Collection<UUID> candidates(String query) {
+        if (query.length() < GRAM) {
+            // prefix fast path: short queries match the beginning of a word
+            Set<UUID> ids = new HashSet<>();
+            for (Set<UUID> posting : words.subMap(query, true, query + Character.MAX_VALUE, false).values())
+                ids.addAll(posting);
+            return ids;
+        }
+        List<Set<UUID>> postings = new ArrayList<>();
+        for (String gram : grams(query)) {
+            Set<UUID> posting = grams.get(gram);
+            if (posting == null)
+                return List.of();
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        List<UUID> ids = new ArrayList<>();
+        for (UUID id : postings.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < postings.size() && inAll; i++)
+                inAll = postings.get(i).contains(id);
+            if (inAll)
+                ids.add(id);
+        }
+        return ids;
+    }
+
+    private static int rank(String name, String query) {
+        if (name.equals(query))
+            return 0;
+        if (name.startsWith(query))
+            return 1;
+        if (name.contains(" " + query))
+            return 2;
+        return name.contains(query) ? 3 : -1;
+    }
+
+    private void insert(UUID id, String name) {
+        String normalized = normalize(name);
+        names.put(id, normalized);
+        for (String gram : grams(normalized))
+            grams.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+        for (String word : words(normalized))
+            words.computeIfAbsent(word, key -> new HashSet<>()).add(id);
+    }
+
+    private void delete(UUID id) {
+        String normalized = names.remove(id);
+        if (normalized == null)
+            return;
+        for (String gram : grams(normalized))
+            removePosting(grams, gram, id);
+        for (String word : words(normalized))
+            removePosting(words, word, id);
+    }
+
+    private static void removePosting(Map<String, Set<UUID>> postings, String key, UUID id) {
+        Set<UUID> posting = postings.get(key);
+        if (posting != null && posting.remove(id) && posting.isEmpty())
+            postings.remove(key);
+    }
+
+    private static Set<String> grams(String normalized) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= normalized.length(); i++)
+            result.add(normalized.substring(i, i + GRAM));
+        return result;
+    }
+
+    private static Set<String> words(String normalized) {
+        Set<String> result = new HashSet<>(Arrays.asList(normalized.split(" ")));
+        result.remove("");
+        return result;
+    }
+
+    /**
+     * Normalizes a name for indexing and searching: lower case, no accents, single spaces.
+     *
+     * @param text the text to normalize
+     * @return the normalized text
+     */
+    public static String normalize(String text) {
+        if (text == null)
+            return "";
+        String stripped = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return stripped.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
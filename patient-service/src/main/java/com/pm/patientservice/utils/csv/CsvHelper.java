@@ -0,0 +1,103 @@
+package com.pm.patientservice.utils.csv;
+
+import com.pm.patientservice.persistence.entities.Patient;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class for reading and writing patients as CSV (RFC 4180).
+ *
+ * @author caito
+ */
+public class CsvHelper {
+    public static final String HEADER = "id,name,email,address,phone,dni,birthDate";
+
+    /**
+     * Formats a patient as a CSV row, without the line separator.
+     *
+     * @param patient the patient to format
+     * @return the CSV row
+     */
+    public static String toRow(Patient patient) {
+        return escape(patient.getId()) + ',' +
+                escape(patient.getName()) + ',' +
+                escape(patient.getEmail()) + ',' +
+                escape(patient.getAddress()) + ',' +
+                escape(patient.getPhone()) + ',' +
+                escape(patient.getDni()) + ',' +
+                escape(patient.getBirthDate());
+    }
+
+    /**
+     * Escapes a value for CSV: values containing a comma, quote or line break are quoted
+     * and their quotes doubled. Null values are written as empty fields.
+     *
+     * @param value the value to escape
+     * @return the escaped value
+     */
+    public static String escape(Object value) {
+        if (value == null)
+            return "";
+        String text = value.toString();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r')
+                return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+    /**
+     * Reads the next record from a CSV stream.
+     * Quoted fields may contain commas, doubled quotes and line breaks; records end with
+     * LF or CRLF. Only the characters of the current record are consumed.
+     *
+     * @param reader the reader to read from
+     * @return the fields of the record, or null at the end of the stream
+     * @throws IOException if reading fails
+     */
+    public static List<String> readRecord(BufferedReader reader) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean read = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            read = true;
+            if (quoted) {
+                if (c != '"') {
+                    field.append((char) c);
+                    continue;
+                }
+                reader.mark(1);
+                if (reader.read() == '"') {
+                    field.append('"');
+                } else {
+                    quoted = false;
+                    reader.reset();
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n')
+                    reader.reset();
+                break;
+            } else {
+                field.append((char) c);
+            }
+        }
+        if (!read)
+            return null;
+        fields.add(field.toString());
+        return fields;
+    }
+}
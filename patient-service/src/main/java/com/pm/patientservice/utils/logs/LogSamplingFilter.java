@@ -0,0 +1,54 @@
+package com.pm.patientservice.utils.logs;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logback turbo filter that keeps one of every {@code rate} events of a logger (and its children)
+ * at INFO level or below, and lets warnings and errors through.
+ * Turbo filters run before the event is created, so the dropped events are never formatted.
+ * It is configured in logback-spring.xml.
+ *
+ * @author caito
+ */
+public class LogSamplingFilter extends TurboFilter {
+    private final AtomicLong counter = new AtomicLong();
+    private String logger;
+    private int rate = 1;
+
+    public void setLogger(String logger) {
+        this.logger = logger;
+    }
+
+    public void setRate(int rate) {
+        this.rate = Math.max(1, rate);
+    }
+
+    @Override
+    public void start() {
+        if (logger == null) {
+            addError("No logger set for the LogSamplingFilter " + getName());
+            return;
+        }
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (rate == 1 || level == null || level.isGreaterOrEqual(Level.WARN) || !matches(logger.getName()))
+            return FilterReply.NEUTRAL;
+        // level checks (format == null) must not consume the sample
+        if (format == null)
+            return FilterReply.NEUTRAL;
+        return counter.getAndIncrement() % rate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean matches(String name) {
+        return name.startsWith(logger) && (name.length() == logger.length() || name.charAt(logger.length()) == '.');
+    }
+}
@@ -45,6 +45,7 @@ public class PatientMapper {
                 .phone(patient.getPhone())
                 .dni(patient.getDni())
                 .birthDate(patient.getBirthDate())
+                .lastUpdateDate(patient.getLastUpdateDate())
                 .build();
     }
 }
@@ -0,0 +1,34 @@
+-- Migration of patients.id to BINARY(16) (MySQL 8).
+--
+-- Run it once, with the service stopped, on databases where patients.id is not BINARY(16) yet:
+--   SELECT data_type, character_maximum_length FROM information_schema.columns
+--    WHERE table_schema = DATABASE() AND table_name = 'patients' AND column_name = 'id';
+-- Nothing has to be done when it already reports binary / 16.
+--
+-- Existing IDs keep their value (UUID_TO_BIN without swap flag stores the same 16 bytes Hibernate
+-- writes), so URLs containing them stay valid. Only new rows get time-ordered IDs.
+--
+-- Both indexes ending with id are dropped and re-created: dropping the column would otherwise
+-- leave them without their tie-breaker, and the seek and change-feed queries rely on it.
+-- The service creates idx_patients_last_update_date_id at startup (ddl-auto: update), so start it
+-- once on the current version before migrating a database it has never run against.
+
+ALTER TABLE patients ADD COLUMN id_bin BINARY(16) NULL;
+
+UPDATE patients SET id_bin = UUID_TO_BIN(id);
+
+ALTER TABLE patients
+    DROP INDEX idx_patients_registration_date_id,
+    DROP INDEX idx_patients_last_update_date_id,
+    DROP PRIMARY KEY,
+    DROP COLUMN id;
+
+ALTER TABLE patients
+    RENAME COLUMN id_bin TO id,
+    MODIFY COLUMN id BINARY(16) NOT NULL,
+    ADD PRIMARY KEY (id),
+    ADD INDEX idx_patients_registration_date_id (registration_date, id),
+    ADD INDEX idx_patients_last_update_date_id (last_update_date, id);
+
+-- Rebuilds the clustered index so the table starts compact.
+OPTIMIZE TABLE patients;
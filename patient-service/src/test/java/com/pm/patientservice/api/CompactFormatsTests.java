@@ -0,0 +1,154 @@
+package com.pm.patientservice.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Integration tests for the content negotiation of the binary formats and the response compression.
+ *
+ * @author caito
+ *
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"server.compression.enabled=true", "server.compression.min-response-size=2KB",
+                "server.compression.mime-types=application/json,application/cbor,application/x-jackson-smile"})
+public class CompactFormatsTests {
+    private static final String PAGE = "/v1/Patients?page=0&size=50";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper json = new ObjectMapper();
+    private List<Patient> patients;
+
+    @BeforeEach
+    void setUp() {
+        patients = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+            patients.add(Patient.builder().name("Jane Roe " + i).email("jane" + i + "@example.com")
+                    .address("Street " + i).dni(String.format("%08dC", i)).build());
+        patients = patientRepository.saveAll(patients);
+    }
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void getPatients_WithBinaryAccept_ShouldReturnSmallerEquivalentPage() throws Exception {
+        // Act
+        HttpResponse<byte[]> jsonPage = get(PAGE, MediaType.APPLICATION_JSON_VALUE, null);
+        HttpResponse<byte[]> cborPage = get(PAGE, MediaType.APPLICATION_CBOR_VALUE, null);
+        HttpResponse<byte[]> smilePage = get(PAGE, "application/x-jackson-smile", null);
+
+        // Assert
+        assertEquals(200, cborPage.statusCode());
+        assertEquals(200, smilePage.statusCode());
+        assertTrue(cborPage.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElse("")
+                .startsWith(MediaType.APPLICATION_CBOR_VALUE));
+        JsonNode expected = json.readTree(jsonPage.body());
+        JsonNode cbor = new ObjectMapper(new CBORFactory()).readTree(cborPage.body());
+        JsonNode smile = new ObjectMapper(new SmileFactory()).readTree(smilePage.body());
+        assertEquals(expected.get("page"), cbor.get("page"));
+        assertEquals(expected.get("page"), smile.get("page"));
+        assertEquals(ids(expected), ids(cbor));
+        assertEquals(ids(expected), ids(smile));
+        assertTrue(cborPage.body().length < jsonPage.body().length);
+        assertTrue(smilePage.body().length < jsonPage.body().length);
+    }
+
+    @Test
+    void getPatients_WithAcceptEncodingGzip_ShouldCompressLargeResponses() throws Exception {
+        // Act
+        HttpResponse<byte[]> plain = get(PAGE, MediaType.APPLICATION_JSON_VALUE, null);
+        HttpResponse<byte[]> compressed = get(PAGE, MediaType.APPLICATION_JSON_VALUE, "gzip");
+        HttpResponse<byte[]> small = get("/v1/Patients/id/" + patients.get(0).getId(),
+                MediaType.APPLICATION_JSON_VALUE, "gzip");
+
+        // Assert
+        assertFalse(plain.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isPresent());
+        assertEquals("gzip", compressed.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+        assertTrue(compressed.body().length < plain.body().length / 2);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.body()))) {
+            assertEquals(json.readTree(plain.body()), json.readTree(in.readAllBytes()));
+        }
+        assertEquals(200, small.statusCode());
+        assertFalse(small.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isPresent());
+    }
+
+    @Test
+    void createPatient_WithSmileBody_ShouldBeAccepted() throws Exception {
+        // Arrange
+        byte[] body = new ObjectMapper(new SmileFactory()).writeValueAsBytes(json.readTree("""
+                {"name":"John Smith","email":"john.smith@example.com","address":"456 Side St","dni":"87654321Z"}
+                """));
+
+        // Act
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(uri("/v1/Patients/create"))
+                .header(HttpHeaders.CONTENT_TYPE, "application/x-jackson-smile")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        // Assert
+        assertEquals(201, response.statusCode());
+        assertTrue(patientRepository.findByDni("87654321Z").isPresent());
+    }
+
+    private HttpResponse<byte[]> get(String path, String accept, String encoding) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path)).header(HttpHeaders.ACCEPT, accept);
+        if (encoding != null)
+            request.header(HttpHeaders.ACCEPT_ENCODING, encoding);
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    /**
+     * The ids of a page, written as text in JSON and as 16 bytes in the binary formats.
+     */
+    private static List<UUID> ids(JsonNode page) throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        for (JsonNode patient : page.get("content")) {
+            JsonNode id = patient.get("id");
+            if (id.isBinary()) {
+                ByteBuffer bytes = ByteBuffer.wrap(id.binaryValue());
+                ids.add(new UUID(bytes.getLong(), bytes.getLong()));
+            } else {
+                ids.add(UUID.fromString(id.asText()));
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,182 @@
+package com.pm.patientservice.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Saturation test of the load shedding of the patient endpoints.
+ * Many more clients than the read limit hammer the lookups on a single connection pool, each
+ * request holding the server for a few more milliseconds to stand in for a slow database:
+ * the excess must fail fast with 503 and Retry-After, never more requests than the limit may
+ * be admitted at once, and the admitted ones never wait for a connection as long as the pool
+ * connection timeout.
+ *
+ * @author caito
+ *
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "patient.concurrency-limit.enabled=true",
+        "patient.concurrency-limit.reads.initial-limit=4",
+        "patient.concurrency-limit.reads.min-limit=1",
+        "patient.concurrency-limit.reads.max-limit=" + ConcurrencyLimitTests.READ_LIMIT,
+        "spring.datasource.hikari.maximum-pool-size=1",
+        "spring.datasource.hikari.connection-timeout=" + ConcurrencyLimitTests.CONNECTION_TIMEOUT_MILLIS
+})
+@Import(ConcurrencyLimitTests.SlowRequests.class)
+public class ConcurrencyLimitTests {
+    private static final int PATIENTS = 50;
+    private static final int CLIENTS = 48;
+    private static final int REQUESTS_PER_CLIENT = 20;
+    static final int READ_LIMIT = 4;
+    static final int CONNECTION_TIMEOUT_MILLIS = 5000;
+    private static final AtomicInteger ADMITTED = new AtomicInteger();
+    private static final AtomicInteger MAX_ADMITTED = new AtomicInteger();
+
+    /**
+     * Runs after the concurrency limit filter: tracks how many requests were admitted at once
+     * and slows each of them down.
+     */
+    @TestConfiguration
+    static class SlowRequests {
+        @Bean
+        FilterRegistrationBean<OncePerRequestFilter> slowRequestFilter() {
+            FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(
+                    new OncePerRequestFilter() {
+                        @Override
+                        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                                        FilterChain chain) throws ServletException, IOException {
+                            MAX_ADMITTED.accumulateAndGet(ADMITTED.incrementAndGet(), Math::max);
+                            try {
+                                Thread.sleep(5);
+                                chain.doFilter(request, response);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            } finally {
+                                ADMITTED.decrementAndGet();
+                            }
+                        }
+                    });
+            registration.addUrlPatterns("/v1/Patients/*");
+            registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+            return registration;
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @BeforeEach
+    void setUp() {
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++)
+            patients.add(Patient.builder().name("Patient " + i).email("patient" + i + "@example.com")
+                    .address("Street " + i).dni(String.format("%08dA", i)).build());
+        patientRepository.saveAll(patients);
+    }
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAllInBatch();
+    }
+
+    private HttpResponse<Void> get(String dni) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v1/Patients/dni/" + dni))
+                .build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    @Test
+    void saturatedReads_ShouldBeShedWithRetryAfterAndKeepLatencyBounded() throws Exception {
+        // Arrange
+        for (int i = 0; i < PATIENTS; i++)
+            assertEquals(200, get(String.format("%08dA", i)).statusCode());
+        MAX_ADMITTED.set(0);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger shed = new AtomicInteger();
+        AtomicInteger other = new AtomicInteger();
+        List<Long> admittedMillis = Collections.synchronizedList(new ArrayList<>());
+
+        // Act
+        List<Future<?>> calls = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            int offset = c;
+            calls.add(clients.submit(() -> {
+                for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                    String dni = String.format("%08dA", (offset + i) % PATIENTS);
+                    long start = System.nanoTime();
+                    HttpResponse<Void> response = get(dni);
+                    long millis = (System.nanoTime() - start) / 1_000_000;
+                    if (response.statusCode() == 200) {
+                        ok.incrementAndGet();
+                        admittedMillis.add(millis);
+                    } else if (response.statusCode() == 503
+                            && response.headers().firstValue(HttpHeaders.RETRY_AFTER).isPresent()) {
+                        shed.incrementAndGet();
+                        // a real client would honour Retry-After, a short pause keeps the test fast
+                        Thread.sleep(10);
+                    } else {
+                        other.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> call : calls)
+            call.get();
+        clients.shutdown();
+
+        // Assert
+        assertEquals(0, other.get());
+        assertTrue(ok.get() > 0);
+        assertTrue(shed.get() > 0, "no request was shed");
+        assertTrue(MAX_ADMITTED.get() <= READ_LIMIT, MAX_ADMITTED.get() + " requests admitted at once");
+        assertEquals(shed.get(), meterRegistry.get("patient.concurrency.rejected").tag("budget", "reads")
+                .counter().count());
+        // admitted requests never queue for a connection until the pool gives up on them
+        long slowest = Collections.max(admittedMillis);
+        assertTrue(slowest < CONNECTION_TIMEOUT_MILLIS, "slowest admitted request took " + slowest + " ms");
+        assertEquals(0, meterRegistry.get("patient.concurrency.in.flight").tag("budget", "reads").gauge().value());
+    }
+}
@@ -0,0 +1,110 @@
+package com.pm.patientservice.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Integration tests for the conditional GET of single patients (ETag and Last-Modified).
+ *
+ * @author caito
+ *
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PatientConditionalGetTests {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        patient = patientRepository.save(Patient.builder().name("John Doe").email("john@example.com")
+                .address("123 Main St").dni("12345678A").build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void getPatient_WithMatchingETag_ShouldReturnNotModified() throws Exception {
+        // Arrange
+        String eTag = mockMvc.perform(get("/v1/Patients/id/" + patient.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        assertFalse(eTag.startsWith("W/"));
+
+        // Act & Assert
+        mockMvc.perform(get("/v1/Patients/id/" + patient.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+        mockMvc.perform(get("/v1/Patients/dni/12345678A").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/v1/Patients/email/john@example.com").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getPatient_AfterUpdate_ShouldReturnNewVersion() throws Exception {
+        // Arrange
+        String eTag = mockMvc.perform(get("/v1/Patients/id/" + patient.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(put("/v1/Patients/update/" + patient.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name":"John Smith","email":"john@example.com","address":"456 Side St","dni":"12345678A"}
+                                """))
+                .andExpect(status().isOk());
+
+        // Act & Assert
+        String newETag = mockMvc.perform(get("/v1/Patients/id/" + patient.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, newETag);
+    }
+
+    @Test
+    void getPatient_WithoutConditionalHeaders_ShouldSkipTheVersionLookup() throws Exception {
+        // Arrange
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        mockMvc.perform(get("/v1/Patients/id/" + patient.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED));
+        mockMvc.perform(get("/v1/Patients/dni/12345678A")).andExpect(status().isOk());
+        mockMvc.perform(get("/v1/Patients/email/john@example.com")).andExpect(status().isOk());
+
+        // Assert: one query per request, the patient itself
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+}
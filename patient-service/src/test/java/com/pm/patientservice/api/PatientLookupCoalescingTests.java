@@ -0,0 +1,115 @@
+package com.pm.patientservice.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.api.models.responses.PatientVersionResponse;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Integration tests for the coalescing of concurrent single patient GETs, counted at the repository.
+ * The repository answers slowly, so that the concurrent requests overlap with the first query.
+ *
+ * @author caito
+ *
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PatientLookupCoalescingTests {
+    private static final int CLIENTS = 8;
+    private static final UUID ID = UUID.randomUUID();
+    private static final LocalDateTime LAST_UPDATE = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoSpyBean
+    private PatientRepository patientRepository;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentGets_ShouldQueryThePatientOnce() throws Exception {
+        // Arrange
+        doAnswer(invocation -> slowly(Optional.of(patient()))).when(patientRepository).findResponseById(any());
+
+        // Act
+        List<Integer> statuses = getConcurrently(null);
+
+        // Assert
+        assertEquals(List.of(200, 200, 200, 200, 200, 200, 200, 200), statuses);
+        verify(patientRepository, times(1)).findResponseById(ID);
+        verify(patientRepository, never()).findVersionById(any());
+    }
+
+    @Test
+    void concurrentConditionalGets_ShouldQueryTheVersionAndThePatientOnce() throws Exception {
+        // Arrange
+        doAnswer(invocation -> slowly(Optional.of(new PatientVersionResponse(ID, LAST_UPDATE))))
+                .when(patientRepository).findVersionById(any());
+        doAnswer(invocation -> slowly(Optional.of(patient()))).when(patientRepository).findResponseById(any());
+
+        // Act
+        List<Integer> statuses = getConcurrently("\"stale\"");
+
+        // Assert
+        assertEquals(List.of(200, 200, 200, 200, 200, 200, 200, 200), statuses);
+        verify(patientRepository, times(1)).findVersionById(ID);
+        verify(patientRepository, times(1)).findResponseById(ID);
+    }
+
+    private List<Integer> getConcurrently(String eTag) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            calls.add(executor.submit(() -> {
+                start.await();
+                var request = get("/v1/Patients/id/" + ID);
+                if (eTag != null)
+                    request.header(HttpHeaders.IF_NONE_MATCH, eTag);
+                return mockMvc.perform(request).andReturn().getResponse().getStatus();
+            }));
+        }
+        start.countDown();
+        List<Integer> statuses = new ArrayList<>();
+        for (Future<Integer> call : calls)
+            statuses.add(call.get());
+        return statuses;
+    }
+
+    private static <T> T slowly(T result) throws InterruptedException {
+        Thread.sleep(500);
+        return result;
+    }
+
+    private static PatientResponse patient() {
+        return PatientResponse.builder().id(ID).name("John Doe").email("john@example.com")
+                .address("123 Main St").dni("12345678A").lastUpdateDate(LAST_UPDATE).build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.pm.patientservice.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.services.search.PatientNameIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Integration tests for the reactive read API, served next to the servlet one on the embedded database.
+ *
+ * @author caito
+ *
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ReactivePatientControllerTests {
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PatientNameIndex patientNameIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private List<Patient> patients;
+
+    @BeforeEach
+    void setUp() {
+        patients = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            patients.add(patientRepository.save(Patient.builder().name("Jane Roe " + i)
+                    .email("jane" + i + "@example.com").address("Street " + i)
+                    .dni(String.format("%08dB", i)).build()));
+        // the patients are saved without the service, so the index is rebuilt from the database
+        patientNameIndex.build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void getPatient_ShouldMatchServletApi() throws Exception {
+        // Arrange
+        Patient patient = patients.get(2);
+
+        // Act
+        HttpResponse<String> byId = get("/v1/reactive/Patients/id/" + patient.getId());
+        HttpResponse<String> byEmail = get("/v1/reactive/Patients/email/" + patient.getEmail());
+        HttpResponse<String> byDni = get("/v1/reactive/Patients/dni/" + patient.getDni());
+        HttpResponse<String> servlet = get("/v1/Patients/id/" + patient.getId());
+
+        // Assert
+        assertEquals(200, byId.statusCode());
+        assertEquals(200, byEmail.statusCode());
+        assertEquals(200, byDni.statusCode());
+        JsonNode expected = objectMapper.readTree(servlet.body());
+        assertEquals(expected, objectMapper.readTree(byId.body()));
+        assertEquals(expected, objectMapper.readTree(byEmail.body()));
+        assertEquals(expected, objectMapper.readTree(byDni.body()));
+    }
+
+    @Test
+    void getPatient_WhenMissing_ShouldReturnNotFound() throws Exception {
+        // Act
+        HttpResponse<String> response = get("/v1/reactive/Patients/dni/99999999Z");
+
+        // Assert
+        assertEquals(404, response.statusCode());
+        assertTrue(response.body().contains("Patient not found with DNI: 99999999Z"));
+    }
+
+    @Test
+    void getPatients_ShouldStreamPageAsNdjson() throws Exception {
+        // Act
+        HttpResponse<String> first = get("/v1/reactive/Patients?page=0&size=3");
+        HttpResponse<String> second = get("/v1/reactive/Patients?page=1&size=3");
+
+        // Assert
+        assertEquals(200, first.statusCode());
+        assertTrue(first.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElse("")
+                .startsWith(MediaType.APPLICATION_NDJSON_VALUE));
+        List<String> ids = new ArrayList<>();
+        ids.addAll(ids(first));
+        ids.addAll(ids(second));
+        assertEquals(patients.stream().map(patient -> patient.getId().toString()).toList(), ids);
+    }
+
+    @Test
+    void getPatientsByName_ShouldStreamMatches() throws Exception {
+        // Act
+        HttpResponse<String> response = get("/v1/reactive/Patients/name/Roe?page=0&size=10");
+
+        // Assert
+        assertEquals(200, response.statusCode());
+        assertEquals(5, ids(response).size());
+    }
+
+    @Test
+    void getPatients_WithInvalidPage_ShouldReturnBadRequest() throws Exception {
+        // Act
+        HttpResponse<String> response = get("/v1/reactive/Patients?page=-1&size=0");
+
+        // Assert
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("Page cannot be negative"));
+        assertTrue(response.body().contains("Size must be greater than zero"));
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<String> ids(HttpResponse<String> response) throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (String line : response.body().split("\n"))
+            if (!line.isBlank())
+                ids.add(objectMapper.readTree(line).get("id").asText());
+        return ids;
+    }
+}
@@ -0,0 +1,96 @@
+package com.pm.patientservice.api.filters;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the AdaptiveLimiter class.
+ *
+ * @author caito
+ *
+ */
+public class AdaptiveLimiterTests {
+    private static final long MILLI = 1_000_000;
+
+    /**
+     * Runs requests that keep the limiter full, all taking the given latency.
+     */
+    private static void saturate(AdaptiveLimiter limiter, int requests, long rttNanos) {
+        for (int i = 0; i < requests; i++) {
+            int inFlight = limiter.tryAcquire();
+            assertTrue(inFlight > 0);
+            limiter.release(limiter.getLimit(), rttNanos, false);
+        }
+    }
+
+    @Test
+    void tryAcquire_ShouldRejectOnceTheLimitIsInFlight() {
+        // Arrange
+        AdaptiveLimiter limiter = new AdaptiveLimiter("reads", 2, 1, 10);
+
+        // Act & Assert
+        assertEquals(1, limiter.tryAcquire());
+        assertEquals(2, limiter.tryAcquire());
+        assertEquals(0, limiter.tryAcquire());
+        limiter.release(2, MILLI, false);
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    void release_WithSteadyLatency_ShouldGrowTheLimitUpToTheMaximum() {
+        // Arrange
+        AdaptiveLimiter limiter = new AdaptiveLimiter("reads", 4, 1, 50);
+
+        // Act
+        saturate(limiter, 500, 2 * MILLI);
+
+        // Assert
+        assertEquals(50, limiter.getLimit());
+    }
+
+    @Test
+    void release_WhenLatencyRises_ShouldShrinkTheLimit() {
+        // Arrange
+        AdaptiveLimiter limiter = new AdaptiveLimiter("reads", 40, 2, 50);
+        saturate(limiter, 200, 2 * MILLI);
+        int before = limiter.getLimit();
+
+        // Act
+        saturate(limiter, 100, 40 * MILLI);
+
+        // Assert
+        assertTrue(limiter.getLimit() < before / 2, "limit " + limiter.getLimit() + " was " + before);
+        assertTrue(limiter.getLimit() >= 2);
+    }
+
+    @Test
+    void release_WhenIdle_ShouldNotGrowTheLimit() {
+        // Arrange
+        AdaptiveLimiter limiter = new AdaptiveLimiter("reads", 10, 1, 50);
+
+        // Act
+        for (int i = 0; i < 200; i++) {
+            limiter.tryAcquire();
+            limiter.release(1, MILLI, false);
+        }
+
+        // Assert
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void release_WhenRequestsFail_ShouldBackOff() {
+        // Arrange
+        AdaptiveLimiter limiter = new AdaptiveLimiter("writes", 10, 1, 20);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+            limiter.release(10, MILLI, true);
+        }
+
+        // Assert
+        assertEquals(5, limiter.getLimit());
+    }
+}
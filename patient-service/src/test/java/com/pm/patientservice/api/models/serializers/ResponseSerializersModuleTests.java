@@ -0,0 +1,95 @@
+package com.pm.patientservice.api.models.serializers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.pm.patientservice.api.models.responses.ErrorResponse;
+import com.pm.patientservice.api.models.responses.ErrorsResponse;
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Unit tests for the ResponseSerializersModule class: the hand-written serializers must write
+ * exactly what Jackson writes by introspection.
+ *
+ * @author caito
+ *
+ */
+public class ResponseSerializersModuleTests {
+    private final ObjectMapper reflective = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper precompiled = Jackson2ObjectMapperBuilder.json()
+            .modulesToInstall(new ResponseSerializersModule()).build();
+
+    @Test
+    void serializePatient_ShouldMatchReflectiveOutput() throws Exception {
+        // Arrange
+        PatientResponse patient = PatientResponse.builder()
+                .id(UUID.fromString("01890a5d-ac96-774b-bcce-b302099a8057"))
+                .name("José \"Pepe\" Pérez").email("jose@example.com").address("Calle 1\n2º B")
+                .phone("555-0001").dni("12345678A")
+                .birthDate(LocalDate.of(1985, 3, 7))
+                .lastUpdateDate(LocalDateTime.of(2024, 11, 2, 9, 5, 3, 123_456_789))
+                .build();
+        PatientResponse empty = new PatientResponse();
+
+        // Act & Assert
+        assertEquals(reflective.writeValueAsString(patient), precompiled.writeValueAsString(patient));
+        assertEquals(reflective.writeValueAsString(empty), precompiled.writeValueAsString(empty));
+    }
+
+    @Test
+    void serializePage_ShouldMatchReflectiveOutput() throws Exception {
+        // Arrange
+        List<PatientResponse> content = List.of(
+                PatientResponse.builder().id(UUID.randomUUID()).name("Ann").birthDate(LocalDate.of(2001, 12, 31)).build(),
+                PatientResponse.builder().id(UUID.randomUUID()).name("Bob").build());
+        PagedModel<PatientResponse> page = new PagedModel<>(new PageImpl<>(content, PageRequest.of(2, 2), 11));
+
+        // Act & Assert
+        assertEquals(reflective.writeValueAsString(page), precompiled.writeValueAsString(page));
+    }
+
+    @Test
+    void serializeErrors_ShouldMatchReflectiveOutput() throws Exception {
+        // Arrange
+        LocalDateTime now = LocalDateTime.of(2025, 1, 15, 23, 59, 59);
+        ErrorResponse error = ErrorResponse.builder().code(404).status("Not Found").timestamp(now)
+                .message("Patient not found").method("GET").path("http://localhost/v1/Patients/id/1").build();
+        ErrorsResponse errors = ErrorsResponse.builder().code(400).status("Bad Request").timestamp(now)
+                .messages(List.of("Name is required", "Email is invalid")).method("POST").path("/v1/Patients/create")
+                .build();
+
+        // Act & Assert
+        assertEquals(reflective.writeValueAsString(error), precompiled.writeValueAsString(error));
+        assertEquals(reflective.writeValueAsString(errors), precompiled.writeValueAsString(errors));
+        assertEquals(reflective.writeValueAsString(new ErrorsResponse()), precompiled.writeValueAsString(new ErrorsResponse()));
+    }
+
+    @Test
+    void serializePatient_WithBinaryFormat_ShouldMatchReflectiveOutput() throws Exception {
+        // Arrange
+        ObjectMapper reflectiveCbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+        ObjectMapper precompiledCbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory())
+                .modulesToInstall(new ResponseSerializersModule()).build();
+        PatientResponse patient = PatientResponse.builder().id(UUID.randomUUID()).name("Ann")
+                .birthDate(LocalDate.of(1999, 1, 1)).build();
+
+        // Act
+        byte[] expected = reflectiveCbor.writeValueAsBytes(patient);
+        byte[] actual = precompiledCbor.writeValueAsBytes(patient);
+
+        // Assert (the maps are written with their length, one byte shorter than an open-ended map)
+        assertEquals(reflectiveCbor.readTree(expected), reflectiveCbor.readTree(actual));
+        assertTrue(reflectiveCbor.readTree(actual).get("id").isBinary());
+    }
+}
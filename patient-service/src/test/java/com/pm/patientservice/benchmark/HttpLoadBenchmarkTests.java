@@ -0,0 +1,276 @@
+package com.pm.patientservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.services.search.PatientNameIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end HTTP load test of every PatientController endpoint. It boots the application on
+ * the embedded H2 database (MySQL mode) of the test profile, seeds the patients table and drives
+ * a mixed read/write workload through the real HTTP stack at a fixed concurrency.
+ * A latency histogram plus p50/p90/p99 per endpoint is written to target/benchmarks/http-load.txt.
+ * Run with: mvn -Pbenchmark test -Dtest=HttpLoadBenchmarkTests
+ * (-Dbenchmark.patients, -Dbenchmark.requests and -Dbenchmark.concurrency change the data set,
+ * the number of requests and the number of concurrent clients).
+ *
+ * @author caito
+ *
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "patient.cache.enabled=true")
+@Slf4j
+public class HttpLoadBenchmarkTests {
+    private static final int PATIENTS = Integer.getInteger("benchmark.patients", 10_000);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 20_000);
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 16);
+    private static final int PAGE_SIZE = 20;
+    /** Upper bounds, in milliseconds, of the histogram buckets. */
+    private static final double[] BUCKETS = {0.5, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000};
+
+    /** Endpoints of the workload with their relative weight in the mix. */
+    private enum Endpoint {
+        GET_BY_ID(25), GET_BY_EMAIL(10), GET_BY_DNI(10), SEARCH_BY_NAME(15), PAGE(10),
+        CREATE(15), UPDATE(10), DELETE(5);
+
+        private final int weight;
+
+        Endpoint(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PatientNameIndex patientNameIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final AtomicInteger sequence = new AtomicInteger(PATIENTS);
+    private final ConcurrentLinkedQueue<String> created = new ConcurrentLinkedQueue<>();
+    private List<Patient> patients;
+    private Endpoint[] mix;
+
+    @Test
+    void mixedWorkload() throws Exception {
+        patients = seed();
+        mix = Arrays.stream(Endpoint.values())
+                .flatMap(endpoint -> Collections.nCopies(endpoint.weight, endpoint).stream())
+                .toArray(Endpoint[]::new);
+        for (int i = 0; i < Math.min(REQUESTS / 10, 2_000); i++)
+            call(mix[i % mix.length], i);
+
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+        AtomicInteger next = new AtomicInteger();
+        List<Future<Map<Endpoint, Recorder>>> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < CONCURRENCY; c++) {
+            workers.add(clients.submit(() -> {
+                Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+                for (int i = next.getAndIncrement(); i < REQUESTS; i = next.getAndIncrement()) {
+                    Endpoint endpoint = mix[(int) ((i * 2654435761L) % mix.length)];
+                    long begin = System.nanoTime();
+                    boolean ok = call(endpoint, i);
+                    recorders.computeIfAbsent(endpoint, e -> new Recorder()).record(System.nanoTime() - begin, ok);
+                }
+                return recorders;
+            }));
+        }
+        Map<Endpoint, Recorder> results = new EnumMap<>(Endpoint.class);
+        for (Future<Map<Endpoint, Recorder>> worker : workers)
+            worker.get().forEach((endpoint, recorder) ->
+                    results.computeIfAbsent(endpoint, e -> new Recorder()).merge(recorder));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        clients.shutdown();
+
+        List<String> report = report(results, seconds);
+        Path file = Path.of("target", "benchmarks", "http-load.txt");
+        Files.createDirectories(file.getParent());
+        Files.write(file, report);
+        log.info("HTTP load test ({} patients, {} requests, {} clients):\n{}", PATIENTS, REQUESTS, CONCURRENCY,
+                String.join("\n", report));
+        assertTrue(results.values().stream().allMatch(recorder -> recorder.errors == 0),
+                "Some requests failed, see " + file);
+    }
+
+    private List<Patient> seed() {
+        patientRepository.deleteAllInBatch();
+        List<Patient> seeded = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++) {
+            seeded.add(Patient.builder()
+                    .name("Patient " + i)
+                    .email("patient" + i + "@example.com")
+                    .address("Street " + i)
+                    .phone("555-" + i)
+                    .dni(String.format("%08dA", i))
+                    .birthDate(LocalDate.of(1950, 1, 1).plusDays(i % 20_000))
+                    .build());
+        }
+        patientRepository.saveAll(seeded);
+        patientNameIndex.build();
+        return seeded;
+    }
+
+    /**
+     * Sends one request of the given endpoint and tells whether it got the expected status.
+     */
+    private boolean call(Endpoint endpoint, int i) throws Exception {
+        Patient patient = patients.get((int) ((i * 40503L) % patients.size()));
+        return switch (endpoint) {
+            case GET_BY_ID -> send(get("/id/" + patient.getId())) == 200;
+            case GET_BY_EMAIL -> send(get("/email/" + patient.getEmail())) == 200;
+            case GET_BY_DNI -> send(get("/dni/" + patient.getDni())) == 200;
+            case SEARCH_BY_NAME -> send(get("/name/" + "ient%20" + (i % 1000) + "?size=" + PAGE_SIZE)) == 200;
+            case PAGE -> send(get("?page=" + (i % (PATIENTS / PAGE_SIZE)) + "&size=" + PAGE_SIZE)) == 200;
+            case CREATE -> {
+                int number = sequence.getAndIncrement();
+                String dni = String.format("%08dB", number);
+                boolean ok = send(json("/create", "POST", request(number, dni))) == 201;
+                if (ok)
+                    created.add(dni);
+                yield ok;
+            }
+            case UPDATE -> {
+                // keeps name and keys so that the searches and lookups of the mix keep matching
+                PatientRequest request = request(i, patient.getDni());
+                request.setName(patient.getName());
+                request.setEmail(patient.getEmail());
+                yield send(json("/update/" + patient.getId(), "PUT", request)) == 200;
+            }
+            case DELETE -> {
+                String dni = created.poll();
+                if (dni == null)
+                    yield send(get("/dni/" + patient.getDni())) == 200;
+                UUID id = patientRepository.findByDni(dni).orElseThrow().getId();
+                yield send(HttpRequest.newBuilder(uri("/delete/" + id)).DELETE().build()) == 204;
+            }
+        };
+    }
+
+    private PatientRequest request(int number, String dni) {
+        return PatientRequest.builder()
+                .name("Patient " + number)
+                .email("patient" + number + "@example.com")
+                .address("Avenue " + number)
+                .phone("555-" + number)
+                .dni(dni)
+                .birthDate(LocalDate.of(1980, 1, 1))
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private HttpRequest json(String path, String method, Object body) throws Exception {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + "/v1/Patients" + path);
+    }
+
+    private int send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static List<String> report(Map<Endpoint, Recorder> results, double seconds) {
+        List<String> report = new ArrayList<>();
+        int total = results.values().stream().mapToInt(recorder -> recorder.count).sum();
+        report.add(String.format("%d requests in %.1f s: %.0f req/s", total, seconds, total / seconds));
+        report.add(String.format("%-15s %8s %7s %9s %9s %9s %9s %9s", "endpoint", "count", "errors",
+                "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        results.forEach((endpoint, recorder) -> report.add(String.format("%-15s %8d %7d %9.0f %9.2f %9.2f %9.2f %9.2f",
+                endpoint, recorder.count, recorder.errors, recorder.count / seconds,
+                recorder.percentile(50), recorder.percentile(90), recorder.percentile(99), recorder.percentile(100))));
+        report.add("");
+        StringBuilder header = new StringBuilder(String.format("%-15s", "histogram ms"));
+        for (double bucket : BUCKETS)
+            header.append(String.format(" %7s", "<=" + (bucket < 1 ? bucket : String.valueOf((int) bucket))));
+        report.add(header.append(String.format(" %7s", ">" + (int) BUCKETS[BUCKETS.length - 1])).toString());
+        results.forEach((endpoint, recorder) -> {
+            StringBuilder line = new StringBuilder(String.format("%-15s", endpoint));
+            for (int count : recorder.histogram())
+                line.append(String.format(" %7d", count));
+            report.add(line.toString());
+        });
+        return report;
+    }
+
+    /**
+     * Latencies recorded for one endpoint. Each client thread has its own recorders,
+     * merged once the workload is over.
+     */
+    private static class Recorder {
+        private long[] nanos = new long[1024];
+        private int count;
+        private int errors;
+
+        void record(long latency, boolean ok) {
+            if (count == nanos.length)
+                nanos = Arrays.copyOf(nanos, count * 2);
+            nanos[count++] = latency;
+            if (!ok)
+                errors++;
+        }
+
+        void merge(Recorder other) {
+            for (int i = 0; i < other.count; i++)
+                record(other.nanos[i], true);
+            errors += other.errors;
+        }
+
+        double percentile(double percentile) {
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * count) - 1;
+            return sorted[Math.max(0, Math.min(index, count - 1))] / 1e6;
+        }
+
+        int[] histogram() {
+            int[] buckets = new int[BUCKETS.length + 1];
+            for (int i = 0; i < count; i++) {
+                double millis = nanos[i] / 1e6;
+                int bucket = 0;
+                while (bucket < BUCKETS.length && millis > BUCKETS[bucket])
+                    bucket++;
+                buckets[bucket]++;
+            }
+            return buckets;
+        }
+    }
+}
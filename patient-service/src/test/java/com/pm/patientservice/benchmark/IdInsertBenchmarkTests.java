@@ -0,0 +1,108 @@
+package com.pm.patientservice.benchmark;
+
+import com.pm.patientservice.persistence.generators.UuidV7Generator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Insert throughput of random (version 4) against time-ordered (version 7) UUID primary keys
+ * stored as BINARY(16). Rows are inserted in JDBC batches into two tables shaped like patients,
+ * and the throughput of every segment shows how it evolves while the table grows.
+ * The report is written to target/benchmarks/id-insert.txt.
+ * Run with: mvn -Pbenchmark test -Dtest=IdInsertBenchmarkTests
+ * (-Dbenchmark.rows changes the number of rows; point spring.datasource.* at a MySQL database
+ * to measure InnoDB instead of the embedded H2).
+ *
+ * @author caito
+ *
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Slf4j
+public class IdInsertBenchmarkTests {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final int WARMUP_ROWS = Math.min(ROWS / 10, 100_000);
+    private static final int SEGMENTS = 10;
+    private static final int BATCH = 1_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void compareRandomAndTimeOrderedIds() throws Exception {
+        // warms up the JIT on both schemes so that the first one measured is not penalized
+        insert("bench_ids_v4", UUID::randomUUID, WARMUP_ROWS);
+        insert("bench_ids_v7", UuidV7Generator::next, WARMUP_ROWS);
+        long[] random = insert("bench_ids_v4", UUID::randomUUID, ROWS);
+        long[] ordered = insert("bench_ids_v7", UuidV7Generator::next, ROWS);
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-12s %14s %14s", "rows", "v4 rows/s", "v7 rows/s"));
+        for (int s = 0; s < SEGMENTS; s++)
+            report.add(String.format("%-12d %14.0f %14.0f", (long) ROWS / SEGMENTS * (s + 1),
+                    rate(random[s]), rate(ordered[s])));
+        report.add(String.format("%-12s %14.0f %14.0f", "total", rate(sum(random)) * SEGMENTS,
+                rate(sum(ordered)) * SEGMENTS));
+        Path file = Path.of("target", "benchmarks", "id-insert.txt");
+        Files.createDirectories(file.getParent());
+        Files.write(file, report);
+        log.info("ID insert benchmark ({} rows):\n{}", ROWS, String.join("\n", report));
+    }
+
+    /**
+     * Inserts the rows into a new table and returns the nanoseconds spent on every segment.
+     */
+    private long[] insert(String table, Supplier<UUID> ids, int rows) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        jdbcTemplate.execute("CREATE TABLE " + table + " (id BINARY(16) NOT NULL PRIMARY KEY, name VARCHAR(75),"
+                + " email VARCHAR(100), dni VARCHAR(9), registration_date TIMESTAMP)");
+        String sql = "INSERT INTO " + table + " (id, name, email, dni, registration_date) VALUES (?, ?, ?, ?, ?)";
+        long[] segments = new long[SEGMENTS];
+        int perSegment = rows / SEGMENTS;
+        int row = 0;
+        try {
+            for (int s = 0; s < SEGMENTS; s++) {
+                long start = System.nanoTime();
+                for (int b = 0; b < perSegment; b += BATCH) {
+                    List<Object[]> batch = new ArrayList<>(BATCH);
+                    for (int i = 0; i < Math.min(BATCH, perSegment - b); i++, row++)
+                        batch.add(new Object[]{bytes(ids.get()), "Patient " + row, "patient" + row + "@example.com",
+                                String.format("%08d", row % 100_000_000), new Timestamp(System.currentTimeMillis())});
+                    jdbcTemplate.batchUpdate(sql, batch);
+                }
+                segments[s] = System.nanoTime() - start;
+            }
+        } finally {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        }
+        return segments;
+    }
+
+    private static double rate(long nanos) {
+        return (double) ROWS / SEGMENTS / (nanos / 1e9);
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values)
+            sum += value;
+        return sum;
+    }
+
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+}
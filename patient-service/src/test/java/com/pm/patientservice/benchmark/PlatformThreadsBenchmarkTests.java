@@ -0,0 +1,29 @@
+package com.pm.patientservice.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Thread mode benchmark of the default mode: requests run on the Tomcat platform thread pool.
+ * Run with: mvn -Pbenchmark test -Dtest='*ThreadsBenchmarkTests' and compare with the virtual mode.
+ *
+ * @author caito
+ *
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.threads.virtual.enabled=false")
+@Import(ThreadModeBenchmark.SimulatedIo.class)
+public class PlatformThreadsBenchmarkTests extends ThreadModeBenchmark {
+
+    @Override
+    String mode() {
+        return "platform";
+    }
+
+    @Override
+    boolean virtual() {
+        return false;
+    }
+}
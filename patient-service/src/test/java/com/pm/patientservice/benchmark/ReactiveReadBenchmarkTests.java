@@ -0,0 +1,129 @@
+package com.pm.patientservice.benchmark;
+
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput and latency of the servlet and the reactive read APIs at high concurrency.
+ * Both serve the same lookups by DNI and pages of patients from the embedded H2 database
+ * (MySQL mode), one after the other in the same application, with the patient cache disabled
+ * so that every request reaches the database: JDBC on a Tomcat thread for the servlet API,
+ * R2DBC for the reactive one.
+ * The report is written to target/benchmarks/reactive-vs-servlet.txt.
+ * Run with: mvn -Pbenchmark test -Dtest=ReactiveReadBenchmarkTests
+ * (-Dbenchmark.concurrency and -Dbenchmark.requests change the number of concurrent clients
+ * and the number of requests per API and endpoint).
+ *
+ * @author caito
+ *
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Slf4j
+public class ReactiveReadBenchmarkTests {
+    private static final int PATIENTS = 1_000;
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 500);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 10_000);
+    private static final int PAGE_SIZE = 20;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+    @Test
+    void servletAndReactiveReads() throws Exception {
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++)
+            patients.add(Patient.builder().name("Patient " + i).email("patient" + i + "@example.com")
+                    .address("Street " + i).dni(String.format("%08dA", i)).build());
+        patientRepository.deleteAllInBatch();
+        patientRepository.saveAll(patients);
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%d clients, %d requests per API and endpoint", CONCURRENCY, REQUESTS));
+        report.add(String.format("%-28s %10s %10s %10s %10s %8s", "", "req/s", "p50 ms", "p99 ms", "max ms", "errors"));
+        int errors = 0;
+        for (String api : List.of("/v1/Patients", "/v1/reactive/Patients")) {
+            IntFunction<String> byDni = i -> api + "/dni/" + String.format("%08dA", i % PATIENTS);
+            IntFunction<String> page = i -> api + "?page=" + i % (PATIENTS / PAGE_SIZE) + "&size=" + PAGE_SIZE;
+            run(byDni, Math.min(REQUESTS / 10, 1_000));
+            Result lookups = run(byDni, REQUESTS);
+            Result pages = run(page, REQUESTS);
+            report.add(lookups.format(api + " dni"));
+            report.add(pages.format(api + " page"));
+            errors += lookups.errors + pages.errors;
+        }
+
+        Path file = Path.of("target", "benchmarks", "reactive-vs-servlet.txt");
+        Files.createDirectories(file.getParent());
+        Files.write(file, report);
+        log.info("Reactive read benchmark:\n{}", String.join("\n", report));
+        assertEquals(0, errors);
+    }
+
+    /**
+     * Sends the requests keeping CONCURRENCY of them in flight.
+     */
+    private Result run(IntFunction<String> path, int requests) throws InterruptedException {
+        Semaphore slots = new Semaphore(CONCURRENCY);
+        AtomicInteger errors = new AtomicInteger();
+        long[] latencies = new long[requests];
+        List<CompletableFuture<?>> calls = new ArrayList<>(requests);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            slots.acquire();
+            int request = i;
+            long sent = System.nanoTime();
+            URI uri = URI.create("http://localhost:" + port + path.apply(i));
+            calls.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((response, failure) -> {
+                        latencies[request] = System.nanoTime() - sent;
+                        slots.release();
+                        if (failure != null || response.statusCode() != 200)
+                            errors.incrementAndGet();
+                    }));
+        }
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        return new Result(requests / seconds, latencies, errors.get());
+    }
+
+    private record Result(double throughput, long[] latencies, int errors) {
+        String format(String name) {
+            return String.format("%-28s %10.0f %10.1f %10.1f %10.1f %8d", name, throughput, percentile(0.5),
+                    percentile(0.99), latencies[latencies.length - 1] / 1e6, errors);
+        }
+
+        double percentile(double p) {
+            return latencies[(int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.pm.patientservice.benchmark;
+
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.utils.mappers.PatientMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * Before/after benchmark of the read path: entity loading plus PatientMapper.mapToDto
+ * against the projection queries that select straight into PatientResponse.
+ * For every read endpoint it reports the mean latency and the bytes allocated per read.
+ * Run with: mvn -Pbenchmark test -Dtest=ReadPathBenchmarkTests
+ * (-Dbenchmark.patients and -Dbenchmark.iterations change the data set and the number of reads).
+ *
+ * @author caito
+ *
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Slf4j
+public class ReadPathBenchmarkTests {
+    private static final int PATIENTS = Integer.getInteger("benchmark.patients", 10_000);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 20_000);
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compareEntityAndProjectionReads() throws Exception {
+        List<Patient> patients = seed();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        int pages = PATIENTS / PAGE_SIZE;
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-10s %14s %14s %14s %14s", "read", "entity ns/op", "dto ns/op",
+                "entity B/op", "dto B/op"));
+        compare(report, readOnly, "by id",
+                i -> PatientMapper.mapToDto(patientRepository.findById(patient(patients, i).getId()).orElseThrow()),
+                i -> patientRepository.findResponseById(patient(patients, i).getId()).orElseThrow());
+        compare(report, readOnly, "by email",
+                i -> PatientMapper.mapToDto(patientRepository.findByEmail(patient(patients, i).getEmail()).orElseThrow()),
+                i -> patientRepository.findResponseByEmail(patient(patients, i).getEmail()).orElseThrow());
+        compare(report, readOnly, "by dni",
+                i -> PatientMapper.mapToDto(patientRepository.findByDni(patient(patients, i).getDni()).orElseThrow()),
+                i -> patientRepository.findResponseByDni(patient(patients, i).getDni()).orElseThrow());
+        compare(report, readOnly, "page",
+                i -> patientRepository.findAll(PageRequest.of(i % pages, PAGE_SIZE)).map(PatientMapper::mapToDto),
+                i -> patientRepository.findResponsePage(PageRequest.of(i % pages, PAGE_SIZE)));
+        compare(report, readOnly, "name page",
+                i -> patientRepository.findAllById(ids(patients, i)).stream().map(PatientMapper::mapToDto).toList(),
+                i -> patientRepository.findResponsesByIdIn(ids(patients, i)));
+
+        Path file = Path.of("target", "benchmarks", "read-path.txt");
+        Files.createDirectories(file.getParent());
+        Files.write(file, report);
+        log.info("Read path benchmark ({} patients, {} reads per case):\n{}", PATIENTS, ITERATIONS,
+                String.join("\n", report));
+    }
+
+    private List<Patient> seed() {
+        patientRepository.deleteAllInBatch();
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++) {
+            patients.add(Patient.builder()
+                    .name("Patient " + i)
+                    .email("patient" + i + "@example.com")
+                    .address("Street " + i)
+                    .phone("555-" + i)
+                    .dni(String.format("%08dA", i))
+                    .build());
+        }
+        patientRepository.saveAll(patients);
+        return patients;
+    }
+
+    private static Patient patient(List<Patient> patients, int i) {
+        return patients.get((int) ((i * 2654435761L) % patients.size()));
+    }
+
+    private static List<UUID> ids(List<Patient> patients, int i) {
+        List<UUID> ids = new ArrayList<>(PAGE_SIZE);
+        for (int j = 0; j < PAGE_SIZE; j++)
+            ids.add(patient(patients, i * PAGE_SIZE + j).getId());
+        return ids;
+    }
+
+    private void compare(List<String> report, TransactionTemplate readOnly, String name,
+                         IntFunction<Object> entity, IntFunction<Object> projection) {
+        double[] before = measure(readOnly, entity);
+        double[] after = measure(readOnly, projection);
+        report.add(String.format("%-10s %14.0f %14.0f %14.0f %14.0f", name, before[0], after[0], before[1], after[1]));
+    }
+
+    /**
+     * Runs the read inside a read-only transaction, as the service does, and returns
+     * the mean nanoseconds and allocated bytes per read.
+     */
+    private double[] measure(TransactionTemplate readOnly, IntFunction<Object> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < ITERATIONS / 5; i++) {
+            int index = i;
+            readOnly.execute(status -> read.apply(index));
+        }
+        long bytes = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            int index = i;
+            readOnly.execute(status -> read.apply(index));
+        }
+        long nanos = System.nanoTime() - start;
+        bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+        return new double[]{(double) nanos / ITERATIONS, (double) bytes / ITERATIONS};
+    }
+}
@@ -0,0 +1,225 @@
+package com.pm.patientservice.benchmark;
+
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput and memory per in-flight request of one thread model, run by
+ * PlatformThreadsBenchmarkTests and VirtualThreadsBenchmarkTests.
+ * Many concurrent clients look patients up by DNI; every request also blocks for a fixed time,
+ * standing in for the network round trip to a remote database that the embedded H2 does not have.
+ * While the load runs, the heap, the live platform threads and the requests in flight are sampled:
+ * the memory per in-flight request is the heap growth plus the stacks reserved for the extra
+ * platform threads (those of the HTTP client in the same JVM included), divided by the requests
+ * in flight.
+ * The reports are written to target/benchmarks/thread-mode-platform.txt and thread-mode-virtual.txt.
+ * (-Dbenchmark.concurrency, -Dbenchmark.requests and -Dbenchmark.io-millis change the number of
+ * concurrent clients, the number of requests and the simulated I/O time).
+ *
+ * @author caito
+ *
+ */
+@Slf4j
+abstract class ThreadModeBenchmark {
+    private static final int PATIENTS = 1_000;
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 1_000);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 20_000);
+    private static final long IO_MILLIS = Long.getLong("benchmark.io-millis", 20);
+    private static final long STACK_BYTES = threadStackBytes();
+    private static final Method IS_VIRTUAL = isVirtualMethod();
+    private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+    private static final AtomicInteger ON_VIRTUAL_THREADS = new AtomicInteger();
+
+    /**
+     * Counts the requests in flight and blocks each of them for the simulated I/O time.
+     */
+    @TestConfiguration
+    static class SimulatedIo {
+        @Bean
+        FilterRegistrationBean<OncePerRequestFilter> simulatedIoFilter() {
+            FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(
+                    new OncePerRequestFilter() {
+                        @Override
+                        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                                        FilterChain chain) throws ServletException, IOException {
+                            IN_FLIGHT.incrementAndGet();
+                            if (isVirtual(Thread.currentThread()))
+                                ON_VIRTUAL_THREADS.incrementAndGet();
+                            try {
+                                Thread.sleep(IO_MILLIS);
+                                chain.doFilter(request, response);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            } finally {
+                                IN_FLIGHT.decrementAndGet();
+                            }
+                        }
+                    });
+            registration.addUrlPatterns("/v1/Patients/*");
+            return registration;
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    /**
+     * The name of the thread model, used in the report.
+     */
+    abstract String mode();
+
+    /**
+     * Whether the requests are expected to run on virtual threads.
+     */
+    abstract boolean virtual();
+
+    @Test
+    void lookupsUnderConcurrency() throws Exception {
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++)
+            patients.add(Patient.builder().name("Patient " + i).email("patient" + i + "@example.com")
+                    .address("Street " + i).dni(String.format("%08dA", i)).build());
+        patientRepository.deleteAllInBatch();
+        patientRepository.saveAll(patients);
+
+        // platform threads are counted from before the warmup, the pools keep the threads it starts
+        int baseThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        run(client, Math.min(REQUESTS / 10, 2_000));
+        ON_VIRTUAL_THREADS.set(0);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseHeap = memory.getHeapMemoryUsage().getUsed();
+        AtomicLong samples = new AtomicLong();
+        AtomicLong heapGrowth = new AtomicLong();
+        AtomicLong threadGrowth = new AtomicLong();
+        AtomicLong inFlight = new AtomicLong();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            int requests = IN_FLIGHT.get();
+            if (requests == 0)
+                return;
+            samples.incrementAndGet();
+            inFlight.addAndGet(requests);
+            heapGrowth.addAndGet(Math.max(0, memory.getHeapMemoryUsage().getUsed() - baseHeap));
+            threadGrowth.addAndGet(Math.max(0, ManagementFactory.getThreadMXBean().getThreadCount() - baseThreads));
+        }, 50, 50, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        int errors = run(client, REQUESTS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        sampler.shutdownNow();
+
+        long n = Math.max(1, samples.get());
+        double averageInFlight = (double) inFlight.get() / n;
+        double heapPerRequest = heapGrowth.get() / n / Math.max(1, averageInFlight);
+        double stacksPerRequest = (double) threadGrowth.get() / n * STACK_BYTES / Math.max(1, averageInFlight);
+        int peakThreads = ManagementFactory.getThreadMXBean().getPeakThreadCount();
+        List<String> report = List.of(
+                String.format("%s threads, %d clients, %d requests, %d ms of I/O per request", mode(),
+                        CONCURRENCY, REQUESTS, IO_MILLIS),
+                String.format("throughput              %10.0f req/s", REQUESTS / seconds),
+                String.format("errors                  %10d", errors),
+                String.format("average in flight       %10.0f", averageInFlight),
+                String.format("peak platform threads   %10d", peakThreads),
+                String.format("heap per in-flight      %10.1f KB", heapPerRequest / 1024),
+                String.format("stacks per in-flight    %10.1f KB (reserved, %d KB per platform thread)",
+                        stacksPerRequest / 1024, STACK_BYTES / 1024),
+                String.format("memory per in-flight    %10.1f KB", (heapPerRequest + stacksPerRequest) / 1024));
+        Path file = Path.of("target", "benchmarks", "thread-mode-" + mode() + ".txt");
+        Files.createDirectories(file.getParent());
+        Files.write(file, report);
+        log.info("Thread mode benchmark:\n{}", String.join("\n", report));
+        assertEquals(0, errors);
+        assertEquals(virtual() ? REQUESTS : 0, ON_VIRTUAL_THREADS.get());
+    }
+
+    /**
+     * Sends the requests keeping CONCURRENCY of them in flight and returns the number that failed.
+     */
+    private int run(HttpClient client, int requests) throws InterruptedException {
+        Semaphore slots = new Semaphore(CONCURRENCY);
+        AtomicInteger errors = new AtomicInteger();
+        List<CompletableFuture<?>> calls = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            slots.acquire();
+            URI uri = URI.create("http://localhost:" + port + "/v1/Patients/dni/" + String.format("%08dA", i % PATIENTS));
+            calls.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        slots.release();
+                        if (failure != null || response.statusCode() != 200)
+                            errors.incrementAndGet();
+                    }));
+        }
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        return errors.get();
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return IS_VIRTUAL != null && (boolean) IS_VIRTUAL.invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Thread.isVirtual only exists on Java 21 and newer, while the build targets Java 17.
+     */
+    private static Method isVirtualMethod() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static long threadStackBytes() {
+        try {
+            com.sun.management.HotSpotDiagnosticMXBean hotSpot =
+                    ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+            return Long.parseLong(hotSpot.getVMOption("ThreadStackSize").getValue()) * 1024;
+        } catch (RuntimeException e) {
+            return 1024 * 1024;
+        }
+    }
+}
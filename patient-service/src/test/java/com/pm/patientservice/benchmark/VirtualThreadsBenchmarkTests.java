@@ -0,0 +1,34 @@
+package com.pm.patientservice.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Thread mode benchmark of the virtual-threads profile: requests run on virtual threads.
+ * It is skipped on runtimes older than Java 21, which have no virtual threads.
+ * Run with: mvn -Pbenchmark test -Dtest='*ThreadsBenchmarkTests' and compare with the platform mode.
+ *
+ * @author caito
+ *
+ */
+@Tag("benchmark")
+@EnabledForJreRange(min = JRE.JAVA_21)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("virtual-threads")
+@Import(ThreadModeBenchmark.SimulatedIo.class)
+public class VirtualThreadsBenchmarkTests extends ThreadModeBenchmark {
+
+    @Override
+    String mode() {
+        return "virtual";
+    }
+
+    @Override
+    boolean virtual() {
+        return true;
+    }
+}
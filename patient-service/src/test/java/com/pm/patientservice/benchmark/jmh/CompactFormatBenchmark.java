@@ -0,0 +1,85 @@
+package com.pm.patientservice.benchmark.jmh;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JMH benchmarks of the time to encode a page of patients in each negotiated format, with and
+ * without gzip. The encoded size of each combination is printed once per trial, so the bytes
+ * and the nanoseconds per page can be read side by side.
+ *
+ * @author caito
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompactFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+    @Param({"20", "100"})
+    private int pageSize;
+    private ObjectMapper mapper;
+    private PagedModel<PatientResponse> page;
+
+    @Setup
+    public void setup() throws IOException {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build();
+            default -> new JsonFactory();
+        };
+        mapper = Jackson2ObjectMapperBuilder.json().factory(factory).build();
+        List<PatientResponse> content = IntStream.range(0, pageSize).mapToObj(this::response).toList();
+        page = new PagedModel<>(new PageImpl<>(content, PageRequest.of(0, pageSize), 10_000));
+        System.out.printf("%n%s, %d patients: %d bytes, %d bytes with gzip%n", format, pageSize,
+                encode().length, encodeGzip().length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] encodeGzip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            mapper.writeValue(out, page);
+        }
+        return bytes.toByteArray();
+    }
+
+    private PatientResponse response(int index) {
+        return PatientResponse.builder()
+                .id(UUID.randomUUID())
+                .name("Patient " + index)
+                .email("patient" + index + "@mail.com")
+                .address("Fake Street " + index)
+                .phone("555-" + index)
+                .dni(String.valueOf(10_000_000 + index))
+                .birthDate(LocalDate.of(1990, 1, 1).plusDays(index))
+                .build();
+    }
+}
@@ -0,0 +1,42 @@
+package com.pm.patientservice.benchmark.jmh;
+
+import ch.qos.logback.classic.Level;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of a service log call when its level is disabled: the message built eagerly
+ * before the level check against the parameterized call used by the services.
+ *
+ * @author caito
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+    private static final Logger log = LoggerFactory.getLogger("com.pm.patientservice.reads");
+
+    private final UUID id = UUID.randomUUID();
+
+    @Setup
+    public void setup() {
+        ((ch.qos.logback.classic.Logger) log).setLevel(Level.WARN);
+    }
+
+    @Benchmark
+    public void eager() {
+        log.info("Retrieving patient by ID: " + id);
+    }
+
+    @Benchmark
+    public void parameterized() {
+        log.info("Retrieving patient by ID: {}", id);
+    }
+}
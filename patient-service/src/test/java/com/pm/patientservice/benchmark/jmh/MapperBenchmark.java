@@ -0,0 +1,52 @@
+package com.pm.patientservice.benchmark.jmh;
+
+import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.utils.mappers.PatientMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the request and response mappings of {@link PatientMapper}.
+ *
+ * @author caito
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private PatientRequest request;
+    private Patient patient;
+
+    @Setup
+    public void setup() {
+        request = PatientRequest.builder()
+                .name("John Doe")
+                .email("john.doe@mail.com")
+                .address("Fake Street 123")
+                .phone("555-1234")
+                .dni("12345678")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .build();
+        patient = PatientMapper.mapToEntity(request);
+        patient.setId(UUID.randomUUID());
+    }
+
+    @Benchmark
+    public Patient mapToEntity() {
+        return PatientMapper.mapToEntity(request);
+    }
+
+    @Benchmark
+    public PatientResponse mapToDto() {
+        return PatientMapper.mapToDto(patient);
+    }
+}
@@ -0,0 +1,74 @@
+package com.pm.patientservice.benchmark.jmh;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.api.models.serializers.ResponseSerializersModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * JMH benchmarks for the JSON serialization of a single patient and of a page of patients,
+ * using an ObjectMapper built the same way Spring Boot builds the application one, either with
+ * the serializers found by introspection or with the hand-written ones of ResponseSerializersModule.
+ * Run with -prof gc (the default of the jmh profile) to compare the allocation per operation.
+ *
+ * @author caito
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"10", "100"})
+    private int pageSize;
+    @Param({"reflective", "precompiled"})
+    private String serializers;
+    private ObjectMapper mapper;
+    private PatientResponse patient;
+    private PagedModel<PatientResponse> page;
+
+    @Setup
+    public void setup() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if ("precompiled".equals(serializers))
+            builder.modulesToInstall(new ResponseSerializersModule());
+        mapper = builder.build();
+        patient = response(0);
+        List<PatientResponse> content = IntStream.range(0, pageSize).mapToObj(this::response).toList();
+        page = new PagedModel<>(new PageImpl<>(content, PageRequest.of(0, pageSize), 10_000));
+    }
+
+    @Benchmark
+    public byte[] patient() throws Exception {
+        return mapper.writeValueAsBytes(patient);
+    }
+
+    @Benchmark
+    public byte[] page() throws Exception {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    private PatientResponse response(int index) {
+        return PatientResponse.builder()
+                .id(UUID.randomUUID())
+                .name("Patient " + index)
+                .email("patient" + index + "@mail.com")
+                .address("Fake Street " + index)
+                .phone("555-" + index)
+                .dni(String.valueOf(10_000_000 + index))
+                .birthDate(LocalDate.of(1990, 1, 1).plusDays(index))
+                .build();
+    }
+}
@@ -0,0 +1,55 @@
+package com.pm.patientservice.benchmark.jmh;
+
+import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.services.helpers.ValidationHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks for the validations executed on every create and update request.
+ *
+ * @author caito
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    @Param({"john.doe@mail.com", "john.doe@mail"})
+    private String email;
+    private final String password = "S3cure#Passw0rd";
+    private PatientRequest request;
+
+    @Setup
+    public void setup() {
+        request = PatientRequest.builder()
+                .name("John Doe")
+                .email(email)
+                .address("Fake Street 123")
+                .phone("555-1234")
+                .dni("12345678")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    @Benchmark
+    public boolean validateEmail() {
+        return ValidationHelper.validateEmail(email);
+    }
+
+    @Benchmark
+    public boolean validatePassword() {
+        return ValidationHelper.validatePassword(password);
+    }
+
+    @Benchmark
+    public List<String> validatePatient() {
+        return ValidationHelper.validatePatient(request);
+    }
+}
@@ -0,0 +1,64 @@
+package com.pm.patientservice.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.services.contracts.PatientService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+
+/**
+ * Integration tests for the metrics registered for the service, the repository,
+ * Hibernate and the connection pool.
+ *
+ * @author caito
+ *
+ */
+@SpringBootTest
+public class PatientMetricsTests {
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void serviceAndRepositoryCalls_ShouldBeTimed() {
+        // Act
+        patientService.createPatient(PatientRequest.builder().name("John Doe").email("john@example.com")
+                .address("123 Main St").dni("12345678A").birthDate(LocalDate.of(1990, 5, 17)).build());
+        patientService.getPatientByDni("12345678A");
+
+        // Assert
+        Timer service = meterRegistry.find("patient.service").tag("method", "getPatientByDni").timer();
+        assertNotNull(service);
+        assertEquals(1, service.count());
+        Timer repository = meterRegistry.find("spring.data.repository.invocations")
+                .tag("method", "findResponseByDni").timer();
+        assertNotNull(repository);
+        assertTrue(repository.count() >= 1);
+    }
+
+    @Test
+    void hibernateAndPoolMetrics_ShouldBeRegistered() {
+        assertNotNull(meterRegistry.find("hibernate.statements").functionCounter());
+        assertNotNull(meterRegistry.find("hibernate.flushes").functionCounter());
+        assertNotNull(meterRegistry.find("hikaricp.connections.acquire").timer());
+        assertNotNull(meterRegistry.find("hikaricp.connections.pending").gauge());
+    }
+}
@@ -0,0 +1,92 @@
+package com.pm.patientservice.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.projections.PatientKeyView;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Integration tests for the custom queries of PatientRepository.
+ * They run against the embedded H2 database configured for tests.
+ *
+ * @author caito
+ *
+ */
+@DataJpaTest
+public class PatientRepositoryTests {
+    @Autowired
+    private PatientRepository patientRepository;
+
+    private Patient newPatient(int i) {
+        return Patient.builder()
+                .name("Patient " + i)
+                .email("patient" + i + "@example.com")
+                .dni(String.format("%08dA", i))
+                .address("Street " + i)
+                .build();
+    }
+
+    @Test
+    void seekPages_ShouldWalkAllPatientsOnceInOrder() {
+        // Arrange
+        for (int i = 0; i < 25; i++) {
+            patientRepository.save(newPatient(i));
+        }
+        patientRepository.flush();
+
+        // Act
+        List<UUID> seen = new ArrayList<>();
+        List<Patient> page = patientRepository.findFirstSeekPage(PageRequest.of(0, 10));
+        while (!page.isEmpty()) {
+            page.forEach(p -> seen.add(p.getId()));
+            Patient last = page.get(page.size() - 1);
+            page = patientRepository.findSeekPageAfter(last.getRegistrationDate(), last.getId(), PageRequest.of(0, 10));
+        }
+
+        // Assert
+        assertEquals(25, seen.size());
+        assertEquals(25, seen.stream().distinct().count());
+    }
+
+    @Test
+    void findKeysByEmailsOrDnis_ShouldReturnPatientsMatchingEitherKey() {
+        // Arrange
+        patientRepository.saveAll(List.of(newPatient(1), newPatient(2), newPatient(3)));
+        patientRepository.flush();
+
+        // Act
+        List<PatientKeyView> keys = patientRepository.findKeysByEmailsOrDnis(
+                Set.of("patient1@example.com", "unknown@example.com"), Set.of("00000003A"));
+
+        // Assert
+        assertEquals(Set.of("patient1@example.com", "patient3@example.com"),
+                Set.copyOf(keys.stream().map(PatientKeyView::getEmail).toList()));
+    }
+
+    @Test
+    void responseQueries_ShouldSelectStraightIntoPatientResponse() {
+        // Arrange
+        Patient patient = patientRepository.saveAndFlush(newPatient(7));
+
+        // Act
+        PatientResponse byId = patientRepository.findResponseById(patient.getId()).orElseThrow();
+        PatientResponse byDni = patientRepository.findResponseByDni("00000007A").orElseThrow();
+
+        // Assert
+        assertEquals(patient.getId(), byId.getId());
+        assertEquals("patient7@example.com", byId.getEmail());
+        assertEquals(byId, byDni);
+        assertEquals(1, patientRepository.findResponsesByNameContaining("PATIENT 7", PageRequest.of(0, 10)).getTotalElements());
+    }
+}
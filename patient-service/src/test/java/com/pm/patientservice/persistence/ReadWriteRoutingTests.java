@@ -0,0 +1,249 @@
+package com.pm.patientservice.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.pm.patientservice.api.exceptions.customs.NotFoundException;
+import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.api.models.responses.ChangeFeedResponse;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.persistence.routing.ReplicaLagMonitor;
+import com.pm.patientservice.services.contracts.PatientChangeFeedService;
+import com.pm.patientservice.services.contracts.PatientService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Integration tests for the read/write routing data source.
+ * Two embedded H2 databases stand for the primary and the replica; as there is no replication
+ * between them, a patient stored in only one of them shows where every read went.
+ *
+ * @author caito
+ *
+ */
+@SpringBootTest(properties = {
+        "patient.datasource.replica.enabled=true",
+        "patient.datasource.replica.url=jdbc:h2:mem:pm_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "patient.datasource.replica.username=sa",
+        "patient.datasource.replica.lag-query=SELECT lag_seconds FROM replica_lag",
+        "patient.datasource.replica.max-lag=5s",
+        "patient.datasource.replica.check-interval=1h",
+        "patient.datasource.replica.sticky-window=1m"
+})
+@AutoConfigureMockMvc
+public class ReadWriteRoutingTests {
+    private static final String PATIENT = """
+            {"name":"John Doe","email":"john@example.com","address":"123 Main St","dni":"12345678A"}
+            """;
+
+    /**
+     * An endpoint running a read-only transaction and then a write in the same request.
+     */
+    @TestConfiguration
+    static class ReadThenWrite {
+        @RestController
+        static class ReadThenWriteController {
+            private final PatientService patientService;
+
+            ReadThenWriteController(PatientService patientService) {
+                this.patientService = patientService;
+            }
+
+            @PostMapping("/test/read-then-create")
+            void readThenCreate(@RequestBody PatientRequest request) {
+                patientService.getPatients(0, 10);
+                patientService.createPatient(request);
+            }
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PatientChangeFeedService patientChangeFeedService;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        replica = new JdbcTemplate(replicaDataSource);
+        if (replica.queryForObject("SELECT COUNT(*) FROM information_schema.tables WHERE table_name = 'patients'",
+                Integer.class) == 0) {
+            // copies the schema Hibernate created on the primary
+            for (String statement : new JdbcTemplate(primaryDataSource).queryForList("SCRIPT NODATA", String.class))
+                if (statement.startsWith("CREATE") && !statement.startsWith("CREATE USER"))
+                    replica.execute(statement);
+            replica.execute("CREATE TABLE replica_lag (lag_seconds INT)");
+            replica.execute("INSERT INTO replica_lag VALUES (0)");
+        }
+        replica.update("UPDATE replica_lag SET lag_seconds = 0");
+        replicaLagMonitor.check();
+    }
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAll();
+        replica.update("DELETE FROM patients");
+    }
+
+    @Test
+    void readOnlyTransactions_ShouldUseTheReplicaAndWritesThePrimary() throws Exception {
+        // Act
+        mockMvc.perform(post("/v1/Patients/create").contentType(MediaType.APPLICATION_JSON).content(PATIENT))
+                .andExpect(status().isCreated());
+
+        // Assert
+        assertEquals(1, new JdbcTemplate(primaryDataSource).queryForObject("SELECT COUNT(*) FROM patients", Integer.class));
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM patients", Integer.class));
+        assertThrows(NotFoundException.class, () -> patientService.getPatientByDni("12345678A"));
+    }
+
+    @Test
+    void eachTransactionOfARequest_ShouldBeRoutedOnItsOwn() throws Exception {
+        // Act
+        mockMvc.perform(post("/test/read-then-create").header("X-Client-Id", "read-then-write")
+                        .contentType(MediaType.APPLICATION_JSON).content(PATIENT))
+                .andExpect(status().isOk());
+
+        // Assert: the write did not reuse the replica connection of the read
+        assertEquals(1, new JdbcTemplate(primaryDataSource).queryForObject("SELECT COUNT(*) FROM patients", Integer.class));
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM patients", Integer.class));
+    }
+
+    @Test
+    void reads_ShouldStayOnThePrimaryAfterTheClientWrote() throws Exception {
+        // Act
+        mockMvc.perform(post("/v1/Patients/create").header("X-Client-Id", "writer")
+                        .contentType(MediaType.APPLICATION_JSON).content(PATIENT))
+                .andExpect(status().isCreated());
+
+        // Assert
+        mockMvc.perform(get("/v1/Patients/dni/12345678A").header("X-Client-Id", "writer"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/v1/Patients/dni/12345678A").header("X-Client-Id", "reader"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void reads_ShouldFallBackToThePrimaryWhenTheReplicaLags() throws Exception {
+        // Arrange
+        mockMvc.perform(post("/v1/Patients/create").contentType(MediaType.APPLICATION_JSON).content(PATIENT))
+                .andExpect(status().isCreated());
+        replica.update("UPDATE replica_lag SET lag_seconds = 60");
+
+        // Act
+        replicaLagMonitor.check();
+
+        // Assert
+        assertFalse(replicaLagMonitor.isReplicaUsable());
+        assertEquals("John Doe", patientService.getPatientByDni("12345678A").getName());
+    }
+
+    @Test
+    void changeFeed_ShouldReadThePrimaryEvenWhenTheReplicaIsUsable() throws Exception {
+        // Arrange: the replica has not received the patient yet
+        mockMvc.perform(post("/v1/Patients/create").header("X-Client-Id", "feed-writer")
+                        .contentType(MediaType.APPLICATION_JSON).content(PATIENT))
+                .andExpect(status().isCreated());
+
+        // Act
+        ChangeFeedResponse changes = patientChangeFeedService.getChanges(null, 10);
+
+        // Assert
+        assertTrue(replicaLagMonitor.isReplicaUsable());
+        assertEquals(List.of("12345678A"), changes.getChanges().stream()
+                .map(change -> change.getPatient().getDni()).toList());
+    }
+
+    /**
+     * The same routing with the patient cache enabled.
+     */
+    @Nested
+    @TestPropertySource(properties = "patient.cache.enabled=true")
+    class WithTheCache {
+        // the beans of this context, not those the enclosing instance got
+        @Autowired
+        private MockMvc mockMvc;
+
+        @Autowired
+        private PatientRepository patientRepository;
+
+        @Autowired
+        private ReplicaLagMonitor replicaLagMonitor;
+
+        @BeforeEach
+        void setUp() {
+            replicaLagMonitor.check();
+        }
+
+        @Test
+        void readsFromTheReplica_ShouldNotBeCached() throws Exception {
+            // Arrange: the replica still has the patient as created, the primary has the writer's update
+            mockMvc.perform(post("/v1/Patients/create").header("X-Client-Id", "cached-writer")
+                            .contentType(MediaType.APPLICATION_JSON).content(PATIENT))
+                    .andExpect(status().isCreated());
+            Map<String, Object> created = new JdbcTemplate(primaryDataSource).queryForMap("SELECT * FROM patients");
+            replica.update("INSERT INTO patients (" + String.join(", ", created.keySet()) + ") VALUES ("
+                    + String.join(", ", Collections.nCopies(created.size(), "?")) + ")", created.values().toArray());
+            UUID id = patientRepository.findByDni("12345678A").orElseThrow().getId();
+            mockMvc.perform(put("/v1/Patients/update/" + id).header("X-Client-Id", "cached-writer")
+                            .contentType(MediaType.APPLICATION_JSON).content(PATIENT.replace("John", "Jane")))
+                    .andExpect(status().isOk());
+
+            // Act: another client reads the lagging replica, alone and in a batch
+            mockMvc.perform(get("/v1/Patients/dni/12345678A").header("X-Client-Id", "cached-reader"))
+                    .andExpect(jsonPath("$.name").value("John Doe"));
+            mockMvc.perform(post("/v1/Patients/batch/dnis").header("X-Client-Id", "cached-reader")
+                            .contentType(MediaType.APPLICATION_JSON).content("[\"12345678A\"]"))
+                    .andExpect(jsonPath("$.patients[0].name").value("John Doe"));
+
+            // Assert: the writer still reads its own update
+            mockMvc.perform(get("/v1/Patients/dni/12345678A").header("X-Client-Id", "cached-writer"))
+                    .andExpect(jsonPath("$.name").value("Jane Doe"));
+            mockMvc.perform(get("/v1/Patients/id/" + id).header("X-Client-Id", "cached-writer"))
+                    .andExpect(jsonPath("$.name").value("Jane Doe"));
+        }
+    }
+}
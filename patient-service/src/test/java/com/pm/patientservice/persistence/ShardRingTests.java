@@ -0,0 +1,61 @@
+package com.pm.patientservice.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.pm.patientservice.persistence.sharding.ShardRing;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for the consistent-hashing ring of the shards.
+ *
+ * @author caito
+ *
+ */
+public class ShardRingTests {
+    private static final int DNIS = 30_000;
+
+    @Test
+    void spreadsDnisEvenly() {
+        ShardRing ring = new ShardRing(List.of("shard-0", "shard-1", "shard-2"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < DNIS; i++)
+            counts.merge(ring.shardFor(dni(i)), 1, Integer::sum);
+
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertEquals(DNIS / 3.0, count, DNIS / 3.0 * 0.2));
+    }
+
+    @Test
+    void addingAShardOnlyMovesDnisToIt() {
+        ShardRing ring = new ShardRing(List.of("shard-0", "shard-1", "shard-2"), 128);
+        ShardRing grown = new ShardRing(List.of("shard-0", "shard-1", "shard-2", "shard-3"), 128);
+        int moved = 0;
+        for (int i = 0; i < DNIS; i++) {
+            String before = ring.shardFor(dni(i));
+            String after = grown.shardFor(dni(i));
+            if (!before.equals(after)) {
+                assertEquals("shard-3", after);
+                moved++;
+            }
+        }
+
+        assertEquals(DNIS / 4.0, moved, DNIS / 4.0 * 0.2);
+    }
+
+    @Test
+    void placesADniAlwaysOnTheSameShard() {
+        ShardRing ring = new ShardRing(List.of("shard-0", "shard-1"), 128);
+        ShardRing same = new ShardRing(List.of("shard-0", "shard-1"), 128);
+
+        for (int i = 0; i < 1_000; i++)
+            assertEquals(ring.shardFor(dni(i)), same.shardFor(dni(i)));
+    }
+
+    private static String dni(int i) {
+        return String.format("%08dA", i);
+    }
+}
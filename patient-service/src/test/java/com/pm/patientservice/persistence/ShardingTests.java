@@ -0,0 +1,355 @@
+package com.pm.patientservice.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.pm.patientservice.api.exceptions.customs.BadRequestException;
+import com.pm.patientservice.api.exceptions.customs.NotFoundException;
+import com.pm.patientservice.api.models.requests.ExportFormat;
+import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.api.models.responses.BulkItemResponse;
+import com.pm.patientservice.api.models.responses.CursorPageResponse;
+import com.pm.patientservice.api.models.responses.ImportStatusResponse;
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.persistence.sharding.ShardContext;
+import com.pm.patientservice.persistence.sharding.ShardRing;
+import com.pm.patientservice.persistence.sharding.ShardRoutingDataSource;
+import com.pm.patientservice.services.cache.PatientKeyFilter;
+import com.pm.patientservice.services.contracts.PatientExportService;
+import com.pm.patientservice.services.contracts.PatientImportService;
+import com.pm.patientservice.services.contracts.PatientService;
+import com.pm.patientservice.services.search.PatientNameIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Integration tests for the sharding of the patients.
+ * Three embedded H2 databases stand for the shards; counting the patients of each one shows
+ * where every write went. A test controller looks patients of two shards up in one request.
+ *
+ * @author caito
+ *
+ */
+@SpringBootTest(properties = {
+        "patient.sharding.enabled=true",
+        "patient.r2dbc.enabled=false",
+        "patient.sharding.scatter-timeout=30s",
+        "patient.sharding.shards[0].name=shard-0",
+        "patient.sharding.shards[0].url=jdbc:h2:mem:pm_shard0;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "patient.sharding.shards[0].username=sa",
+        "patient.sharding.shards[1].name=shard-1",
+        "patient.sharding.shards[1].url=jdbc:h2:mem:pm_shard1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "patient.sharding.shards[1].username=sa",
+        "patient.sharding.shards[2].name=shard-2",
+        "patient.sharding.shards[2].url=jdbc:h2:mem:pm_shard2;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "patient.sharding.shards[2].username=sa"
+})
+@AutoConfigureMockMvc
+public class ShardingTests {
+    private static final int PATIENTS = 60;
+    private static final Comparator<UUID> ID_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PatientNameIndex patientNameIndex;
+
+    @Autowired
+    private PatientKeyFilter patientKeyFilter;
+
+    @Autowired
+    private ShardRing shardRing;
+
+    @Autowired
+    private ShardRoutingDataSource shardRoutingDataSource;
+
+    @Autowired
+    private PatientImportService patientImportService;
+
+    @Autowired
+    private PatientExportService patientExportService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @TestConfiguration
+    static class TwoShards {
+        @RestController
+        static class TwoShardsController {
+            private final PatientService patientService;
+
+            TwoShardsController(PatientService patientService) {
+                this.patientService = patientService;
+            }
+
+            @GetMapping("/test/two-shards")
+            String lookUpBoth(@RequestParam String first, @RequestParam String second) {
+                return patientService.getPatientByDni(first).getId() + "," + patientService.getPatientByDni(second).getId();
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void storesEveryPatientOnTheShardOfItsDni() {
+        createPatients();
+
+        int total = 0;
+        for (String shard : shardRing.getShards()) {
+            List<String> dnis = shard(shard).queryForList("SELECT dni FROM patients", String.class);
+            assertFalse(dnis.isEmpty(), "no patient on " + shard);
+            dnis.forEach(dni -> assertEquals(shard, shardRing.shardFor(dni)));
+            total += dnis.size();
+        }
+        assertEquals(PATIENTS, total);
+        assertEquals(PATIENTS, patientRepository.count());
+    }
+
+    @Test
+    void looksPatientsUpOnTheirShard() {
+        List<UUID> ids = createPatients();
+
+        for (int i = 0; i < PATIENTS; i += 7) {
+            PatientResponse byDni = patientService.getPatientByDni(dni(i));
+            assertEquals(ids.get(i), byDni.getId());
+            assertEquals(byDni.getId(), patientService.getPatientById(ids.get(i)).getId());
+            assertEquals(byDni.getId(), patientService.getPatientByEmail(email(i)).getId());
+        }
+        assertEquals(PATIENTS, patientService.getPatientsByIds(ids).getPatients().size());
+        assertEquals(List.of("99999999Z"), patientService.getPatientsByDnis(List.of(dni(0), "99999999Z")).getMissing());
+        assertThrows(NotFoundException.class, () -> patientService.getPatientById(UUID.randomUUID()));
+    }
+
+    @Test
+    void keepsEmailsUniqueAcrossShards() {
+        patientService.createPatient(request(0));
+        // a DNI placed on another shard than the first patient
+        String otherDni = IntStream.range(1, 1_000).mapToObj(ShardingTests::dni)
+                .filter(dni -> !shardRing.shardFor(dni).equals(shardRing.shardFor(dni(0))))
+                .findFirst().orElseThrow();
+        PatientRequest sameEmail = request(1);
+        sameEmail.setEmail(email(0));
+        sameEmail.setDni(otherDni);
+
+        BadRequestException ex = assertThrows(BadRequestException.class, () -> patientService.createPatient(sameEmail));
+
+        assertEquals(List.of("Email already exists"), ex.getErrors());
+        assertEquals(1, patientRepository.count());
+    }
+
+    @Test
+    void mergesPagesAcrossShardsInIdOrder() {
+        List<UUID> ids = new ArrayList<>(createPatients());
+        ids.sort(ID_ORDER);
+
+        List<UUID> paged = new ArrayList<>();
+        for (int page = 0; page < 4; page++) {
+            Page<PatientResponse> result = patientService.getPatients(page, 16);
+            assertEquals(PATIENTS, result.getTotalElements());
+            result.getContent().forEach(patient -> paged.add(patient.getId()));
+        }
+        assertEquals(ids, paged);
+    }
+
+    @Test
+    void rejectsOffsetPagesDeeperThanTheMaximumDepth() throws Exception {
+        BadRequestException ex = assertThrows(BadRequestException.class, () -> patientService.getPatients(10, 1000));
+
+        assertEquals(List.of("Pages cannot end past the first 10000 patients, use the cursor to page further"),
+                ex.getErrors());
+        mockMvc.perform(get("/v1/Patients").param("page", "100000").param("size", "1000"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/Patients").param("page", "9").param("size", "1000"))
+                .andExpect(status().is2xxSuccessful());
+    }
+
+    @Test
+    void seeksAcrossShardsWithoutGapsOrDuplicates() {
+        List<UUID> ids = createPatients();
+
+        List<UUID> seen = new ArrayList<>();
+        String cursor = null;
+        CursorPageResponse<PatientResponse> page;
+        do {
+            page = patientService.getPatientsAfter(cursor, 7);
+            page.getContent().forEach(patient -> seen.add(patient.getId()));
+            cursor = page.getNextCursor();
+        } while (page.isHasNext());
+
+        assertEquals(PATIENTS, seen.size());
+        assertEquals(ids.stream().sorted(ID_ORDER).toList(), seen.stream().sorted(ID_ORDER).toList());
+    }
+
+    @Test
+    void searchesNamesOnEveryShard() {
+        // the index outlives the patients of the other tests, so these ones get a name of their own
+        createPatients("Searchable Patient ");
+        patientNameIndex.build();
+
+        Page<PatientResponse> result = patientService.getPatientsByName("Searchable", 0, 100);
+
+        assertEquals(PATIENTS, result.getTotalElements());
+        assertEquals(PATIENTS, result.getContent().size());
+    }
+
+    @Test
+    void buildsTheKeyFilterOneShardAtATime() {
+        createPatients();
+
+        patientKeyFilter.build();
+
+        for (int i = 0; i < PATIENTS; i++)
+            assertFalse(patientKeyFilter.isAbsent(email(i), dni(i)));
+        assertThrows(IllegalStateException.class, () -> patientRepository.streamKeys());
+    }
+
+    @Test
+    void updatesAndDeletesOnTheShardOfThePatient() {
+        patientService.createPatient(request(0));
+        UUID id = patientService.getPatientByDni(dni(0)).getId();
+        PatientRequest changed = request(0);
+        changed.setEmail("changed@example.com");
+
+        patientService.updatePatient(id, changed);
+        assertEquals(id, patientService.getPatientByEmail("changed@example.com").getId());
+        assertThrows(NotFoundException.class, () -> patientService.getPatientByEmail(email(0)));
+
+        patientService.deletePatient(id);
+        assertThrows(NotFoundException.class, () -> patientService.getPatientById(id));
+        assertEquals(0, shard(shardRing.shardFor(dni(0))).queryForObject("SELECT COUNT(*) FROM patients", Integer.class));
+    }
+
+    @Test
+    void createsTheBulkPatientsOfEveryShardOnTheirOwn() throws Exception {
+        // a patient the directory does not know about, so only its insert fails, on its shard
+        String failing = shardRing.shardFor(dni(0));
+        ShardContext.call(failing, () -> patientRepository.save(Patient.builder().name("Stray").email("stray@example.com")
+                .address("Street").dni(dni(0)).build()));
+        List<PatientRequest> requests = IntStream.range(0, PATIENTS).mapToObj(ShardingTests::request).toList();
+
+        List<BulkItemResponse> results = patientService.createPatients(requests);
+
+        assertEquals(BulkItemResponse.REJECTED, results.get(0).getStatus());
+        assertEquals(List.of("DNI already exists"), results.get(0).getErrors());
+        for (BulkItemResponse result : results.subList(1, PATIENTS)) {
+            assertEquals(BulkItemResponse.CREATED, result.getStatus());
+            assertEquals(dni(result.getIndex()), patientService.getPatientById(result.getId()).getDni());
+        }
+        assertEquals(PATIENTS, patientRepository.count());
+    }
+
+    @Test
+    void importsRowsOfEveryShard() throws Exception {
+        patientService.createPatient(request(0));
+        StringBuilder csv = new StringBuilder("name,email,address,dni\n");
+        for (int i = 0; i < PATIENTS; i++)
+            csv.append("Imported ").append(i).append(',').append(email(i)).append(",Street,").append(dni(i)).append('\n');
+        MockMultipartFile file = new MockMultipartFile("file", "patients.csv", "text/csv",
+                csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        ImportStatusResponse status = patientImportService.startImport(file);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while ("RUNNING".equals(status.getStatus()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            status = patientImportService.getImportStatus(status.getId());
+        }
+
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(PATIENTS - 1, status.getRowsInserted());
+        assertEquals(1, status.getRowsUpdated());
+        assertEquals(0, status.getRowsRejected());
+        assertEquals("Imported 0", patientService.getPatientByDni(dni(0)).getName());
+        for (String shard : shardRing.getShards())
+            shard(shard).queryForList("SELECT dni FROM patients", String.class)
+                    .forEach(dni -> assertEquals(shard, shardRing.shardFor(dni)));
+        assertEquals(PATIENTS, patientRepository.count());
+    }
+
+    @Test
+    void exportsThePatientsOfEveryShard() {
+        createPatients();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = patientExportService.exportPatients(ExportFormat.CSV, out);
+
+        assertEquals(PATIENTS, count);
+        assertEquals(PATIENTS + 1, out.toString(StandardCharsets.UTF_8).lines().count());
+    }
+
+    @Test
+    void routesEveryLookupOfARequestToItsShard() throws Exception {
+        patientService.createPatient(request(0));
+        int other = IntStream.range(1, PATIENTS)
+                .filter(i -> !shardRing.shardFor(dni(i)).equals(shardRing.shardFor(dni(0))))
+                .findFirst().orElseThrow();
+        patientService.createPatient(request(other));
+
+        mockMvc.perform(get("/test/two-shards").param("first", dni(0)).param("second", dni(other)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(patientService.getPatientByDni(dni(0)).getId() + ","
+                        + patientService.getPatientByDni(dni(other)).getId()));
+    }
+
+    private List<UUID> createPatients() {
+        return createPatients("Sharded Patient ");
+    }
+
+    private List<UUID> createPatients(String name) {
+        List<PatientRequest> requests = IntStream.range(0, PATIENTS).mapToObj(ShardingTests::request).toList();
+        requests.forEach(request -> request.setName(name + request.getDni()));
+        List<BulkItemResponse> results = patientService.createPatients(requests);
+        results.forEach(result -> assertTrue(result.getErrors() == null || result.getErrors().isEmpty(),
+                () -> "patient " + result.getIndex() + " rejected: " + result.getErrors()));
+        return results.stream().map(BulkItemResponse::getId).toList();
+    }
+
+    private JdbcTemplate shard(String name) {
+        return new JdbcTemplate(shardRoutingDataSource.getShard(name));
+    }
+
+    private static PatientRequest request(int i) {
+        return PatientRequest.builder().name("Sharded Patient " + i).email(email(i))
+                .address("Street " + i).dni(dni(i)).build();
+    }
+
+    private static String email(int i) {
+        return "sharded" + i + "@example.com";
+    }
+
+    private static String dni(int i) {
+        return String.format("%08dS", i);
+    }
+}
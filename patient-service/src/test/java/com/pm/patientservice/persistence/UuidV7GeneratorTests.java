@@ -0,0 +1,45 @@
+package com.pm.patientservice.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.pm.patientservice.persistence.generators.UuidV7Generator;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Unit tests for the UuidV7Generator.
+ *
+ * @author caito
+ *
+ */
+public class UuidV7GeneratorTests {
+
+    @Test
+    void next_ShouldReturnVersion7UuidWithTheCurrentTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7Generator.next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        long timestamp = id.getMostSignificantBits() >>> 16;
+        assertTrue(timestamp >= before && timestamp <= after + 1);
+    }
+
+    @Test
+    void next_ShouldReturnIncreasingIdsInBinaryOrder() {
+        byte[] previous = bytes(UuidV7Generator.next());
+        for (int i = 0; i < 100_000; i++) {
+            byte[] current = bytes(UuidV7Generator.next());
+            assertTrue(Arrays.compareUnsigned(previous, current) < 0);
+            previous = current;
+        }
+    }
+
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+}
@@ -0,0 +1,89 @@
+package com.pm.patientservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.api.models.responses.ChangeFeedResponse;
+import com.pm.patientservice.api.models.responses.PatientChangeResponse;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.persistence.repositories.PatientTombstoneRepository;
+import com.pm.patientservice.services.contracts.PatientChangeFeedService;
+import com.pm.patientservice.services.contracts.PatientService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Integration tests for the PatientChangeFeedService.
+ * They page through the changes made with the PatientService on the embedded H2 database.
+ *
+ * @author caito
+ *
+ */
+@SpringBootTest
+public class PatientChangeFeedServiceTests {
+    @Autowired
+    private PatientChangeFeedService patientChangeFeedService;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PatientTombstoneRepository patientTombstoneRepository;
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAll();
+        patientTombstoneRepository.deleteAll();
+    }
+
+    @Test
+    void getChanges_ShouldReturnUpsertsAndDeletionsInOrderAcrossPages() {
+        // Arrange
+        ChangeFeedResponse start = patientChangeFeedService.getChanges(null, 100);
+        String cursor = start.getNextCursor();
+        create("John Doe", "john@example.com", "11111111A");
+        create("Jane Doe", "jane@example.com", "22222222B");
+        create("Jim Doe", "jim@example.com", "33333333C");
+        UUID john = patientService.getPatientByDni("11111111A").getId();
+        UUID jane = patientService.getPatientByDni("22222222B").getId();
+        patientService.updatePatient(john, PatientRequest.builder().name("John Smith").email("john@example.com")
+                .address("456 Side St").dni("11111111A").build());
+        patientService.deletePatient(jane);
+
+        // Act
+        List<PatientChangeResponse> changes = new ArrayList<>();
+        ChangeFeedResponse page;
+        do {
+            page = patientChangeFeedService.getChanges(cursor, 2);
+            changes.addAll(page.getChanges());
+            cursor = page.getNextCursor();
+        } while (page.isHasMore());
+
+        // Assert
+        assertEquals(3, changes.size());
+        assertEquals(PatientChangeResponse.UPSERTED, changes.get(0).getType());
+        assertEquals("33333333C", changes.get(0).getPatient().getDni());
+        assertEquals(john, changes.get(1).getId());
+        assertEquals("John Smith", changes.get(1).getPatient().getName());
+        assertEquals(PatientChangeResponse.DELETED, changes.get(2).getType());
+        assertEquals(jane, changes.get(2).getId());
+        assertNull(changes.get(2).getPatient());
+        ChangeFeedResponse next = patientChangeFeedService.getChanges(cursor, 2);
+        assertTrue(next.getChanges().isEmpty());
+        assertEquals(cursor, next.getNextCursor());
+    }
+
+    private void create(String name, String email, String dni) {
+        patientService.createPatient(PatientRequest.builder().name(name).email(email).address("123 Main St")
+                .dni(dni).build());
+    }
+}
@@ -0,0 +1,88 @@
+package com.pm.patientservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.pm.patientservice.api.exceptions.customs.BadRequestException;
+import com.pm.patientservice.api.models.requests.ExportFormat;
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.services.contracts.PatientExportService;
+import com.pm.patientservice.utils.csv.CsvHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Integration tests for the PatientExportService.
+ * They export patients stored in the embedded H2 database.
+ *
+ * @author caito
+ *
+ */
+@SpringBootTest
+public class PatientExportServiceTests {
+    @Autowired
+    private PatientExportService patientExportService;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @BeforeEach
+    void setUp() {
+        patientRepository.saveAll(List.of(
+                Patient.builder().name("John Doe").email("john@example.com").dni("12345678A")
+                        .address("123 Main St, Apt \"B\"").birthDate(LocalDate.of(1990, 5, 17)).build(),
+                Patient.builder().name("Jane Doe").email("jane@example.com").dni("87654321B")
+                        .address("456 Side St").build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void exportPatients_AsCsv_ShouldWriteHeaderAndOneRowPerPatient() {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long count = patientExportService.exportPatients(ExportFormat.CSV, out);
+
+        // Assert
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(2, count);
+        assertEquals(CsvHelper.HEADER, lines.get(0));
+        assertEquals(3, lines.size());
+        assertTrue(lines.stream().anyMatch(line -> line.contains(",\"123 Main St, Apt \"\"B\"\"\",,12345678A,1990-05-17")));
+    }
+
+    @Test
+    void exportPatients_AsNdjson_ShouldWriteOneJsonObjectPerLine() {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        patientExportService.exportPatients(ExportFormat.NDJSON, out);
+
+        // Assert
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(2, lines.size());
+        assertTrue(lines.stream().allMatch(line -> line.startsWith("{\"id\":\"") && line.endsWith("}")));
+        assertTrue(lines.stream().anyMatch(line -> line.contains("\"birthDate\":\"17-05-1990\"")));
+    }
+
+    @Test
+    void exportFormat_WithUnknownName_ShouldThrowBadRequestException() {
+        assertEquals(ExportFormat.CSV, ExportFormat.from("csv"));
+        assertThrows(BadRequestException.class,
+                () -> ExportFormat.from("xml"));
+    }
+}
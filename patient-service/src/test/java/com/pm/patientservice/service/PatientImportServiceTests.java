@@ -0,0 +1,114 @@
+package com.pm.patientservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.pm.patientservice.api.models.responses.ImportStatusResponse;
+import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.services.contracts.PatientImportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Integration tests for the PatientImportService.
+ * They import CSV files into the embedded H2 database.
+ *
+ * @author caito
+ *
+ */
+@SpringBootTest
+public class PatientImportServiceTests {
+    @Autowired
+    private PatientImportService patientImportService;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void startImport_ShouldInsertUpdateAndRejectRows() throws Exception {
+        // Arrange
+        patientRepository.save(Patient.builder().name("Old Name").email("old@example.com")
+                .address("Old St").dni("11111111A").build());
+        patientRepository.save(Patient.builder().name("Other").email("taken@example.com")
+                .address("Other St").dni("99999999Z").build());
+        String csv = """
+                name,email,address,phone,dni,birthDate
+                John Doe,john@example.com,"123 Main St, Apt ""B""
+                Floor 2",555-1234,12345678A,1990-05-17
+                New Name,new@example.com,New St,,11111111A,
+                Bad Email,not-an-email,Street,,22222222B,
+                Thief,taken@example.com,Street,,33333333C,
+                Twin,twin@example.com,Street,,12345678A,
+                Late,late@example.com,Street,,44444444D,17/05/1990
+                """;
+        MockMultipartFile file = new MockMultipartFile("file", "patients.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        ImportStatusResponse status = patientImportService.startImport(file);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while ("RUNNING".equals(status.getStatus()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            status = patientImportService.getImportStatus(status.getId());
+        }
+
+        // Assert
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(6, status.getRowsRead());
+        assertEquals(1, status.getRowsInserted());
+        assertEquals(1, status.getRowsUpdated());
+        assertEquals(4, status.getRowsRejected());
+        assertEquals("123 Main St, Apt \"B\"\nFloor 2", patientRepository.findByDni("12345678A").orElseThrow().getAddress());
+        assertEquals("new@example.com", patientRepository.findByDni("11111111A").orElseThrow().getEmail());
+
+        List<String> report = patientImportService.getRejectedRows(status.getId())
+                .getContentAsString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(5, report.size());
+        assertTrue(report.get(1).startsWith("3,Invalid email format,"));
+        assertTrue(report.get(2).startsWith("4,Email is in use by another patient,"));
+        assertTrue(report.get(3).startsWith("5,Duplicate DNI in file,"));
+        assertTrue(report.get(4).startsWith("6,\"Invalid birth date, expected yyyy-MM-dd\","));
+    }
+
+    @Test
+    void startImport_WhenTheDatabaseRefusesARow_ShouldRejectOnlyThatRow() throws Exception {
+        // Arrange: the name passes validation but is longer than its column
+        String csv = """
+                name,email,address,phone,dni,birthDate
+                First,first@example.com,Street,,51111111A,
+                %s,long@example.com,Street,,52222222B,
+                Third,third@example.com,Street,,53333333C,
+                """.formatted("N".repeat(80));
+        MockMultipartFile file = new MockMultipartFile("file", "patients.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        ImportStatusResponse status = patientImportService.startImport(file);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while ("RUNNING".equals(status.getStatus()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            status = patientImportService.getImportStatus(status.getId());
+        }
+
+        // Assert
+        assertEquals("COMPLETED", status.getStatus());
+        assertEquals(2, status.getRowsInserted());
+        assertEquals(1, status.getRowsRejected());
+        assertTrue(patientRepository.findByDni("51111111A").isPresent());
+        assertTrue(patientRepository.findByDni("53333333C").isPresent());
+        assertTrue(patientRepository.findByDni("52222222B").isEmpty());
+        String report = patientImportService.getRejectedRows(status.getId()).getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(report.contains("Rejected by the database"));
+    }
+}
@@ -4,21 +4,42 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import com.pm.patientservice.api.exceptions.customs.NotFoundException;
+import com.pm.patientservice.api.exceptions.customs.BadRequestException;
 import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.api.models.responses.BatchLookupResponse;
+import com.pm.patientservice.api.models.responses.BulkItemResponse;
+import com.pm.patientservice.api.models.responses.CursorPageResponse;
 import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.api.models.responses.PatientVersionResponse;
 import com.pm.patientservice.persistence.entities.Patient;
+import com.pm.patientservice.persistence.entities.PatientTombstone;
+import com.pm.patientservice.persistence.projections.PatientKeyView;
 import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.persistence.repositories.PatientTombstoneRepository;
+import com.pm.patientservice.services.cache.PatientCache;
+import com.pm.patientservice.services.cache.PatientKeyFilter;
+import com.pm.patientservice.services.cache.PatientSingleFlight;
+import com.pm.patientservice.services.helpers.CursorHelper;
 import com.pm.patientservice.services.impl.PatientServiceImpl;
+import com.pm.patientservice.services.search.PatientNameIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -34,6 +55,25 @@ public class PatientServiceTests {
     @Mock
     private PatientRepository patientRepository;
 
+    @Mock
+    private PatientTombstoneRepository patientTombstoneRepository;
+
+    @Mock
+    private PatientCache patientCache;
+
+    @Mock
+    private PatientNameIndex patientNameIndex;
+
+    @Mock
+    private PatientKeyFilter patientKeyFilter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private PatientSingleFlight patientSingleFlight =
+            new PatientSingleFlight(true, Duration.ofSeconds(1), new SimpleMeterRegistry());
+
     @InjectMocks
     private PatientServiceImpl patientService;
 
@@ -76,23 +116,156 @@ public class PatientServiceTests {
     @Test
     void createPatient_WithValidRequest_ShouldSavePatient() {
         // Arrange
-        when(patientRepository.existsByEmail(testEmail)).thenReturn(false);
-        when(patientRepository.existsByDni(testDni)).thenReturn(false);
-        when(patientRepository.save(any(Patient.class))).thenReturn(patientEntity);
+        when(patientRepository.findKeysByEmailOrDni(testEmail, testDni)).thenReturn(Collections.emptyList());
+        when(patientRepository.saveAndFlush(any(Patient.class))).thenReturn(patientEntity);
+
+        // Act
+        patientService.createPatient(validPatientRequest);
+
+        // Assert
+        verify(patientRepository, times(1)).saveAndFlush(any(Patient.class));
+    }
+
+    @Test
+    void createPatient_WhenKeysAreAbsentFromFilter_ShouldSkipUniquenessQuery() {
+        // Arrange
+        when(patientKeyFilter.isAbsent(testEmail, testDni)).thenReturn(true);
+        when(patientRepository.saveAndFlush(any(Patient.class))).thenReturn(patientEntity);
 
         // Act
         patientService.createPatient(validPatientRequest);
 
         // Assert
-        verify(patientRepository, times(1)).save(any(Patient.class));
+        verify(patientRepository, never()).findKeysByEmailOrDni(any(), any());
+        verify(patientKeyFilter).add(testEmail, testDni);
+        verify(patientRepository).saveAndFlush(any(Patient.class));
+    }
+
+    @Test
+    void createPatient_WithUsedEmailAndDni_ShouldReportBothInOneQuery() {
+        // Arrange
+        PatientKeyView used = mock(PatientKeyView.class);
+        when(used.getEmail()).thenReturn(testEmail);
+        when(used.getDni()).thenReturn(testDni);
+        when(patientRepository.findKeysByEmailOrDni(testEmail, testDni)).thenReturn(List.of(used));
+
+        // Act & Assert
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> patientService.createPatient(validPatientRequest));
+        assertEquals(List.of("Email already exists", "DNI already exists"), exception.getErrors());
+        verify(patientRepository, never()).saveAndFlush(any(Patient.class));
+    }
+
+    @Test
+    void createPatient_WhenConstraintViolated_ShouldThrowBadRequestException() {
+        // Arrange
+        when(patientRepository.findKeysByEmailOrDni(testEmail, testDni)).thenReturn(Collections.emptyList());
+        when(patientRepository.saveAndFlush(any(Patient.class))).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement", new RuntimeException("Duplicate entry for key 'patients.uk_patients_dni'")));
+
+        // Act & Assert
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> patientService.createPatient(validPatientRequest));
+        assertEquals(List.of("DNI already exists"), exception.getErrors());
+    }
+
+
+
+    @Test
+    void createPatients_ShouldCreateValidAndRejectInvalidOrDuplicated() {
+        // Arrange
+        PatientRequest existing = PatientRequest.builder().name("Old").email("old@example.com")
+                .address("Street").dni("11111111A").build();
+        PatientRequest invalid = PatientRequest.builder().name("Bad").email("not-an-email")
+                .address("Street").dni("22222222B").build();
+        PatientRequest repeated = PatientRequest.builder().name("Copy").email("copy@example.com")
+                .address("Street").dni(testDni).build();
+        PatientKeyView existingKey = mock(PatientKeyView.class);
+        when(existingKey.getEmail()).thenReturn("old@example.com");
+        when(existingKey.getDni()).thenReturn("11111111A");
+        when(patientRepository.findKeysByEmailsOrDnis(anyCollection(), anyCollection())).thenReturn(List.of(existingKey));
+
+        // Act
+        List<BulkItemResponse> result = patientService.createPatients(
+                List.of(validPatientRequest, existing, invalid, repeated));
+
+        // Assert
+        assertEquals(List.of(BulkItemResponse.CREATED, BulkItemResponse.REJECTED, BulkItemResponse.REJECTED,
+                BulkItemResponse.REJECTED), result.stream().map(BulkItemResponse::getStatus).toList());
+        assertEquals(List.of("Email already exists", "DNI already exists"), result.get(1).getErrors());
+        assertEquals(List.of("Invalid email format"), result.get(2).getErrors());
+        assertEquals(List.of("DNI already exists"), result.get(3).getErrors());
+        verify(patientRepository).findKeysByEmailsOrDnis(anyCollection(), anyCollection());
+        verify(patientRepository).saveAll(argThat(patients -> ((List<Patient>) patients).size() == 1));
+    }
+
+    @Test
+    void createPatients_ShouldNotReserveTheKeysOfRejectedItems() {
+        // Arrange
+        PatientRequest repeatedDni = PatientRequest.builder().name("Copy").email("copy@example.com")
+                .address("Street").dni(testDni).build();
+        PatientRequest sameEmail = PatientRequest.builder().name("Other").email("copy@example.com")
+                .address("Street").dni("33333333C").build();
+
+        // Act
+        List<BulkItemResponse> result = patientService.createPatients(
+                List.of(validPatientRequest, repeatedDni, sameEmail));
+
+        // Assert
+        assertEquals(List.of(BulkItemResponse.CREATED, BulkItemResponse.REJECTED, BulkItemResponse.CREATED),
+                result.stream().map(BulkItemResponse::getStatus).toList());
+        assertEquals(List.of("DNI already exists"), result.get(1).getErrors());
+        verify(patientRepository).saveAll(argThat(patients -> ((List<Patient>) patients).size() == 2));
+    }
+
+    @Test
+    void createPatients_WhenAnotherRequestCreatesOneOfThem_ShouldOnlyRejectThatOne() {
+        // Arrange
+        PatientRequest raced = PatientRequest.builder().name("Raced").email("raced@example.com")
+                .address("Street").dni("44444444D").build();
+        PatientRequest other = PatientRequest.builder().name("Other").email("other@example.com")
+                .address("Street").dni("55555555E").build();
+        when(patientRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Patient> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(patient -> raced.getDni().equals(patient.getDni())))
+                throw new DataIntegrityViolationException("could not execute statement",
+                        new RuntimeException("Duplicate entry for key 'patients.uk_patients_dni'"));
+            return batch;
+        });
+
+        // Act
+        List<BulkItemResponse> result = patientService.createPatients(List.of(validPatientRequest, raced, other));
+
+        // Assert
+        assertEquals(List.of(BulkItemResponse.CREATED, BulkItemResponse.REJECTED, BulkItemResponse.CREATED),
+                result.stream().map(BulkItemResponse::getStatus).toList());
+        assertEquals(List.of("DNI already exists"), result.get(1).getErrors());
     }
 
+    @Test
+    void createPatients_WhenTheDatabaseFails_ShouldRejectWithoutItsDetails() {
+        // Arrange
+        when(patientRepository.saveAll(anyList())).thenThrow(
+                new DataAccessResourceFailureException("Connection to db-primary:3306 refused"));
+
+        // Act
+        List<BulkItemResponse> result = patientService.createPatients(List.of(validPatientRequest));
+
+        // Assert
+        assertEquals(BulkItemResponse.REJECTED, result.get(0).getStatus());
+        assertEquals(List.of("Could not be saved"), result.get(0).getErrors());
+    }
 
+    @Test
+    void createPatients_WithEmptyBatch_ShouldThrowBadRequestException() {
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> patientService.createPatients(List.of()));
+    }
 
     @Test
     void getPatientById_WithValidId_ShouldReturnPatient() {
         // Arrange
-        when(patientRepository.findById(testId)).thenReturn(Optional.of(patientEntity));
+        when(patientRepository.findResponseById(testId)).thenReturn(Optional.of(patientResponse));
 
         // Act
         PatientResponse result = patientService.getPatientById(testId);
@@ -104,10 +277,128 @@ public class PatientServiceTests {
         assertEquals(testEmail, result.getEmail());
     }
 
+    @Test
+    void getPatientById_WhenCached_ShouldNotQueryRepository() {
+        // Arrange
+        when(patientCache.getById(testId)).thenReturn(patientResponse);
+
+        // Act
+        PatientResponse result = patientService.getPatientById(testId);
+
+        // Assert
+        assertSame(patientResponse, result);
+        verifyNoInteractions(patientRepository);
+    }
+
+    @Test
+    void getPatientsByIds_ShouldKeepRequestOrderAndReportMissingIds() {
+        // Arrange
+        UUID cachedId = UUID.randomUUID();
+        UUID missingId = UUID.randomUUID();
+        PatientResponse cachedPatient = PatientResponse.builder().id(cachedId).name("Cached").build();
+        when(patientCache.getById(any(UUID.class)))
+                .thenAnswer(invocation -> cachedId.equals(invocation.getArgument(0)) ? cachedPatient : null);
+        when(patientRepository.findResponsesByIdIn(List.of(missingId, testId))).thenReturn(List.of(patientResponse));
+
+        // Act
+        BatchLookupResponse result = patientService.getPatientsByIds(List.of(missingId, testId, cachedId, testId));
+
+        // Assert
+        assertEquals(List.of(patientResponse, cachedPatient), result.getPatients());
+        assertEquals(List.of(missingId.toString()), result.getMissing());
+        verify(patientCache).put(patientResponse);
+    }
+
+    @Test
+    void getPatientsByDnis_ShouldQueryInChunks() {
+        // Arrange
+        ReflectionTestUtils.setField(patientService, "batchChunkSize", 2);
+        when(patientRepository.findResponsesByDniIn(anyList())).thenReturn(List.of());
+
+        // Act
+        BatchLookupResponse result = patientService.getPatientsByDnis(List.of("1", "2", "3", "4", "5"));
+
+        // Assert
+        verify(patientRepository, times(3)).findResponsesByDniIn(anyList());
+        assertEquals(List.of("1", "2", "3", "4", "5"), result.getMissing());
+    }
+
+    @Test
+    void getPatientsByIds_WithEmptyOrNullIds_ShouldThrowBadRequestException() {
+        assertThrows(BadRequestException.class, () -> patientService.getPatientsByIds(List.of()));
+        assertThrows(BadRequestException.class, () -> patientService.getPatientsByIds(Arrays.asList(testId, null)));
+    }
+
+    @Test
+    void deletePatient_ShouldDeleteAndLeaveATombstone() {
+        // Arrange
+        when(patientRepository.findById(testId)).thenReturn(Optional.of(patientEntity));
+
+        // Act
+        patientService.deletePatient(testId);
+
+        // Assert
+        verify(patientRepository).delete(patientEntity);
+        verify(patientTombstoneRepository).save(argThat((PatientTombstone tombstone) -> testId.equals(tombstone.getPatientId())));
+        verify(patientCache).evict(testId, testEmail, testDni);
+    }
+
+    @Test
+    void getPatientVersionById_WhenCached_ShouldNotQueryRepository() {
+        // Arrange
+        patientResponse.setLastUpdateDate(LocalDateTime.of(2025, 6, 1, 10, 30));
+        when(patientCache.getById(testId)).thenReturn(patientResponse);
+
+        // Act
+        PatientVersionResponse result = patientService.getPatientVersionById(testId);
+
+        // Assert
+        assertEquals(testId, result.getId());
+        assertEquals(patientResponse.getLastUpdateDate(), result.getLastUpdateDate());
+        verifyNoInteractions(patientRepository);
+    }
+
+    @Test
+    void getPatientVersionByDni_WithNonExistentDni_ShouldThrowNotFoundException() {
+        // Arrange
+        when(patientRepository.findVersionByDni(testDni)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(NotFoundException.class, () -> patientService.getPatientVersionByDni(testDni));
+    }
+
+    @Test
+    void getPatientById_WhenNotCached_ShouldCacheLoadedPatient() {
+        // Arrange
+        when(patientRepository.findResponseById(testId)).thenReturn(Optional.of(patientResponse));
+
+        // Act
+        PatientResponse result = patientService.getPatientById(testId);
+
+        // Assert
+        verify(patientCache).put(result);
+    }
+
+    @Test
+    void updatePatient_ShouldEvictOldEmailAndDniFromCache() {
+        // Arrange
+        PatientRequest request = new PatientRequest();
+        request.setEmail("new@example.com");
+        request.setDni("87654321B");
+        when(patientRepository.findById(testId)).thenReturn(Optional.of(patientEntity));
+        when(patientRepository.findKeysUsedByOthers("new@example.com", "87654321B", testId)).thenReturn(List.of());
+
+        // Act
+        patientService.updatePatient(testId, request);
+
+        // Assert
+        verify(patientCache).evict(testId, testEmail, testDni);
+    }
+
     @Test
     void getPatientById_WithInvalidId_ShouldThrowNotFoundException() {
         // Arrange
-        when(patientRepository.findById(testId)).thenReturn(Optional.empty());
+        when(patientRepository.findResponseById(testId)).thenReturn(Optional.empty());
 
         // Act & Assert
         NotFoundException exception = assertThrows(NotFoundException.class,
@@ -121,10 +412,10 @@ public class PatientServiceTests {
         int page = 0;
         int size = 10;
         PageRequest pageRequest = PageRequest.of(page, size);
-        List<Patient> patients = Collections.singletonList(patientEntity);
-        Page<Patient> patientPage = new PageImpl<>(patients, pageRequest, patients.size());
+        List<PatientResponse> patients = Collections.singletonList(patientResponse);
+        Page<PatientResponse> patientPage = new PageImpl<>(patients, pageRequest, patients.size());
 
-        when(patientRepository.findAll(pageRequest)).thenReturn(patientPage);
+        when(patientRepository.findResponsePage(pageRequest)).thenReturn(patientPage);
 
         // Act
         Page<PatientResponse> result = patientService.getPatients(page, size);
@@ -135,10 +426,75 @@ public class PatientServiceTests {
         assertEquals(testName, result.getContent().get(0).getName());
     }
 
+    @Test
+    void getPatientsAfter_WithoutCursor_ShouldReturnFirstSliceAndNextCursor() {
+        // Arrange
+        LocalDateTime registrationDate = LocalDateTime.of(2025, 1, 1, 10, 0);
+        patientEntity.setRegistrationDate(registrationDate);
+        Patient next = new Patient();
+        next.setId(UUID.randomUUID());
+        next.setName("Jane Doe");
+        next.setRegistrationDate(registrationDate.plusMinutes(1));
+        when(patientRepository.findFirstSeekPage(PageRequest.of(0, 2))).thenReturn(List.of(patientEntity, next));
+
+        // Act
+        CursorPageResponse<PatientResponse> result = patientService.getPatientsAfter(null, 1);
+
+        // Assert
+        assertEquals(1, result.getContent().size());
+        assertTrue(result.isHasNext());
+        CursorHelper.Cursor cursor = CursorHelper.decode(result.getNextCursor());
+        assertEquals(registrationDate, cursor.getDate());
+        assertEquals(testId, cursor.getId());
+    }
+
+    @Test
+    void getPatientsAfter_WithCursor_ShouldSeekPastLastPatient() {
+        // Arrange
+        LocalDateTime registrationDate = LocalDateTime.of(2025, 1, 1, 10, 0);
+        String cursor = CursorHelper.encode(registrationDate, testId);
+        when(patientRepository.findSeekPageAfter(registrationDate, testId, PageRequest.of(0, 11)))
+                .thenReturn(Collections.singletonList(patientEntity));
+
+        // Act
+        CursorPageResponse<PatientResponse> result = patientService.getPatientsAfter(cursor, 10);
+
+        // Assert
+        assertEquals(1, result.getContent().size());
+        assertFalse(result.isHasNext());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getPatientsAfter_WithMalformedCursor_ShouldThrowBadRequestException() {
+        // Act & Assert
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> patientService.getPatientsAfter("not-a-cursor", 10));
+        assertEquals(List.of("Invalid cursor"), exception.getErrors());
+    }
+
+    @Test
+    void getPatientsAfter_WithSizeOverMaximum_ShouldThrowBadRequestException() {
+        // Act & Assert
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> patientService.getPatientsAfter(null, Integer.MAX_VALUE));
+        assertEquals(List.of("Size must be between 1 and 1000"), exception.getErrors());
+        verifyNoInteractions(patientRepository);
+    }
+
+    @Test
+    void getPatients_WithSizeOverMaximum_ShouldThrowBadRequestException() {
+        // Act & Assert
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> patientService.getPatients(0, 1001));
+        assertEquals(List.of("Size cannot be greater than 1000"), exception.getErrors());
+        verifyNoInteractions(patientRepository);
+    }
+
     @Test
     void getPatientByEmail_WithValidEmail_ShouldReturnPatient() {
         // Arrange
-        when(patientRepository.findByEmail(testEmail)).thenReturn(Optional.of(patientEntity));
+        when(patientRepository.findResponseByEmail(testEmail)).thenReturn(Optional.of(patientResponse));
 
         // Act
         PatientResponse result = patientService.getPatientByEmail(testEmail);
@@ -151,7 +507,7 @@ public class PatientServiceTests {
     @Test
     void getPatientByEmail_WithInvalidEmail_ShouldThrowNotFoundException() {
         // Arrange
-        when(patientRepository.findByEmail(testEmail)).thenReturn(Optional.empty());
+        when(patientRepository.findResponseByEmail(testEmail)).thenReturn(Optional.empty());
 
         // Act & Assert
         NotFoundException exception = assertThrows(NotFoundException.class,
@@ -162,7 +518,7 @@ public class PatientServiceTests {
     @Test
     void getPatientByDni_WithValidDni_ShouldReturnPatient() {
         // Arrange
-        when(patientRepository.findByDni(testDni)).thenReturn(Optional.of(patientEntity));
+        when(patientRepository.findResponseByDni(testDni)).thenReturn(Optional.of(patientResponse));
 
         // Act
         PatientResponse result = patientService.getPatientByDni(testDni);
@@ -175,7 +531,7 @@ public class PatientServiceTests {
     @Test
     void getPatientByDni_WithInvalidDni_ShouldThrowNotFoundException() {
         // Arrange
-        when(patientRepository.findByDni(testDni)).thenReturn(Optional.empty());
+        when(patientRepository.findResponseByDni(testDni)).thenReturn(Optional.empty());
 
         // Act & Assert
         NotFoundException exception = assertThrows(NotFoundException.class,
@@ -187,30 +543,66 @@ public class PatientServiceTests {
     void getPatientsByName_ShouldReturnMatchingPatients() {
         // Arrange
         String searchName = "John";
-        List<Patient> patients = Collections.singletonList(patientEntity);
-
-        when(patientRepository.findByNameContainingIgnoreCase(searchName)).thenReturn(patients);
+        when(patientNameIndex.isReady()).thenReturn(true);
+        when(patientNameIndex.search(searchName, 0, 10, 1000))
+                .thenReturn(new PatientNameIndex.SearchResult(List.of(testId), 1));
+        when(patientRepository.findResponsesByIdIn(List.of(testId))).thenReturn(Collections.singletonList(patientResponse));
 
         // Act
-        List<PatientResponse> result = patientService.getPatientsByName(searchName);
+        Page<PatientResponse> result = patientService.getPatientsByName(searchName, 0, 10);
 
         // Assert
         assertNotNull(result);
-        assertEquals(1, result.size());
-        assertTrue(result.get(0).getName().contains(searchName));
+        assertEquals(1, result.getTotalElements());
+        assertTrue(result.getContent().get(0).getName().contains(searchName));
     }
 
     @Test
-    void getPatientsByName_WithNoMatches_ShouldReturnEmptyList() {
+    void getPatientsByName_WithNoMatches_ShouldReturnEmptyPage() {
         // Arrange
         String searchName = "Nonexistent";
-        when(patientRepository.findByNameContainingIgnoreCase(searchName)).thenReturn(Collections.emptyList());
+        when(patientNameIndex.isReady()).thenReturn(true);
+        when(patientNameIndex.search(searchName, 0, 10, 1000))
+                .thenReturn(new PatientNameIndex.SearchResult(List.of(), 0));
 
         // Act
-        List<PatientResponse> result = patientService.getPatientsByName(searchName);
+        Page<PatientResponse> result = patientService.getPatientsByName(searchName, 0, 10);
 
         // Assert
         assertNotNull(result);
         assertTrue(result.isEmpty());
     }
+
+    @Test
+    void getPatientsByName_WithAPagePastTheIntRange_ShouldReturnEmptyPage() {
+        // Arrange: page * size does not fit in an int
+        String searchName = "John";
+        when(patientNameIndex.isReady()).thenReturn(true);
+        when(patientNameIndex.search(searchName, 1000, 100, 1000))
+                .thenReturn(new PatientNameIndex.SearchResult(List.of(), 3));
+
+        // Act
+        Page<PatientResponse> result = patientService.getPatientsByName(searchName, 100_000_000, 100);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        assertEquals(3, result.getTotalElements());
+    }
+
+    @Test
+    void getPatientsByName_WhenIndexNotReady_ShouldSearchDatabase() {
+        // Arrange
+        String searchName = "John";
+        PageRequest pageRequest = PageRequest.of(0, 100);
+        when(patientNameIndex.isReady()).thenReturn(false);
+        when(patientRepository.findResponsesByNameContaining(searchName, pageRequest))
+                .thenReturn(new PageImpl<>(Collections.singletonList(patientResponse), pageRequest, 1));
+
+        // Act
+        Page<PatientResponse> result = patientService.getPatientsByName(searchName, 0, 500);
+
+        // Assert
+        assertEquals(1, result.getTotalElements());
+        assertEquals(100, result.getSize());
+    }
 }
@@ -0,0 +1,81 @@
+package com.pm.patientservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.pm.patientservice.api.exceptions.customs.BadRequestException;
+import com.pm.patientservice.api.models.requests.PatientRequest;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.services.contracts.PatientService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Concurrency stress test for the uniqueness of patients.
+ * Many clinics register the same DNI at the same time; exactly one registration must succeed
+ * and every other one must be rejected with the usual validation message.
+ *
+ * @author caito
+ *
+ */
+@SpringBootTest
+public class PatientUniquenessConcurrencyTests {
+    private static final int CLINICS = 16;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void createPatient_WithSameDniConcurrently_ShouldCreateExactlyOnePatient() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(CLINICS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> results = new ArrayList<>();
+        for (int i = 0; i < CLINICS; i++) {
+            PatientRequest request = PatientRequest.builder()
+                    .name("Clinic patient " + i)
+                    .email("clinic" + i + "@example.com")
+                    .address("Street " + i)
+                    .dni("12345678A")
+                    .build();
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    patientService.createPatient(request);
+                    return List.of();
+                } catch (BadRequestException e) {
+                    return e.getErrors();
+                }
+            }));
+        }
+
+        // Act
+        start.countDown();
+        int created = 0;
+        for (Future<List<String>> result : results) {
+            List<String> errors = result.get(30, TimeUnit.SECONDS);
+            if (errors.isEmpty())
+                created++;
+            else
+                assertEquals(List.of("DNI already exists"), errors);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(1, created);
+        assertEquals(1, patientRepository.count());
+    }
+}
@@ -0,0 +1,75 @@
+package com.pm.patientservice.service.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.services.cache.PatientCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Unit tests for the PatientCache class.
+ *
+ * @author caito
+ *
+ */
+public class PatientCacheTests {
+    private PatientResponse patient;
+
+    @BeforeEach
+    void setUp() {
+        patient = PatientResponse.builder()
+                .id(UUID.randomUUID())
+                .name("John Doe")
+                .email("patient@example.com")
+                .dni("12345678A")
+                .build();
+    }
+
+    @Test
+    void put_ShouldMakePatientReachableByEveryIdentifier() {
+        // Arrange
+        PatientCache cache = new PatientCache(true, 100, Duration.ofMinutes(1));
+
+        // Act
+        cache.put(patient);
+
+        // Assert
+        assertSame(patient, cache.getById(patient.getId()));
+        assertSame(patient, cache.getByEmail(patient.getEmail()));
+        assertSame(patient, cache.getByDni(patient.getDni()));
+        assertEquals(3, cache.stats().getHitCount());
+    }
+
+    @Test
+    void evict_ShouldRemoveEveryIdentifier() {
+        // Arrange
+        PatientCache cache = new PatientCache(true, 100, Duration.ofMinutes(1));
+        cache.put(patient);
+
+        // Act
+        cache.evict(patient.getId(), patient.getEmail(), patient.getDni());
+
+        // Assert
+        assertNull(cache.getById(patient.getId()));
+        assertNull(cache.getByEmail(patient.getEmail()));
+        assertNull(cache.getByDni(patient.getDni()));
+        assertEquals(3, cache.stats().getMissCount());
+    }
+
+    @Test
+    void disabledCache_ShouldNeverReturnPatients() {
+        // Arrange
+        PatientCache cache = new PatientCache(false, 100, Duration.ofMinutes(1));
+
+        // Act
+        cache.put(patient);
+
+        // Assert
+        assertNull(cache.getById(patient.getId()));
+        assertFalse(cache.stats().isEnabled());
+    }
+}
@@ -0,0 +1,120 @@
+package com.pm.patientservice.service.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.pm.patientservice.persistence.projections.PatientKeyView;
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.services.cache.PatientKeyFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for the PatientKeyFilter class.
+ *
+ * @author caito
+ *
+ */
+public class PatientKeyFilterTests {
+    private PatientRepository patientRepository;
+    private AsyncTaskExecutor taskExecutor;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        patientRepository = mock(PatientRepository.class);
+        taskExecutor = mock(AsyncTaskExecutor.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private PatientKeyFilter filter(long expectedPatients, PatientKeyView... keys) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(patientRepository.count()).thenReturn((long) keys.length);
+        when(patientRepository.streamKeys()).thenAnswer(invocation -> Stream.of(keys));
+        PatientKeyFilter filter = new PatientKeyFilter(patientRepository, transactionManager, taskExecutor,
+                meterRegistry, true, expectedPatients, 0.01, 0.2);
+        filter.build();
+        return filter;
+    }
+
+    private static PatientKeyView key(String email, String dni) {
+        return new PatientKeyView() {
+            public String getEmail() {
+                return email;
+            }
+
+            public String getDni() {
+                return dni;
+            }
+        };
+    }
+
+    @Test
+    void isAbsent_BeforeBuild_ShouldReportMaybeUsed() {
+        // Arrange
+        PatientKeyFilter filter = new PatientKeyFilter(patientRepository, mock(PlatformTransactionManager.class),
+                taskExecutor, meterRegistry, true, 1000, 0.01, 0.2);
+
+        // Act & Assert
+        assertFalse(filter.isReady());
+        assertFalse(filter.isAbsent("new@example.com", "87654321B"));
+    }
+
+    @Test
+    void isAbsent_ShouldNeverMissExistingOrAddedKeys() {
+        // Arrange
+        PatientKeyFilter filter = filter(1000, key("john@example.com", "12345678A"));
+
+        // Act
+        filter.add("jane@example.com", "87654321B");
+
+        // Assert
+        assertFalse(filter.isAbsent("john@example.com", null));
+        assertFalse(filter.isAbsent(null, "12345678A"));
+        assertFalse(filter.isAbsent("jane@example.com", "00000000Z"));
+        assertFalse(filter.isAbsent("new@example.com", "87654321B"));
+        assertTrue(filter.isAbsent("new@example.com", "00000000Z"));
+        assertEquals(4, meterRegistry.get("patient.key.filter.keys").gauge().value());
+        assertEquals(1, meterRegistry.get("patient.key.filter.rebuild").timer().count());
+    }
+
+    @Test
+    void isAbsent_ShouldKeepFalsePositivesNearConfiguredRate() {
+        // Arrange
+        PatientKeyView[] keys = IntStream.range(0, 10_000)
+                .mapToObj(i -> key("patient" + i + "@example.com", String.format("%08dA", i)))
+                .toArray(PatientKeyView[]::new);
+        PatientKeyFilter filter = filter(10_000, keys);
+
+        // Act
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> !filter.isAbsent("other" + i + "@example.com", null))
+                .count();
+
+        // Assert
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+        assertTrue(filter.getFalsePositiveRate() < 0.01);
+    }
+
+    @Test
+    void remove_WithTooManyStaleKeys_ShouldRebuildInBackground() {
+        // Arrange
+        PatientKeyFilter filter = filter(1000, key("john@example.com", "12345678A"),
+                key("jane@example.com", "87654321B"));
+
+        // Act
+        filter.remove("john@example.com", "12345678A");
+
+        // Assert
+        verify(taskExecutor).execute(any(Runnable.class));
+    }
+}
@@ -0,0 +1,176 @@
+package com.pm.patientservice.service.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.pm.patientservice.api.exceptions.customs.NotFoundException;
+import com.pm.patientservice.api.models.responses.PatientResponse;
+import com.pm.patientservice.persistence.routing.RoutingContext;
+import com.pm.patientservice.services.cache.PatientSingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Unit tests for the PatientSingleFlight class.
+ *
+ * @author caito
+ *
+ */
+public class PatientSingleFlightTests {
+    private static final int CALLERS = 8;
+
+    private MeterRegistry meterRegistry;
+    private ExecutorService executor;
+    private PatientResponse patient;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = Executors.newFixedThreadPool(CALLERS);
+        patient = PatientResponse.builder().id(UUID.randomUUID()).name("John Doe").dni("12345678A").build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts a load and more callers of the same key, and releases the load once they all wait for it.
+     */
+    private List<Future<PatientResponse>> callConcurrently(PatientSingleFlight singleFlight,
+                                                          Supplier<PatientResponse> loader,
+                                                          CountDownLatch release) throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        List<Future<PatientResponse>> calls = new ArrayList<>();
+        calls.add(executor.submit(() -> singleFlight.load("dni:12345678A", () -> {
+            started.countDown();
+            return loader.get();
+        })));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < CALLERS; i++)
+            calls.add(executor.submit(() -> singleFlight.load("dni:12345678A", loader)));
+        while (coalesced() < CALLERS - 1)
+            Thread.sleep(5);
+        release.countDown();
+        return calls;
+    }
+
+    private double coalesced() {
+        return meterRegistry.get("patient.single.flight.calls").tag("result", "coalesced").counter().count();
+    }
+
+    @Test
+    void load_WithConcurrentCallersOfSameKey_ShouldRunOneLoad() throws Exception {
+        // Arrange
+        PatientSingleFlight singleFlight = new PatientSingleFlight(true, Duration.ofSeconds(5), meterRegistry);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Act
+        List<Future<PatientResponse>> calls = callConcurrently(singleFlight, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return patient;
+        }, release);
+
+        // Assert
+        for (Future<PatientResponse> call : calls)
+            assertSame(patient, call.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get("patient.single.flight.calls").tag("result", "loaded").counter().count());
+        assertEquals(0, meterRegistry.get("patient.single.flight.in.flight").gauge().value());
+    }
+
+    @Test
+    void load_WhenLoadFails_ShouldShareTheExceptionAndForgetTheKey() throws Exception {
+        // Arrange
+        PatientSingleFlight singleFlight = new PatientSingleFlight(true, Duration.ofSeconds(5), meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Act
+        List<Future<PatientResponse>> calls = callConcurrently(singleFlight, () -> {
+            await(release);
+            throw new NotFoundException("Patient not found with DNI: 12345678A");
+        }, release);
+
+        // Assert
+        for (Future<PatientResponse> call : calls) {
+            Exception exception = assertThrows(Exception.class, () -> call.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(NotFoundException.class, exception.getCause());
+        }
+        assertSame(patient, singleFlight.load("dni:12345678A", () -> patient));
+    }
+
+    @Test
+    void load_WhenLoadIsStuck_ShouldStopWaitingAndLoadAgain() throws Exception {
+        // Arrange
+        PatientSingleFlight singleFlight = new PatientSingleFlight(true, Duration.ofMillis(50), meterRegistry);
+        CountDownLatch stuck = new CountDownLatch(1);
+        executor.submit(() -> singleFlight.load("id:1", () -> {
+            await(stuck);
+            return patient;
+        }));
+        while (meterRegistry.get("patient.single.flight.in.flight").gauge().value() == 0)
+            Thread.sleep(5);
+
+        // Act
+        PatientResponse response = singleFlight.load("id:1", () -> patient);
+
+        // Assert
+        assertSame(patient, response);
+        assertEquals(1, meterRegistry.get("patient.single.flight.calls").tag("result", "timeout").counter().count());
+        stuck.countDown();
+    }
+
+    @Test
+    void load_WhenThePrimaryIsForced_ShouldNotJoinAFlightThatMayReadTheReplica() throws Exception {
+        // Arrange
+        PatientSingleFlight singleFlight = new PatientSingleFlight(true, Duration.ofSeconds(5), meterRegistry);
+        PatientResponse stale = PatientResponse.builder().id(patient.getId()).name("Old Name").dni("12345678A").build();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<PatientResponse> replicaRead = executor.submit(() -> singleFlight.load("dni:12345678A", () -> {
+            await(release);
+            return stale;
+        }));
+        while (meterRegistry.get("patient.single.flight.in.flight").gauge().value() == 0)
+            Thread.sleep(5);
+
+        // Act
+        PatientResponse response;
+        RoutingContext.begin(true);
+        try {
+            response = singleFlight.load("dni:12345678A", () -> patient);
+        } finally {
+            RoutingContext.clear();
+            release.countDown();
+        }
+
+        // Assert
+        assertSame(patient, response);
+        assertSame(stale, replicaRead.get(5, TimeUnit.SECONDS));
+        assertEquals(0, coalesced());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
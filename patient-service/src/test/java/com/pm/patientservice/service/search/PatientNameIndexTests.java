@@ -0,0 +1,112 @@
+package com.pm.patientservice.service.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.pm.patientservice.persistence.repositories.PatientRepository;
+import com.pm.patientservice.services.search.PatientNameIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Unit tests for the PatientNameIndex class.
+ *
+ * @author caito
+ *
+ */
+public class PatientNameIndexTests {
+    private PatientNameIndex index;
+    private UUID john;
+    private UUID johnny;
+    private UUID maria;
+    private UUID anjohn;
+
+    @BeforeEach
+    void setUp() {
+        index = new PatientNameIndex(mock(PatientRepository.class), mock(PlatformTransactionManager.class));
+        john = UUID.randomUUID();
+        johnny = UUID.randomUUID();
+        maria = UUID.randomUUID();
+        anjohn = UUID.randomUUID();
+        index.index(johnny, "Johnny Walker");
+        index.index(maria, "María José Johnson");
+        index.index(anjohn, "Seanjohn Smith");
+        index.index(john, "John");
+    }
+
+    @Test
+    void search_ShouldRankExactThenPrefixThenWordThenSubstring() {
+        // Act
+        PatientNameIndex.SearchResult result = index.search("JOHN", 0, 10, 100);
+
+        // Assert
+        assertEquals(List.of(john, johnny, maria, anjohn), result.getIds());
+        assertEquals(4, result.getTotal());
+    }
+
+    @Test
+    void search_ShouldIgnoreAccentsAndPage() {
+        // Act
+        PatientNameIndex.SearchResult result = index.search("maria jose", 0, 10, 100);
+        PatientNameIndex.SearchResult secondPage = index.search("john", 2, 2, 100);
+
+        // Assert
+        assertEquals(List.of(maria), result.getIds());
+        assertEquals(List.of(maria, anjohn), secondPage.getIds());
+    }
+
+    @Test
+    void search_WithShortQuery_ShouldMatchWordPrefixes() {
+        // Act
+        PatientNameIndex.SearchResult result = index.search("jo", 0, 10, 100);
+
+        // Assert
+        assertEquals(List.of(john, johnny, maria), result.getIds());
+    }
+
+    @Test
+    void search_ShouldCapTotalToMaxResults() {
+        // Act
+        PatientNameIndex.SearchResult result = index.search("john", 0, 10, 2);
+
+        // Assert
+        assertEquals(List.of(john, johnny), result.getIds());
+        assertEquals(2, result.getTotal());
+    }
+
+    @Test
+    void search_WithManyMatches_ShouldPageThroughTheSameRanking() {
+        // Arrange
+        for (int i = 0; i < 200; i++)
+            index.index(UUID.randomUUID(), String.format("Jo %03d", 199 - i));
+        List<UUID> all = index.search("jo", 0, 300, 1000).getIds();
+
+        // Act
+        List<UUID> paged = new ArrayList<>();
+        for (int offset = 0; offset < all.size(); offset += 7)
+            paged.addAll(index.search("jo", offset, 7, 1000).getIds());
+
+        // Assert
+        assertEquals(203, all.size());
+        assertEquals(all, paged);
+        assertEquals(List.of(john, johnny, maria), index.search("jo", 200, 10, 1000).getIds());
+        assertEquals(List.of(), index.search("jo", 100, 10, 50).getIds());
+        assertEquals(50, index.search("jo", 100, 10, 50).getTotal());
+    }
+
+    @Test
+    void indexAndRemove_ShouldKeepIndexUpToDate() {
+        // Act
+        index.index(john, "Peter");
+        index.remove(johnny);
+
+        // Assert
+        assertEquals(List.of(maria, anjohn), index.search("john", 0, 10, 100).getIds());
+        assertEquals(List.of(john), index.search("pete", 0, 10, 100).getIds());
+    }
+}
@@ -0,0 +1,53 @@
+package com.pm.patientservice.utils.logs;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the LogSamplingFilter.
+ *
+ * @author caito
+ *
+ */
+public class LogSamplingFilterTests {
+    private final LoggerContext context = new LoggerContext();
+    private LogSamplingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new LogSamplingFilter();
+        filter.setLogger("com.pm.patientservice.reads");
+        filter.setRate(3);
+        filter.start();
+    }
+
+    @Test
+    void decide_ShouldKeepOneOfEveryRateEventsOfTheSampledLogger() {
+        Logger logger = context.getLogger("com.pm.patientservice.reads");
+
+        long kept = 0;
+        for (int i = 0; i < 9; i++)
+            if (filter.decide(null, logger, Level.INFO, "message {}", null, null) == FilterReply.NEUTRAL)
+                kept++;
+
+        assertEquals(3, kept);
+    }
+
+    @Test
+    void decide_ShouldNotSampleWarningsLevelChecksOrOtherLoggers() {
+        Logger sampled = context.getLogger("com.pm.patientservice.reads");
+        Logger other = context.getLogger("com.pm.patientservice.readsOther");
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(FilterReply.NEUTRAL, filter.decide(null, sampled, Level.WARN, "message", null, null));
+            assertEquals(FilterReply.NEUTRAL, filter.decide(null, sampled, Level.INFO, null, null, null));
+            assertEquals(FilterReply.NEUTRAL, filter.decide(null, other, Level.INFO, "message", null, null));
+        }
+    }
+}